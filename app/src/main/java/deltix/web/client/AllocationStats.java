@@ -0,0 +1,265 @@
+package deltix.web.client;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bytes allocated and CPU time used by the caller thread and by the threads of the client under test, GC activity and
+ * the peak number of platform threads between {@link #start()} and {@link #stop(long)}.
+ * <p>
+ * Client threads are all live threads except the caller and threads with an excluded name prefix (e.g. the local
+ * server), grouped by the name prefix: Netty event loops, OkHttp dispatcher, AHC "KRAKEN" pool, Apache and Java
+ * executors. The CPU time of a group per request shows how busy its threads are, e.g. the IO threads with and without
+ * the response offload thread. CPU time of threads which terminate before {@link #stop(long)} is not counted.
+ * <p>
+ * Virtual threads (the {@code _VT} clients) are not listed by the thread bean, their CPU time is the CPU time of
+ * the carrier threads ("ForkJoinPool" group). Java 21 reports the total allocation of the JVM, the allocation
+ * of virtual threads and of terminated threads is the rest of the total, reported as the {@value #OTHER_THREADS}
+ * group of the client. Older JVMs have no virtual threads, terminated threads are not counted there.
+ */
+public final class AllocationStats {
+    private static final String OTHER_THREADS = "Virtual and terminated threads";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // com.sun.management.ThreadMXBean.getTotalThreadAllocatedBytes() of Java 21, null before
+    private static final Method TOTAL_ALLOCATED_BYTES = totalAllocatedBytesMethod();
+
+    private final String[] excludedPrefixes;
+    private final Map<Long, Long> startBytes = new HashMap<>();
+    private final Map<Long, Long> startCpuTimes = new HashMap<>();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final long[] startGcCounts = new long[collectors.size()];
+    private final long[] startGcTimes = new long[collectors.size()];
+    private long startTotalBytes;
+    private long callerThreadId;
+
+    public AllocationStats(String... excludedPrefixes) {
+        this.excludedPrefixes = excludedPrefixes;
+    }
+
+    public static boolean isSupported() {
+        return THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Takes the initial snapshot, the calling thread is the caller thread of the client.
+     */
+    public void start() {
+        callerThreadId = Thread.currentThread().getId();
+        startBytes.clear();
+        startCpuTimes.clear();
+        THREADS.resetPeakThreadCount();
+
+        startTotalBytes = totalAllocatedBytes();
+        final long[] ids = THREADS.getAllThreadIds();
+        final long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+        final long[] cpuTimes = THREADS.getThreadCpuTime(ids);
+        for (int i = 0; i < ids.length; i++) {
+            startBytes.put(ids[i], bytes[i]);
+            startCpuTimes.put(ids[i], cpuTimes[i]);
+        }
+
+        for (int i = 0; i < collectors.size(); i++) {
+            startGcCounts[i] = collectors.get(i).getCollectionCount();
+            startGcTimes[i] = collectors.get(i).getCollectionTime();
+        }
+    }
+
+    /**
+     * Takes the final snapshot and returns the usage per request.
+     */
+    public Report stop(long requestCount) {
+        long callerBytes = 0;
+        long callerCpuTime = 0;
+        long clientCpuTime = 0;
+        final Map<String, Long> clientBytes = new TreeMap<>();
+        final Map<String, Long> clientCpuTimes = new TreeMap<>();
+
+        final long[] ids = THREADS.getAllThreadIds();
+        final long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+        final long[] cpuTimes = THREADS.getThreadCpuTime(ids);
+        final ThreadInfo[] infos = THREADS.getThreadInfo(ids);
+        final long totalBytes = totalAllocatedBytes();
+        long platformBytes = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] < 0 || infos[i] == null) {
+                continue; // terminated
+            }
+
+            final long allocated = bytes[i] - startBytes.getOrDefault(ids[i], 0L);
+            platformBytes += Math.max(0, allocated);
+            final long cpuTime = cpuTimes[i] < 0 ? 0 : cpuTimes[i] - Math.max(0, startCpuTimes.getOrDefault(ids[i], 0L));
+            if (ids[i] == callerThreadId) {
+                callerBytes = allocated;
+                callerCpuTime = cpuTime;
+            } else if (!isExcluded(infos[i].getThreadName())) {
+                final String group = groupName(infos[i].getThreadName());
+                if (allocated > 0 || cpuTime > 0) {
+                    clientBytes.merge(group, Math.max(0, allocated), Long::sum);
+                    clientCpuTimes.merge(group, cpuTime, Long::sum);
+                }
+                clientCpuTime += cpuTime;
+            }
+        }
+        if (totalBytes >= 0 && startTotalBytes >= 0) {
+            final long otherBytes = totalBytes - startTotalBytes - platformBytes;
+            if (otherBytes > 0) {
+                clientBytes.merge(OTHER_THREADS, otherBytes, Long::sum);
+            }
+        }
+
+        long gcCount = 0;
+        long gcTime = 0;
+        for (int i = 0; i < collectors.size(); i++) {
+            gcCount += collectors.get(i).getCollectionCount() - startGcCounts[i];
+            gcTime += collectors.get(i).getCollectionTime() - startGcTimes[i];
+        }
+
+        return new Report(Math.max(1, requestCount), callerBytes, clientBytes, clientCpuTimes, callerCpuTime, clientCpuTime,
+                gcCount, gcTime, THREADS.getPeakThreadCount());
+    }
+
+    /**
+     * Bytes allocated by all threads of the JVM since its start, -1 before Java 21.
+     */
+    private static long totalAllocatedBytes() {
+        if (TOTAL_ALLOCATED_BYTES == null) {
+            return -1;
+        }
+        try {
+            return (Long) TOTAL_ALLOCATED_BYTES.invoke(THREADS);
+        } catch (ReflectiveOperationException e) {
+            return -1;
+        }
+    }
+
+    private static Method totalAllocatedBytesMethod() {
+        try {
+            return com.sun.management.ThreadMXBean.class.getMethod("getTotalThreadAllocatedBytes");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private boolean isExcluded(String threadName) {
+        for (String prefix : excludedPrefixes) {
+            if (threadName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Thread name without the pool and thread numbers, e.g. "nioEventLoopGroup-4-1" - "nioEventLoopGroup".
+     */
+    private static String groupName(String threadName) {
+        int end = 0;
+        while (end < threadName.length() && !Character.isDigit(threadName.charAt(end)) && threadName.charAt(end) != ' ') {
+            end++;
+        }
+        while (end > 0 && (threadName.charAt(end - 1) == '-' || threadName.charAt(end - 1) == '#')) {
+            end--;
+        }
+        return end > 0 ? threadName.substring(0, end) : threadName;
+    }
+
+    public static final class Report {
+        private final long requestCount;
+        private final long callerBytes;
+        private final Map<String, Long> clientBytes;
+        private final Map<String, Long> clientCpuTimes;
+        private final long callerCpuTime;
+        private final long clientCpuTime;
+        private final long gcCount;
+        private final long gcTime;
+        private final int peakThreadCount;
+
+        Report(long requestCount, long callerBytes, Map<String, Long> clientBytes, Map<String, Long> clientCpuTimes,
+               long callerCpuTime, long clientCpuTime, long gcCount, long gcTime, int peakThreadCount) {
+            this.requestCount = requestCount;
+            this.callerBytes = callerBytes;
+            this.clientBytes = clientBytes;
+            this.clientCpuTimes = clientCpuTimes;
+            this.callerCpuTime = callerCpuTime;
+            this.clientCpuTime = clientCpuTime;
+            this.gcCount = gcCount;
+            this.gcTime = gcTime;
+            this.peakThreadCount = peakThreadCount;
+        }
+
+        public double getCallerBytesPerRequest() {
+            return (double) callerBytes / requestCount;
+        }
+
+        public double getClientBytesPerRequest() {
+            long total = 0;
+            for (long bytes : clientBytes.values()) {
+                total += bytes;
+            }
+            return (double) total / requestCount;
+        }
+
+        public double getBytesPerRequest() {
+            return getCallerBytesPerRequest() + getClientBytesPerRequest();
+        }
+
+        /**
+         * CPU time of the caller and the client threads per request in ns, e.g. to compare TLS providers.
+         */
+        public double getCpuTimePerRequest() {
+            return (double) (callerCpuTime + clientCpuTime) / requestCount;
+        }
+
+        public double getClientCpuTimePerRequest() {
+            return (double) clientCpuTime / requestCount;
+        }
+
+        /**
+         * CPU time of the client threads with the given name prefix per request in ns, e.g. "nioEventLoopGroup".
+         */
+        public double getClientCpuTimePerRequest(String group) {
+            return (double) clientCpuTimes.getOrDefault(group, 0L) / requestCount;
+        }
+
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        /**
+         * Accumulated GC time in milliseconds.
+         */
+        public long getGcTime() {
+            return gcTime;
+        }
+
+        /**
+         * Peak number of live platform threads of the JVM, virtual threads are not counted.
+         */
+        public int getPeakThreadCount() {
+            return peakThreadCount;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder(256)
+                    .append(String.format("\t[Total %,.0f B/req, Caller %,.0f B/req, Client Threads %,.0f B/req, GC Count %d, GC Time %d ms, Peak Threads %d]",
+                            getBytesPerRequest(), getCallerBytesPerRequest(), getClientBytesPerRequest(), gcCount, gcTime,
+                            peakThreadCount))
+                    .append(String.format("%n\t[CPU %,.1f us/req, Client Threads %,.1f us/req]",
+                            getCpuTimePerRequest() / 1000, getClientCpuTimePerRequest() / 1000));
+            for (Map.Entry<String, Long> entry : clientBytes.entrySet()) {
+                builder.append(String.format("%n\t[%s %,.0f B/req, %,.1f us/req]", entry.getKey(),
+                        (double) entry.getValue() / requestCount, getClientCpuTimePerRequest(entry.getKey()) / 1000));
+            }
+            return builder.toString();
+        }
+    }
+}
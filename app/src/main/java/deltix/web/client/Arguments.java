@@ -0,0 +1,76 @@
+package deltix.web.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Positional arguments plus {@code --name value} options. An option without a value is a {@code true} flag.
+ */
+public final class Arguments {
+    private final List<String> positional = new ArrayList<>();
+    private final Map<String, String> options = new HashMap<>();
+
+    public static Arguments parse(String[] args) {
+        final Arguments result = new Arguments();
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg.startsWith("--")) {
+                final boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+                result.options.put(arg.substring(2), hasValue ? args[++i] : "true");
+            } else {
+                result.positional.add(arg);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return positional.size();
+    }
+
+    public String get(int index) {
+        return positional.get(index);
+    }
+
+    public String get(int index, String defaultValue) {
+        return index < positional.size() ? positional.get(index) : defaultValue;
+    }
+
+    public int getInt(int index, int defaultValue) {
+        return index < positional.size() ? Integer.parseInt(positional.get(index)) : defaultValue;
+    }
+
+    public boolean getBoolean(int index, boolean defaultValue) {
+        return index < positional.size() ? Boolean.parseBoolean(positional.get(index)) : defaultValue;
+    }
+
+    public boolean hasOption(String name) {
+        return options.containsKey(name);
+    }
+
+    public String getOption(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    public int getIntOption(String name, int defaultValue) {
+        final String value = options.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public long getLongOption(String name, long defaultValue) {
+        final String value = options.get(name);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    public double getDoubleOption(String name, double defaultValue) {
+        final String value = options.get(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    public boolean getBooleanOption(String name, boolean defaultValue) {
+        final String value = options.get(name);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
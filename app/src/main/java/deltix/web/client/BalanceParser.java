@@ -0,0 +1,467 @@
+package deltix.web.client;
+
+import deltix.web.client.http.VirtualThreadUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ByteProcessor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Streaming parser of the accounts response: the body is fed chunk by chunk as it comes (Netty buffers,
+ * NIO buffers, streams), the values of {@code accounts.<account>.balances.<currency>} are collected into
+ * {@link Balances}. Other values are validated as JSON and skipped.
+ * <p>
+ * The parser neither builds strings nor copies the body, numbers are parsed from the digits, so a parse
+ * does not allocate. A parser is reusable after {@link #reset()}, responses which are consumed on changing threads
+ * take a parser from the pool with {@link #acquire()}. The pool is per thread and takes no lock: a parser is
+ * normally acquired and released by the IO thread which parses the response (interleaved HTTP/2 streams of an event
+ * loop take parsers of the same pool), a parser released by another thread moves to the pool of that thread.
+ * Virtual threads live for one request, so they share a pool of slots taken and returned with a compare-and-set
+ * instead of building a pool (and a parser) per thread.
+ */
+public final class BalanceParser implements ByteProcessor {
+    private static final int MAX_POOLED = 64;
+    private static final ThreadLocal<ArrayDeque<BalanceParser>> POOL = ThreadLocal.withInitial(() -> new ArrayDeque<>(MAX_POOLED));
+    private static final AtomicReferenceArray<BalanceParser> SHARED_POOL = new AtomicReferenceArray<>(MAX_POOLED);
+
+    private static final byte[] ACCOUNTS = {'a', 'c', 'c', 'o', 'u', 'n', 't', 's'};
+    private static final byte[] BALANCES = {'b', 'a', 'l', 'a', 'n', 'c', 'e', 's'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final int MAX_DEPTH = 64;
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int VALUE = 0;
+    private static final int MEMBER = 1;
+    private static final int KEY = 2;
+    private static final int KEY_ESCAPE = 3;
+    private static final int COLON = 4;
+    private static final int STRING = 5;
+    private static final int STRING_ESCAPE = 6;
+    private static final int NUMBER = 7;
+    private static final int LITERAL = 8;
+    private static final int AFTER_VALUE = 9;
+    private static final int DONE = 10;
+    private static final int ERROR = 11;
+
+    private final Balances balances = new Balances();
+    private final byte[] containers = new byte[MAX_DEPTH];
+    private final byte[] key = new byte[MAX_KEY_LENGTH];
+    private final byte[] account = new byte[MAX_KEY_LENGTH];
+    private final byte[] chunk = new byte[8192];
+    private final ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+
+    private int state;
+    private int depth;
+    private int accountsDepth;
+    private int balancesDepth;
+    private int keyLength;
+    private int accountLength;
+    private byte[] literal;
+    private int literalLength;
+
+    private boolean negative;
+    private long mantissa;
+    private int mantissaDigits;
+    private int exponent;
+    private int fractionDigits;
+    private boolean inFraction;
+    private boolean inExponent;
+    private boolean negativeExponent;
+
+    /**
+     * Takes a reset parser from the pool of the calling thread, {@link #release()} returns it.
+     */
+    public static BalanceParser acquire() {
+        final Thread thread = Thread.currentThread();
+        BalanceParser parser = VirtualThreadUtil.isVirtual(thread) ? acquireShared(thread) : POOL.get().pollLast();
+        if (parser == null) {
+            parser = new BalanceParser();
+        }
+        parser.reset();
+        return parser;
+    }
+
+    /**
+     * Returns the parser to the pool of the calling thread, a full pool drops it.
+     */
+    public void release() {
+        final Thread thread = Thread.currentThread();
+        if (VirtualThreadUtil.isVirtual(thread)) {
+            releaseShared(thread, this);
+            return;
+        }
+
+        final ArrayDeque<BalanceParser> pool = POOL.get();
+        if (pool.size() < MAX_POOLED) {
+            pool.offerLast(this);
+        }
+    }
+
+    private static BalanceParser acquireShared(Thread thread) {
+        // threads start at different slots, so they rarely compete for one
+        final int start = (int) thread.getId();
+        for (int i = 0; i < MAX_POOLED; i++) {
+            final int slot = (start + i) & (MAX_POOLED - 1);
+            final BalanceParser parser = SHARED_POOL.get(slot);
+            if (parser != null && SHARED_POOL.compareAndSet(slot, parser, null)) {
+                return parser;
+            }
+        }
+        return null;
+    }
+
+    private static void releaseShared(Thread thread, BalanceParser parser) {
+        final int start = (int) thread.getId();
+        for (int i = 0; i < MAX_POOLED; i++) {
+            final int slot = (start + i) & (MAX_POOLED - 1);
+            if (SHARED_POOL.get(slot) == null && SHARED_POOL.compareAndSet(slot, null, parser)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Prepares the parser for the next response.
+     */
+    public void reset() {
+        balances.clear();
+        state = VALUE;
+        depth = 0;
+        accountsDepth = 0;
+        balancesDepth = 0;
+        keyLength = 0;
+        accountLength = 0;
+    }
+
+    /**
+     * Parses the readable bytes, the reader index is not moved.
+     */
+    public void parse(ByteBuf buffer) {
+        if (state != ERROR && buffer.isReadable()) {
+            buffer.forEachByte(buffer.readerIndex(), buffer.readableBytes(), this);
+        }
+    }
+
+    /**
+     * Parses the remaining bytes, the position is not moved.
+     */
+    public void parse(ByteBuffer buffer) {
+        final int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit && process(buffer.get(i)); i++) {
+            // process
+        }
+    }
+
+    public void parse(byte[] bytes, int offset, int length) {
+        final int end = offset + length;
+        for (int i = offset; i < end && process(bytes[i]); i++) {
+            // process
+        }
+    }
+
+    /**
+     * Parses the stream till the end through the reusable chunk buffer of the parser.
+     */
+    public void parse(InputStream stream) throws IOException {
+        int length;
+        while ((length = stream.read(chunk)) >= 0) {
+            parse(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Parses the channel till the end through the reusable chunk buffer of the parser.
+     */
+    public void parse(ReadableByteChannel channel) throws IOException {
+        while (true) {
+            chunkBuffer.clear();
+            final int length = channel.read(chunkBuffer);
+            if (length < 0) {
+                return;
+            }
+            parse(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Returns true if a complete JSON document has been parsed.
+     */
+    public boolean isComplete() {
+        return state == DONE;
+    }
+
+    /**
+     * Returns balances parsed since the reset, valid until the next reset.
+     */
+    public Balances getBalances() {
+        return balances;
+    }
+
+    /**
+     * Returns true if the response is not successful or it is a complete JSON document.
+     */
+    public boolean isValid(int statusCode) {
+        return statusCode != 200 || isComplete();
+    }
+
+    public static IOException malformedResponse() {
+        return new IOException("Malformed accounts response");
+    }
+
+    @Override
+    public boolean process(byte value) {
+        switch (state) {
+            case VALUE:
+                return isWhitespace(value) || startValue(value);
+            case MEMBER:
+                if (value == '"') {
+                    keyLength = 0;
+                    state = KEY;
+                    return true;
+                }
+                if (value == '}') {
+                    return closeContainer('{');
+                }
+                return isWhitespace(value) || error();
+            case KEY:
+                if (value == '"') {
+                    state = COLON;
+                } else if (value == '\\') {
+                    state = KEY_ESCAPE;
+                } else {
+                    appendKey(value);
+                }
+                return true;
+            case KEY_ESCAPE:
+                appendKey(value);
+                state = KEY;
+                return true;
+            case COLON:
+                if (value == ':') {
+                    state = VALUE;
+                    return true;
+                }
+                return isWhitespace(value) || error();
+            case STRING:
+                if (value == '"') {
+                    endValue();
+                } else if (value == '\\') {
+                    state = STRING_ESCAPE;
+                }
+                return true;
+            case STRING_ESCAPE:
+                state = STRING;
+                return true;
+            case NUMBER:
+                if (appendNumber(value)) {
+                    return state != ERROR;
+                }
+                endNumber();
+                return process(value);
+            case LITERAL:
+                if (literalLength < literal.length) {
+                    return value == literal[literalLength++] || error();
+                }
+                endValue();
+                return process(value);
+            case AFTER_VALUE:
+                if (value == ',') {
+                    state = containers[depth - 1] == '{' ? MEMBER : VALUE;
+                    return true;
+                }
+                if (value == '}' || value == ']') {
+                    return closeContainer(value == '}' ? '{' : '[');
+                }
+                return isWhitespace(value) || error();
+            case DONE:
+                return isWhitespace(value) || error();
+            default:
+                return false;
+        }
+    }
+
+    private boolean startValue(byte value) {
+        switch (value) {
+            case '{':
+                return openObject();
+            case '[':
+                return openContainer('[', VALUE);
+            case ']':
+                return depth > 0 && containers[depth - 1] == '[' ? closeContainer('[') : error();
+            case '"':
+                state = STRING;
+                return true;
+            case 't':
+                return startLiteral(TRUE);
+            case 'f':
+                return startLiteral(FALSE);
+            case 'n':
+                return startLiteral(NULL);
+            default:
+                if (value == '-' || (value >= '0' && value <= '9')) {
+                    startNumber(value);
+                    return true;
+                }
+                return error();
+        }
+    }
+
+    private boolean startLiteral(byte[] value) {
+        literal = value;
+        literalLength = 1;
+        state = LITERAL;
+        return true;
+    }
+
+    private boolean openObject() {
+        if (depth > 0 && containers[depth - 1] == '{') {
+            if (depth == 1 && isKey(ACCOUNTS)) {
+                accountsDepth = depth + 1;
+            } else if (accountsDepth > 0 && depth == accountsDepth) {
+                System.arraycopy(key, 0, account, 0, keyLength);
+                accountLength = keyLength;
+            } else if (accountsDepth > 0 && depth == accountsDepth + 1 && isKey(BALANCES)) {
+                balancesDepth = depth + 1;
+            }
+        }
+        return openContainer('{', MEMBER);
+    }
+
+    private boolean openContainer(char container, int nextState) {
+        if (depth == MAX_DEPTH) {
+            return error();
+        }
+        containers[depth++] = (byte) container;
+        state = nextState;
+        return true;
+    }
+
+    private boolean closeContainer(char container) {
+        if (depth == 0 || containers[depth - 1] != container) {
+            return error();
+        }
+        if (depth == balancesDepth) {
+            balancesDepth = 0;
+        }
+        if (depth == accountsDepth) {
+            accountsDepth = 0;
+        }
+        depth--;
+        endValue();
+        return true;
+    }
+
+    private void endValue() {
+        state = depth == 0 ? DONE : AFTER_VALUE;
+    }
+
+    private void startNumber(byte value) {
+        negative = value == '-';
+        mantissa = negative ? 0 : value - '0';
+        mantissaDigits = mantissa > 0 ? 1 : 0; // leading zeros are not significant
+        exponent = 0;
+        fractionDigits = 0;
+        inFraction = false;
+        inExponent = false;
+        negativeExponent = false;
+        state = NUMBER;
+    }
+
+    private boolean appendNumber(byte value) {
+        if (value >= '0' && value <= '9') {
+            final int digit = value - '0';
+            if (inExponent) {
+                if (exponent > (Integer.MAX_VALUE - digit) / 10) {
+                    error(); // the exponent overflows
+                    return true;
+                }
+                exponent = exponent * 10 + digit;
+            } else if (mantissa == 0 && digit == 0) {
+                if (inFraction) {
+                    fractionDigits++; // a leading zero of the fraction only scales the value
+                }
+            } else if (mantissaDigits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+                mantissaDigits++;
+                if (inFraction) {
+                    fractionDigits++;
+                }
+            } else if (!inFraction) {
+                fractionDigits--; // digits beyond the precision scale the integer part
+            }
+            return true;
+        }
+        if (value == '.' && !inFraction && !inExponent) {
+            inFraction = true;
+            return true;
+        }
+        if ((value == 'e' || value == 'E') && !inExponent) {
+            inExponent = true;
+            return true;
+        }
+        if ((value == '-' || value == '+') && inExponent) {
+            negativeExponent = value == '-';
+            return true;
+        }
+        return false;
+    }
+
+    private void endNumber() {
+        endValue();
+        if (balancesDepth > 0 && depth == balancesDepth && containers[depth - 1] == '{') {
+            balances.add(account, accountLength, key, keyLength, numberValue());
+        }
+    }
+
+    private double numberValue() {
+        final int power = (negativeExponent ? -exponent : exponent) - fractionDigits;
+        double value = mantissa;
+        if (power < 0 && power >= -22) {
+            value /= POW10[-power];
+        } else if (power > 0 && power <= 22) {
+            value *= POW10[power];
+        } else if (power != 0) {
+            value *= Math.pow(10, power);
+        }
+        return negative ? -value : value;
+    }
+
+    private void appendKey(byte value) {
+        if (keyLength < MAX_KEY_LENGTH) {
+            key[keyLength++] = value;
+        }
+    }
+
+    private boolean isKey(byte[] name) {
+        if (keyLength != name.length) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (key[i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean error() {
+        state = ERROR;
+        return false;
+    }
+
+    private static boolean isWhitespace(byte value) {
+        return value == ' ' || value == '\n' || value == '\r' || value == '\t';
+    }
+}
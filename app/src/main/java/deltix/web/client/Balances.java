@@ -0,0 +1,99 @@
+package deltix.web.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Balances of the accounts response keyed by account and currency, e.g. {@code cash/xbt}.
+ * Entries are kept between responses, so a parsed response does not allocate once the capacity is reached.
+ */
+public final class Balances {
+    private byte[][] accounts = new byte[16][];
+    private int[] accountLengths = new int[16];
+    private byte[][] currencies = new byte[16][];
+    private int[] currencyLengths = new int[16];
+    private double[] values = new double[16];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public String getAccount(int index) {
+        return new String(accounts[index], 0, accountLengths[index], StandardCharsets.US_ASCII);
+    }
+
+    public String getCurrency(int index) {
+        return new String(currencies[index], 0, currencyLengths[index], StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return the balance of the account in the currency or NaN if there is no such balance
+     */
+    public double getBalance(CharSequence account, CharSequence currency) {
+        for (int i = 0; i < size; i++) {
+            if (equals(accounts[i], accountLengths[i], account) && equals(currencies[i], currencyLengths[i], currency)) {
+                return values[i];
+            }
+        }
+        return Double.NaN;
+    }
+
+    void add(byte[] account, int accountLength, byte[] currency, int currencyLength, double value) {
+        if (size == values.length) {
+            final int capacity = size * 2;
+            accounts = Arrays.copyOf(accounts, capacity);
+            accountLengths = Arrays.copyOf(accountLengths, capacity);
+            currencies = Arrays.copyOf(currencies, capacity);
+            currencyLengths = Arrays.copyOf(currencyLengths, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        accounts[size] = copy(accounts[size], account, accountLength);
+        accountLengths[size] = accountLength;
+        currencies[size] = copy(currencies[size], currency, currencyLength);
+        currencyLengths[size] = currencyLength;
+        values[size] = value;
+        size++;
+    }
+
+    private static byte[] copy(byte[] target, byte[] source, int length) {
+        if (target == null || target.length < length) {
+            target = new byte[Math.max(16, length)];
+        }
+        System.arraycopy(source, 0, target, 0, length);
+        return target;
+    }
+
+    private static boolean equals(byte[] bytes, int length, CharSequence chars) {
+        if (length != chars.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != chars.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(32 * size).append('{');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(getAccount(i)).append('/').append(getCurrency(i)).append('=').append(values[i]);
+        }
+        return builder.append('}').toString();
+    }
+}
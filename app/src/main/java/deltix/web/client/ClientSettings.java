@@ -0,0 +1,221 @@
+package deltix.web.client;
+
+import deltix.web.client.workload.Workload;
+
+import java.util.Arrays;
+
+/**
+ * Settings shared by the {@link KrakenfutUtil} client factories.
+ */
+public final class ClientSettings {
+    private String balanceUrl = KrakenfutUtil.BALANCE_URL;
+    private HttpProtocol protocol = HttpProtocol.HTTP_1_1;
+    private int ioThreadCount;
+    private IoTransport transport = IoTransport.NIO;
+    private boolean busyPoll;
+    private int ioRatio;
+    private int[] ioThreadCpus = new int[0];
+    private boolean trustAllCertificates;
+    private TlsProvider tlsProvider = TlsProvider.JDK;
+    private int connectionCount = 1;
+    private int maxConnectionCount;
+    private int pipelineDepth;
+    private boolean phaseTiming;
+    private Workload workload;
+
+    public String getBalanceUrl() {
+        return balanceUrl;
+    }
+
+    public ClientSettings setBalanceUrl(String balanceUrl) {
+        this.balanceUrl = balanceUrl;
+        return this;
+    }
+
+    public HttpProtocol getProtocol() {
+        return protocol;
+    }
+
+    public ClientSettings setProtocol(HttpProtocol protocol) {
+        this.protocol = protocol;
+        return this;
+    }
+
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    public ClientSettings setIoThreadCount(int ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+        return this;
+    }
+
+    /**
+     * True for a native transport, the AHC client uses epoll then.
+     */
+    public boolean isUseNativeTransport() {
+        return transport != IoTransport.NIO;
+    }
+
+    /**
+     * Picks epoll for true and NIO for false.
+     */
+    public ClientSettings setUseNativeTransport(boolean useNativeTransport) {
+        this.transport = useNativeTransport ? IoTransport.EPOLL : IoTransport.NIO;
+        return this;
+    }
+
+    /**
+     * Event loop group and channel class of the Netty clients.
+     */
+    public IoTransport getTransport() {
+        return transport;
+    }
+
+    public ClientSettings setTransport(IoTransport transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * Netty event loops poll without blocking (a busy-wait in epoll), which saves the wake-up on the response path
+     * and burns a core per IO thread. Not supported by io_uring.
+     */
+    public boolean isBusyPoll() {
+        return busyPoll;
+    }
+
+    public ClientSettings setBusyPoll(boolean busyPoll) {
+        this.busyPoll = busyPoll;
+        return this;
+    }
+
+    /**
+     * Percentage of the time of a Netty NIO or epoll event loop spent on IO rather than tasks (the requests
+     * submitted by the caller), 100 runs all tasks after every poll, 0 keeps the Netty default of 50.
+     */
+    public int getIoRatio() {
+        return ioRatio;
+    }
+
+    public ClientSettings setIoRatio(int ioRatio) {
+        this.ioRatio = ioRatio;
+        return this;
+    }
+
+    /**
+     * CPUs the Netty IO threads are pinned to, one per thread in the order of creation, empty for no pinning.
+     */
+    public int[] getIoThreadCpus() {
+        return ioThreadCpus;
+    }
+
+    public ClientSettings setIoThreadCpus(int[] ioThreadCpus) {
+        this.ioThreadCpus = ioThreadCpus;
+        return this;
+    }
+
+    /**
+     * Disables certificate and host name verification, e.g. for the self-signed certificate of the local server.
+     */
+    public boolean isTrustAllCertificates() {
+        return trustAllCertificates;
+    }
+
+    public ClientSettings setTrustAllCertificates(boolean trustAllCertificates) {
+        this.trustAllCertificates = trustAllCertificates;
+        return this;
+    }
+
+    public TlsProvider getTlsProvider() {
+        return tlsProvider;
+    }
+
+    public ClientSettings setTlsProvider(TlsProvider tlsProvider) {
+        this.tlsProvider = tlsProvider;
+        return this;
+    }
+
+    /**
+     * Initial number of connections of the Netty client pool.
+     */
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    public ClientSettings setConnectionCount(int connectionCount) {
+        this.connectionCount = connectionCount;
+        return this;
+    }
+
+    /**
+     * Max number of connections of the Netty client pool. The pool is fixed when it is not above the initial
+     * number of connections, otherwise it opens a new connection whenever every connection has in-flight requests.
+     */
+    public int getMaxConnectionCount() {
+        return maxConnectionCount;
+    }
+
+    public ClientSettings setMaxConnectionCount(int maxConnectionCount) {
+        this.maxConnectionCount = maxConnectionCount;
+        return this;
+    }
+
+    /**
+     * Max number of requests the Netty client writes to a connection without waiting for responses
+     * (HTTP/1.1 pipelining). 1 disables pipelining, 0 means unlimited.
+     */
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    public ClientSettings setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+        return this;
+    }
+
+    /**
+     * Enables the per-phase hooks of the clients, which report {@link RequestPhase} durations
+     * to {@link ResponseListener#onPhase}. Off by default, the hooks take timestamps and may allocate per request.
+     */
+    public boolean isPhaseTiming() {
+        return phaseTiming;
+    }
+
+    public ClientSettings setPhaseTiming(boolean phaseTiming) {
+        this.phaseTiming = phaseTiming;
+        return this;
+    }
+
+    /**
+     * Request mix of orders and balance polls, null for balance requests only.
+     */
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    public ClientSettings setWorkload(Workload workload) {
+        this.workload = workload;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientSettings{" +
+                "balanceUrl='" + balanceUrl + '\'' +
+                ", protocol=" + protocol +
+                ", ioThreadCount=" + ioThreadCount +
+                ", transport=" + transport +
+                ", busyPoll=" + busyPoll +
+                ", ioRatio=" + ioRatio +
+                ", ioThreadCpus=" + Arrays.toString(ioThreadCpus) +
+                ", trustAllCertificates=" + trustAllCertificates +
+                ", tlsProvider=" + tlsProvider +
+                ", connectionCount=" + connectionCount +
+                ", maxConnectionCount=" + maxConnectionCount +
+                ", pipelineDepth=" + pipelineDepth +
+                ", phaseTiming=" + phaseTiming +
+                ", workload=" + workload +
+                '}';
+    }
+}
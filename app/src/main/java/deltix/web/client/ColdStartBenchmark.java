@@ -0,0 +1,259 @@
+package deltix.web.client;
+
+import deltix.web.client.http.TlsUtil;
+import org.HdrHistogram.Histogram;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a cold start, e.g. reconnecting after a drop: every iteration builds a new client through the factory,
+ * so the first request opens a new connection, and measures
+ * <ul>
+ *     <li>{@code construction} - the factory call, Netty clients also connect there</li>
+ *     <li>{@code preconnect} - {@link WebClient#preconnect(int)}, if enabled</li>
+ *     <li>{@code firstResponse} - the first request</li>
+ *     <li>{@code coldStart} - from the factory call to the first response</li>
+ * </ul>
+ * Clients hide their connections, so {@link #probe(int)} measures the TCP connect and the TLS handshake
+ * of the balance URL with blocking sockets of the TLS provider (JDK or Conscrypt): a full handshake with a new
+ * {@link SSLContext} and a resumed one (if the server issues session tickets) with the session cache of a shared
+ * {@link SSLContext}. A resumed session keeps the creation time of the session it resumes (in seconds with Conscrypt),
+ * a handshake which does not resume the session of the priming connection counts as a failure.
+ */
+public final class ColdStartBenchmark {
+    public static final String CONSTRUCTION = "construction";
+    public static final String PRECONNECT = "preconnect";
+    public static final String FIRST_RESPONSE = "firstResponse";
+    public static final String COLD_START = "coldStart";
+    public static final String TCP_CONNECT = "tcpConnect";
+    public static final String TLS_FULL_HANDSHAKE = "tlsFullHandshake";
+    public static final String TLS_RESUMED_HANDSHAKE = "tlsResumedHandshake";
+
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+
+    private final ClientSettings settings;
+
+    public ColdStartBenchmark(ClientSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Creates a client for every iteration, sends one request and closes the client.
+     *
+     * @param preconnect calls {@link WebClient#preconnect(int)} with the connection count of the settings
+     *                   before the first request
+     * @param pause      ms between iterations, lets the closed client release its threads and connections
+     */
+    public Result run(WebClientFactory factory, int iterations, boolean preconnect, long pause) throws Exception {
+        final Result result = new Result(preconnect ?
+                new String[]{CONSTRUCTION, PRECONNECT, FIRST_RESPONSE, COLD_START} :
+                new String[]{CONSTRUCTION, FIRST_RESPONSE, COLD_START});
+
+        for (int i = 0; i < iterations; i++) {
+            if (i > 0 && pause > 0) {
+                Thread.sleep(pause);
+            }
+
+            final FirstResponse response = new FirstResponse();
+            final long startTime = System.nanoTime();
+            try (WebClient client = factory.create(response)) {
+                final long constructedTime = System.nanoTime();
+                result.record(CONSTRUCTION, constructedTime - startTime);
+
+                if (preconnect) {
+                    client.preconnect(Math.max(1, settings.getConnectionCount()));
+                    result.record(PRECONNECT, System.nanoTime() - constructedTime);
+                }
+
+                final long requestTime = System.nanoTime();
+                client.executeRequest(requestTime);
+                if (response.await() && response.statusCode == 200) {
+                    result.record(FIRST_RESPONSE, response.responseTime - requestTime);
+                    result.record(COLD_START, response.responseTime - startTime);
+                } else {
+                    result.failureCount++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Connects to the host of the balance URL {@code iterations} times for every kind of handshake,
+     * every connection sends a HEAD request, which also brings the TLS 1.3 session ticket to the client.
+     * Resumed handshakes which fall back to a full handshake are counted as failures.
+     */
+    public Result probe(int iterations) throws Exception {
+        final URI uri = URI.create(settings.getBalanceUrl());
+        final boolean secure = "https".equals(uri.getScheme());
+        final InetSocketAddress address = new InetSocketAddress(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80));
+        final byte[] request = ("HEAD " + uri.getRawPath() + " HTTP/1.1\r\nHost: " + uri.getHost() +
+                "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        final Result result = new Result(secure ?
+                new String[]{TCP_CONNECT, TLS_FULL_HANDSHAKE, TLS_RESUMED_HANDSHAKE} : new String[]{TCP_CONNECT});
+
+        if (!secure) {
+            for (int i = 0; i < iterations; i++) {
+                connect(address, null, request, result, null, null);
+            }
+            return result;
+        }
+
+        for (int i = 0; i < iterations; i++) {
+            connect(address, TlsUtil.sslContext(settings), request, result, TLS_FULL_HANDSHAKE, null);
+        }
+
+        final SSLContext sharedContext = TlsUtil.sslContext(settings);
+        final SSLSession primed = connect(address, sharedContext, request,
+                new Result(new String[]{TCP_CONNECT, TLS_FULL_HANDSHAKE}), TLS_FULL_HANDSHAKE, null);
+        for (int i = 0; i < iterations; i++) {
+            connect(address, sharedContext, request, result, TLS_RESUMED_HANDSHAKE, primed);
+        }
+        return result;
+    }
+
+    /**
+     * @param resumed session the handshake must resume, null for a full handshake
+     * @return the TLS session, null without TLS
+     */
+    private SSLSession connect(InetSocketAddress address, SSLContext sslContext, byte[] request, Result result,
+                               String handshakePhase, SSLSession resumed) throws Exception {
+        final long startTime = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(CONNECT_TIMEOUT_MS);
+            socket.connect(address, CONNECT_TIMEOUT_MS);
+            final long connectedTime = System.nanoTime();
+            result.record(TCP_CONNECT, connectedTime - startTime);
+
+            Socket connection = socket;
+            SSLSession session = null;
+            if (sslContext != null) {
+                final SSLSocket sslSocket = (SSLSocket) sslContext.getSocketFactory()
+                        .createSocket(socket, address.getHostString(), address.getPort(), true);
+                if (!settings.isTrustAllCertificates()) {
+                    final SSLParameters parameters = sslSocket.getSSLParameters();
+                    parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                    sslSocket.setSSLParameters(parameters);
+                }
+                sslSocket.startHandshake();
+                final long handshakeTime = System.nanoTime();
+                session = sslSocket.getSession();
+                if (resumed == null || session.getCreationTime() == resumed.getCreationTime()) {
+                    result.record(handshakePhase, handshakeTime - connectedTime);
+                } else {
+                    result.failureCount++; // a full handshake instead
+                }
+                connection = sslSocket;
+            }
+
+            final OutputStream output = connection.getOutputStream();
+            output.write(request);
+            output.flush();
+
+            final InputStream input = connection.getInputStream();
+            final byte[] buffer = new byte[4096];
+            while (input.read(buffer) >= 0) {
+                // till the server closes the connection
+            }
+            return session;
+        }
+    }
+
+    /**
+     * Completion of the only request of a client.
+     */
+    private static final class FirstResponse implements ResponseListener {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile long responseTime;
+        private volatile int statusCode;
+
+        @Override
+        public void onResponse(long startTime, int statusCode) {
+            this.responseTime = System.nanoTime();
+            this.statusCode = statusCode;
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(long startTime, Throwable error) {
+            latch.countDown();
+        }
+
+        private boolean await() throws InterruptedException {
+            return latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Histogram of every measured phase in ns.
+     */
+    public static final class Result {
+        private final Map<String, Histogram> phases = new LinkedHashMap<>();
+        private long failureCount;
+
+        Result(String[] phases) {
+            for (String phase : phases) {
+                this.phases.put(phase, new Histogram(ResponseStats.MAX_LATENCY, 3));
+            }
+        }
+
+        private void record(String phase, long duration) {
+            phases.get(phase).recordValue(Math.min(duration, ResponseStats.MAX_LATENCY));
+        }
+
+        public Map<String, Histogram> getPhases() {
+            return phases;
+        }
+
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        public static String header() {
+            return String.format("%-20s %8s %12s %12s %12s %12s %12s",
+                    "Phase", "Count", "Min us", "p50 us", "p90 us", "p99 us", "Max us");
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder(256);
+            for (Map.Entry<String, Histogram> phase : phases.entrySet()) {
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+                builder.append(row(phase.getKey(), phase.getValue()));
+            }
+            return builder.toString();
+        }
+
+        /**
+         * Formats a phase histogram in ns as a row of the {@link #header()} table.
+         */
+        public static String row(String phase, Histogram histogram) {
+            return String.format("%-20s %8d %,12.1f %,12.1f %,12.1f %,12.1f %,12.1f",
+                    phase, histogram.getTotalCount(), micros(histogram.getMinValue()),
+                    micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(90)),
+                    micros(histogram.getValueAtPercentile(99)), micros(histogram.getMaxValue()));
+        }
+
+        private static double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package deltix.web.client;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kraken futures endpoints of a mixed workload, see {@link deltix.web.client.workload.Workload}.
+ * Orders are POSTs with a form body, which is signed together with the nonce and the path.
+ */
+public enum Endpoint {
+    ACCOUNTS("accounts", "GET", "/api/v3/accounts"),
+    SEND_ORDER("sendorder", "POST", "/api/v3/sendorder"),
+    CANCEL_ORDER("cancelorder", "POST", "/api/v3/cancelorder");
+
+    private final String name;
+    private final String method;
+    private final String path;
+    private final byte[] presign;
+
+    Endpoint(String name, String method, String path) {
+        this.name = name;
+        this.method = method;
+        this.path = path;
+        this.presign = path.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Name of the endpoint in the API, e.g. {@code sendorder}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public boolean isPost() {
+        return "POST".equals(method);
+    }
+
+    /**
+     * Path of the endpoint, which is signed.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Path bytes for {@link KrakenfutSigner}, must not be modified.
+     */
+    public byte[] getPresign() {
+        return presign;
+    }
+
+    /**
+     * Returns the URL of the endpoint next to the accounts endpoint of the balance URL,
+     * e.g. {@code https://host/derivatives/api/v3/sendorder}.
+     */
+    public String url(String balanceUrl) {
+        final int end = balanceUrl.indexOf(ACCOUNTS.path);
+        if (end < 0) {
+            throw new IllegalArgumentException("Not an accounts URL: " + balanceUrl);
+        }
+        return balanceUrl.substring(0, end) + path;
+    }
+
+    /**
+     * Parses the name of the endpoint in the API, also {@code balance} for the accounts.
+     */
+    public static Endpoint parse(String value) {
+        switch (value.toLowerCase()) {
+            case "accounts":
+            case "balance":
+                return ACCOUNTS;
+            case "sendorder":
+                return SEND_ORDER;
+            case "cancelorder":
+                return CANCEL_ORDER;
+            default:
+                throw new IllegalArgumentException("Unknown endpoint: " + value);
+        }
+    }
+}
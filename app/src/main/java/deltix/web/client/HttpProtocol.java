@@ -0,0 +1,36 @@
+package deltix.web.client;
+
+public enum HttpProtocol {
+    HTTP_1_1("http/1.1"), H2("h2");
+
+    private final String alpnName;
+
+    HttpProtocol(String alpnName) {
+        this.alpnName = alpnName;
+    }
+
+    /**
+     * Protocol name of TLS application-layer protocol negotiation (ALPN).
+     */
+    public String getAlpnName() {
+        return alpnName;
+    }
+
+    /**
+     * Parses {@code h2} or {@code http/1.1} (also {@code h1}, {@code http1.1}, {@code HTTP_1_1}).
+     */
+    public static HttpProtocol parse(String value) {
+        switch (value.toLowerCase()) {
+            case "h2":
+            case "http2":
+                return H2;
+            case "h1":
+            case "http/1.1":
+            case "http1.1":
+            case "http_1_1":
+                return HTTP_1_1;
+            default:
+                throw new IllegalArgumentException("Unknown protocol: " + value);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package deltix.web.client;
+
+/**
+ * Socket transport of the Netty clients: the event loop group and the matching channel class.
+ */
+public enum IoTransport {
+    /**
+     * Java NIO selector, available everywhere.
+     */
+    NIO,
+    /**
+     * Linux epoll (netty-transport-native-epoll), edge-triggered, with native busy-wait support.
+     */
+    EPOLL,
+    /**
+     * Linux io_uring (netty-incubator-transport-native-io_uring), Linux 5.9+.
+     */
+    IO_URING;
+
+    public static IoTransport parse(String value) {
+        switch (value.toLowerCase()) {
+            case "nio":
+                return NIO;
+            case "epoll":
+            case "native":
+                return EPOLL;
+            case "io_uring":
+            case "iouring":
+            case "uring":
+                return IO_URING;
+            default:
+                throw new IllegalArgumentException("Unknown transport: " + value);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package deltix.web.client;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Signs Kraken Futures requests: {@code Authent = Base64(HMAC-SHA512(Base64Decode(secret), SHA256(postData + nonce + path)))}
+ * with a new nonce for every request, the post data is the form body of a POST and empty for a GET.
+ * <p>
+ * Signing does not allocate: every thread has its own digests and buffers, the nonce is formatted into bytes and
+ * the signature is Base64-encoded into a reusable array. {@link javax.crypto.Mac#doFinal(byte[], int)} allocates
+ * the result internally, so HMAC is computed with two SHA-512 digests over the precomputed inner and outer key pads.
+ */
+public final class KrakenfutSigner {
+    private static final int BLOCK_SIZE = 128; // SHA-512
+    private static final int HMAC_LENGTH = 64;
+    private static final int SHA256_LENGTH = 32;
+    private static final byte IPAD = 0x36;
+    private static final byte OPAD = 0x5c;
+
+    /**
+     * Length of the Base64 signature.
+     */
+    public static final int AUTHENT_LENGTH = (HMAC_LENGTH + 2) / 3 * 4;
+
+    private final byte[] innerPad = new byte[BLOCK_SIZE];
+    private final byte[] outerPad = new byte[BLOCK_SIZE];
+    private final AtomicLong nonce = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final ThreadLocal<Signature> signatures = ThreadLocal.withInitial(Signature::new);
+
+    public KrakenfutSigner(String apiSecret) throws NoSuchAlgorithmException {
+        byte[] key = Base64.getDecoder().decode(apiSecret);
+        if (key.length > BLOCK_SIZE) {
+            key = MessageDigest.getInstance("SHA-512").digest(key);
+        }
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            final byte k = i < key.length ? key[i] : 0;
+            innerPad[i] = (byte) (k ^ IPAD);
+            outerPad[i] = (byte) (k ^ OPAD);
+        }
+    }
+
+    /**
+     * Signs a request to the endpoint path with the next nonce.
+     *
+     * @return the signature of the calling thread, valid until the next call on the same thread
+     */
+    public Signature sign(byte[] path) {
+        return sign(path, 0, 0, path);
+    }
+
+    /**
+     * Signs a request with a form body, the signed message is {@code postData + nonce + path}.
+     *
+     * @return the signature of the calling thread, valid until the next call on the same thread
+     */
+    public Signature sign(byte[] postData, int offset, int length, byte[] path) {
+        final Signature signature = signatures.get();
+        signature.sign(postData, offset, length, nonce.incrementAndGet(), path);
+        return signature;
+    }
+
+    public final class Signature {
+        private final MessageDigest sha256 = createDigest("SHA-256");
+        private final MessageDigest sha512 = createDigest("SHA-512");
+        private final byte[] messageHash = new byte[SHA256_LENGTH];
+        private final byte[] innerHash = new byte[HMAC_LENGTH];
+        private final byte[] hmac = new byte[HMAC_LENGTH];
+        private final byte[] nonceBytes = new byte[20];
+        private final byte[] authent = new byte[AUTHENT_LENGTH];
+        private int nonceOffset;
+
+        private Signature() {
+        }
+
+        private void sign(byte[] postData, int offset, int length, long nonce, byte[] path) {
+            nonceOffset = formatNonce(nonce);
+
+            try {
+                sha256.update(postData, offset, length);
+                sha256.update(nonceBytes, nonceOffset, nonceBytes.length - nonceOffset);
+                sha256.update(path);
+                sha256.digest(messageHash, 0, SHA256_LENGTH);
+
+                sha512.update(innerPad);
+                sha512.update(messageHash);
+                sha512.digest(innerHash, 0, HMAC_LENGTH);
+
+                sha512.update(outerPad);
+                sha512.update(innerHash);
+                sha512.digest(hmac, 0, HMAC_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+
+            Base64.getEncoder().encode(hmac, authent);
+        }
+
+        private int formatNonce(long value) {
+            int offset = nonceBytes.length;
+            do {
+                nonceBytes[--offset] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            return offset;
+        }
+
+        /**
+         * Nonce digits are {@code [getNonceOffset(), getNonce().length)}.
+         */
+        public byte[] getNonce() {
+            return nonceBytes;
+        }
+
+        public int getNonceOffset() {
+            return nonceOffset;
+        }
+
+        public int getNonceLength() {
+            return nonceBytes.length - nonceOffset;
+        }
+
+        /**
+         * Base64 signature for the {@code Authent} header, the whole array is used.
+         */
+        public byte[] getAuthent() {
+            return authent;
+        }
+
+        public String nonceToString() {
+            return new String(nonceBytes, nonceOffset, getNonceLength(), StandardCharsets.US_ASCII);
+        }
+
+        public String authentToString() {
+            return new String(authent, StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public String toString() {
+            return "Signature{nonce=" + nonceToString() + ", authent=" + authentToString() + '}';
+        }
+    }
+
+    private static MessageDigest createDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
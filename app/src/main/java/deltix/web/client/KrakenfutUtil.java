@@ -1,152 +1,411 @@
 package deltix.web.client;
 
-import com.epam.deltix.gflog.api.Log;
 import deltix.web.client.http.*;
+import deltix.web.client.workload.OrderEncoder;
+import deltix.web.client.workload.WorkloadWebClient;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
-import io.netty.handler.codec.http.DefaultFullHttpRequest;
-import io.netty.handler.codec.http.HttpHeaderNames;
-import io.netty.handler.codec.http.HttpMethod;
-import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.*;
+import io.netty.util.AsciiString;
+import okhttp3.MediaType;
 import okhttp3.Request;
-import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
-import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import okhttp3.RequestBody;
 import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
-import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
 import org.asynchttpclient.RequestBuilder;
-import org.asynchttpclient.Response;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.net.URI;
 import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
-import java.util.concurrent.CountDownLatch;
-import java.util.function.BiFunction;
-
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Client factories which sign Kraken futures requests. The request suppliers build a request to the endpoint of
+ * {@link WorkloadWebClient#currentEndpoint()}, which is the balance endpoint without a workload, orders are POSTs
+ * with a form body of {@link OrderEncoder}.
+ */
 public final class KrakenfutUtil {
 
     public static final String BALANCE_URL = "https://demo-futures.kraken.com/derivatives/api/v3/accounts";
     public static final byte[] BALANCE_PRESIGN = "/api/v3/accounts".getBytes(StandardCharsets.UTF_8);
 
-    public static JavaHttpClient createJavaClient(int ioThreadCount,
-                                                  String apiKey, String apiSecret,
-                                                  CountDownLatch latch, Log logger) throws Exception {
-        final String signature = calculateSignature(apiSecret, BALANCE_PRESIGN);
+    private static final AsciiString NONCE = AsciiString.cached("Nonce");
+    private static final AsciiString AUTHENT = AsciiString.cached("Authent");
+    // digits of a long
+    private static final int NONCE_WIDTH = 19;
+    // digits of a body length
+    private static final int CONTENT_LENGTH_WIDTH = 6;
+    private static final String FORM = "application/x-www-form-urlencoded";
+    private static final MediaType FORM_MEDIA_TYPE = MediaType.get(FORM);
+
+    public static WebClient createClient(WebClientType clientType, ClientSettings settings,
+                                         String apiKey, String apiSecret,
+                                         ResponseListener listener) throws Exception {
+        if (settings.getWorkload() != null) {
+            return new WorkloadWebClient(settings.getWorkload(), listener,
+                    l -> createHttpClient(clientType, settings, apiKey, apiSecret, l));
+        }
+        return createHttpClient(clientType, settings, apiKey, apiSecret, listener);
+    }
 
-        final HttpRequest request = HttpRequest.newBuilder().GET()
-                .uri(URI.create(BALANCE_URL))
-                .setHeader("APIKey", apiKey)
-                .setHeader("Authent", signature)
-                .build();
+    private static WebClient createHttpClient(WebClientType clientType, ClientSettings settings,
+                                              String apiKey, String apiSecret,
+                                              ResponseListener listener) throws Exception {
+        final WebClient httpRequestTest;
+        switch (clientType) {
+            case NETTY:
+                httpRequestTest = createNettyClient(settings, apiKey, apiSecret, listener);
+                break;
+            case OKHTTP:
+                httpRequestTest = createOkhttpClient(settings, apiKey, apiSecret, listener);
+                break;
+            case JAVA:
+                httpRequestTest = createJavaClient(settings, apiKey, apiSecret, listener);
+                break;
+            case APACHE:
+                httpRequestTest = createApacheClient(settings, apiKey, apiSecret, listener);
+                break;
+            case OKHTTP_VT:
+                httpRequestTest = new OkhttpBlockingHttpClient(settings, createOkhttpRequests(settings, apiKey, apiSecret), listener);
+                break;
+            case JAVA_VT:
+                httpRequestTest = new JavaBlockingHttpClient(settings, createJavaRequests(settings, apiKey, apiSecret), listener);
+                break;
+            case APACHE_VT:
+                httpRequestTest = new ApacheBlockingHttpClient(settings, createApacheClassicRequests(settings, apiKey, apiSecret), listener);
+                break;
+            default:
+                httpRequestTest = createAhcClient(settings, apiKey, apiSecret, listener);
+        }
+        return httpRequestTest;
+    }
+
+    public static JavaHttpClient createJavaClient(ClientSettings settings,
+                                                  String apiKey, String apiSecret,
+                                                  ResponseListener listener) throws Exception {
+        final JavaHttpClient.JavaResponseHandler responseHandler = new JavaHttpClient.JavaResponseHandler(listener);
 
-        final JavaHttpClient.JavaResponseHandler responseHandler = new JavaHttpClient.JavaResponseHandler(latch, logger);
+        return new JavaHttpClient(settings, createJavaRequests(settings, apiKey, apiSecret), responseHandler);
+    }
 
-        return new JavaHttpClient(request, responseHandler);
+    private static Supplier<HttpRequest> createJavaRequests(ClientSettings settings,
+                                                            String apiKey, String apiSecret) throws Exception {
+        final KrakenfutSigner signer = new KrakenfutSigner(apiSecret);
+        final OrderEncoder encoder = createOrderEncoder(settings);
+        final URI[] uris = Arrays.stream(endpointUrls(settings)).map(url -> url == null ? null : URI.create(url))
+                .toArray(URI[]::new);
+
+        return () -> {
+            final Endpoint endpoint = WorkloadWebClient.currentEndpoint();
+            final HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .uri(uris[endpoint.ordinal()])
+                    .setHeader("APIKey", apiKey);
+            final KrakenfutSigner.Signature signature;
+            if (endpoint.isPost()) {
+                final OrderEncoder.Body body = encoder.encode(endpoint);
+                signature = signer.sign(body.getBytes(), 0, body.getLength(), endpoint.getPresign());
+                builder.setHeader("Content-Type", FORM)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(Arrays.copyOf(body.getBytes(), body.getLength())));
+            } else {
+                signature = signer.sign(endpoint.getPresign());
+                builder.GET();
+            }
+            return builder
+                    .setHeader("Nonce", signature.nonceToString())
+                    .setHeader("Authent", signature.authentToString())
+                    .build();
+        };
     }
 
-    public static OkhttpHttpClient createOkhttpClient(int ioThreadCount,
+    public static OkhttpHttpClient createOkhttpClient(ClientSettings settings,
                                                       String apiKey, String apiSecret,
-                                                      CountDownLatch latch, Log logger) throws Exception {
-        final String signature = calculateSignature(apiSecret, BALANCE_PRESIGN);
-
-        final Request request = new Request.Builder()
-                .url(BALANCE_URL)
-                .method("GET", null)
-                .header("APIKey", apiKey)
-                .header("Authent", signature)
-                .build();
+                                                      ResponseListener listener) throws Exception {
+        final OkhttpHttpClient.ResponseHandler responseHandler = new OkhttpHttpClient.ResponseHandler(listener);
 
-        final OkhttpHttpClient.ResponseCallback callback = new OkhttpHttpClient.ResponseCallback(latch, logger);
+        return new OkhttpHttpClient(settings, createOkhttpRequests(settings, apiKey, apiSecret), responseHandler);
+    }
 
-        return new OkhttpHttpClient(request, callback);
+    private static Supplier<Request> createOkhttpRequests(ClientSettings settings,
+                                                          String apiKey, String apiSecret) throws Exception {
+        final KrakenfutSigner signer = new KrakenfutSigner(apiSecret);
+        final OrderEncoder encoder = createOrderEncoder(settings);
+
+        final String[] urls = endpointUrls(settings);
+        final Request[] requests = new Request[urls.length];
+        for (Endpoint endpoint : Endpoint.values()) {
+            if (urls[endpoint.ordinal()] != null) {
+                requests[endpoint.ordinal()] = new Request.Builder()
+                        .url(urls[endpoint.ordinal()])
+                        .method("GET", null)
+                        .header("APIKey", apiKey)
+                        .build();
+            }
+        }
+
+        return () -> {
+            final Endpoint endpoint = WorkloadWebClient.currentEndpoint();
+            final Request.Builder builder = requests[endpoint.ordinal()].newBuilder();
+            final KrakenfutSigner.Signature signature;
+            if (endpoint.isPost()) {
+                final OrderEncoder.Body body = encoder.encode(endpoint);
+                signature = signer.sign(body.getBytes(), 0, body.getLength(), endpoint.getPresign());
+                builder.post(RequestBody.create(Arrays.copyOf(body.getBytes(), body.getLength()), FORM_MEDIA_TYPE));
+            } else {
+                signature = signer.sign(endpoint.getPresign());
+            }
+            return builder
+                    .header("Nonce", signature.nonceToString())
+                    .header("Authent", signature.authentToString())
+                    .build();
+        };
     }
 
-    public static AhcHttpClient createAhcClient(int ioThreadCount, boolean useNativeTransport,
+    public static AhcHttpClient createAhcClient(ClientSettings settings,
                                                 String apiKey, String apiSecret,
-                                                CountDownLatch latch, Log logger) throws Exception {
-        final String signature = calculateSignature(apiSecret, BALANCE_PRESIGN);
-
-        final RequestBuilder request = new RequestBuilder("GET")
-                .setUrl(BALANCE_URL)
-                .setHeader("APIKey", apiKey)
-                .setHeader("Authent", signature);
-
-        final BiFunction<Response, Throwable, Response> responseHandler =
-                new AhcHttpClient.AhcResponseHandler(latch, logger);
-
-        return new AhcHttpClient(ioThreadCount, useNativeTransport, request, responseHandler);
+                                                ResponseListener listener) throws Exception {
+        if (settings.getProtocol() != HttpProtocol.HTTP_1_1) {
+            throw new UnsupportedOperationException("AsyncHttpClient supports HTTP/1.1 only");
+        }
+
+        final KrakenfutSigner signer = new KrakenfutSigner(apiSecret);
+        final OrderEncoder encoder = createOrderEncoder(settings);
+
+        final String[] urls = endpointUrls(settings);
+        final org.asynchttpclient.Request[] requests = new org.asynchttpclient.Request[urls.length];
+        for (Endpoint endpoint : Endpoint.values()) {
+            if (urls[endpoint.ordinal()] != null) {
+                final RequestBuilder builder = new RequestBuilder(endpoint.getMethod())
+                        .setUrl(urls[endpoint.ordinal()])
+                        .setHeader("APIKey", apiKey);
+                if (endpoint.isPost()) {
+                    builder.setHeader("Content-Type", FORM);
+                }
+                requests[endpoint.ordinal()] = builder.build();
+            }
+        }
+
+        final AhcHttpClient.AhcResponseHandler responseHandler =
+                new AhcHttpClient.AhcResponseHandler(listener);
+
+        return new AhcHttpClient(settings, () -> {
+            final Endpoint endpoint = WorkloadWebClient.currentEndpoint();
+            final RequestBuilder builder = requests[endpoint.ordinal()].toBuilder();
+            final KrakenfutSigner.Signature signature;
+            if (endpoint.isPost()) {
+                final OrderEncoder.Body body = encoder.encode(endpoint);
+                signature = signer.sign(body.getBytes(), 0, body.getLength(), endpoint.getPresign());
+                builder.setBody(Arrays.copyOf(body.getBytes(), body.getLength()));
+            } else {
+                signature = signer.sign(endpoint.getPresign());
+            }
+            return builder
+                    .setHeader("Nonce", signature.nonceToString())
+                    .setHeader("Authent", signature.authentToString())
+                    .build();
+        }, responseHandler);
     }
 
-    public static NettyHttpClient createNettyClient(int ioThreadCount, boolean useNativeTransport,
-                                                    String apiKey, String apiSecret,
-                                                    CountDownLatch latch, Log logger) throws Exception {
-        final URI uri = new URI(BALANCE_URL);
-        final String host = uri.getHost();
+    public static WebClient createNettyClient(ClientSettings settings,
+                                              String apiKey, String apiSecret,
+                                              ResponseListener listener) throws Exception {
+        final URI uri = new URI(settings.getBalanceUrl());
+        final String host = uri.getRawAuthority();
 
-        final String signature = calculateSignature(apiSecret, BALANCE_PRESIGN);
+        final KrakenfutSigner signer = new KrakenfutSigner(apiSecret);
+        final OrderEncoder encoder = createOrderEncoder(settings);
+        final String[] urls = endpointUrls(settings);
 
-        final DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri.getRawPath(), Unpooled.EMPTY_BUFFER);
-        request.setUri(BALANCE_URL)
-                .headers()
+        // copied by every request
+        final HttpHeaders headers = new DefaultHttpHeaders()
                 .set("APIKey", apiKey)
-                .set("Authent", signature)
                 .set(HttpHeaderNames.HOST, host)
                 .set(HttpHeaderNames.USER_AGENT, "AHC/2.1")
                 .set(HttpHeaderNames.ACCEPT, "*/*");
 
-        final NettyHttpClient.HttpChannelInboundHandler responseHandler =
-                new NettyHttpClient.HttpChannelInboundHandler(latch, logger);
-
-        return new NettyHttpClient(ioThreadCount, useNativeTransport, request, responseHandler);
-    }
-
-
-    public static ApacheHttpClient createApacheClient(String apiKey, String apiSecret,
-                                                      CountDownLatch latch, Log logger) throws Exception {
-        final String signature = calculateSignature(apiSecret, BALANCE_PRESIGN);
-
-        final SimpleHttpRequest request = SimpleRequestBuilder.create("GET")
-                .setUri(BALANCE_URL)
-                .addHeader("APIKey", apiKey)
-                .addHeader("Authent", signature)
+        if (settings.getProtocol() == HttpProtocol.H2) {
+            final Supplier<io.netty.handler.codec.http.HttpRequest> requests = () -> {
+                final Endpoint endpoint = WorkloadWebClient.currentEndpoint();
+                final String url = urls[endpoint.ordinal()];
+                final KrakenfutSigner.Signature signature;
+                final DefaultFullHttpRequest request;
+                if (endpoint.isPost()) {
+                    final OrderEncoder.Body body = encoder.encode(endpoint);
+                    signature = signer.sign(body.getBytes(), 0, body.getLength(), endpoint.getPresign());
+                    final ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer(body.getLength())
+                            .writeBytes(body.getBytes(), 0, body.getLength());
+                    request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST,
+                            url, content, headers.copy(), EmptyHttpHeaders.INSTANCE);
+                    request.headers()
+                            .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_X_WWW_FORM_URLENCODED)
+                            .setInt(HttpHeaderNames.CONTENT_LENGTH, body.getLength());
+                } else {
+                    signature = signer.sign(endpoint.getPresign());
+                    request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                            url, Unpooled.EMPTY_BUFFER, headers.copy(), EmptyHttpHeaders.INSTANCE);
+                }
+                request.headers()
+                        .set(NONCE, new AsciiString(signature.getNonce(), signature.getNonceOffset(), signature.getNonceLength(), true))
+                        .set(AUTHENT, new AsciiString(signature.getAuthent(), true));
+                return request;
+            };
+            return new NettyHttp2Client(settings, requests, listener);
+        }
+
+        if (settings.getWorkload() != null) {
+            return createNettyWorkloadClient(settings, apiKey, host, signer, encoder, urls, listener);
+        }
+
+        final String path = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + '?' + uri.getRawQuery();
+        final HttpRequestTemplate template = HttpRequestTemplate.builder(HttpMethod.GET, path)
+                .header(HttpHeaderNames.HOST, host)
+                .header("APIKey", apiKey)
+                .header(HttpHeaderNames.USER_AGENT, "AHC/2.1")
+                .header(HttpHeaderNames.ACCEPT, "*/*")
+                .slot(NONCE, NONCE_WIDTH)
+                .slot(AUTHENT, KrakenfutSigner.AUTHENT_LENGTH)
                 .build();
 
-        final FutureCallback<SimpleHttpResponse> responseHandler =
-                new ApacheHttpClient.ApacheResponseHandler(latch, logger);
-
-        return new ApacheHttpClient(request, responseHandler);
+        final Supplier<ByteBuf> templateRequests = () -> {
+            final KrakenfutSigner.Signature signature = signer.sign(BALANCE_PRESIGN);
+            final ByteBuf request = template.newDynamicPart(PooledByteBufAllocator.DEFAULT);
+            template.setSlot(request, 0, signature.getNonce(), signature.getNonceOffset(), signature.getNonceLength());
+            template.setSlot(request, 1, signature.getAuthent(), 0, KrakenfutSigner.AUTHENT_LENGTH);
+            return request;
+        };
+        return new NettyHttpClient(settings, template, templateRequests, listener);
     }
 
-    private static String calculateSignature(String apiSecret, byte[] bytes) throws Exception {
-        final Mac mac = createKrakenfutMac(apiSecret, "HmacSHA512");
-        final MessageDigest messageDigest = createMessageDigest();
-        messageDigest.update(bytes);
-        return calculateBase64Signature(mac, messageDigest.digest());
+    /**
+     * HTTP/1.1 client of a mixed workload: a template per endpoint, the body is encoded into the pooled request
+     * buffer after the headers and its length into a {@code Content-Length} slot.
+     */
+    private static WebClient createNettyWorkloadClient(ClientSettings settings, String apiKey, String host,
+                                                       KrakenfutSigner signer, OrderEncoder encoder, String[] urls,
+                                                       ResponseListener listener) throws Exception {
+        final HttpRequestTemplate[] templates = new HttpRequestTemplate[urls.length];
+        for (Endpoint endpoint : Endpoint.values()) {
+            final URI uri = new URI(urls[endpoint.ordinal()]);
+            final String path = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + '?' + uri.getRawQuery();
+            final HttpRequestTemplate.Builder builder = HttpRequestTemplate.builder(HttpMethod.valueOf(endpoint.getMethod()), path)
+                    .header(HttpHeaderNames.HOST, host)
+                    .header("APIKey", apiKey)
+                    .header(HttpHeaderNames.USER_AGENT, "AHC/2.1")
+                    .header(HttpHeaderNames.ACCEPT, "*/*");
+            if (endpoint.isPost()) {
+                builder.header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_X_WWW_FORM_URLENCODED)
+                        .slot(HttpHeaderNames.CONTENT_LENGTH, CONTENT_LENGTH_WIDTH);
+            }
+            templates[endpoint.ordinal()] = builder
+                    .slot(NONCE, NONCE_WIDTH)
+                    .slot(AUTHENT, KrakenfutSigner.AUTHENT_LENGTH)
+                    .build();
+        }
+
+        final Supplier<ByteBuf> requests = () -> {
+            final Endpoint endpoint = WorkloadWebClient.currentEndpoint();
+            final HttpRequestTemplate template = templates[endpoint.ordinal()];
+            if (!endpoint.isPost()) {
+                final KrakenfutSigner.Signature signature = signer.sign(endpoint.getPresign());
+                final ByteBuf request = template.newRequest(PooledByteBufAllocator.DEFAULT, 0);
+                template.setRequestSlot(request, 0, signature.getNonce(), signature.getNonceOffset(), signature.getNonceLength());
+                template.setRequestSlot(request, 1, signature.getAuthent(), 0, KrakenfutSigner.AUTHENT_LENGTH);
+                return request;
+            }
+
+            final OrderEncoder.Body body = encoder.encode(endpoint);
+            final KrakenfutSigner.Signature signature = signer.sign(body.getBytes(), 0, body.getLength(), endpoint.getPresign());
+            final ByteBuf request = template.newRequest(PooledByteBufAllocator.DEFAULT, body.getLength());
+            template.setRequestSlot(request, 0, body.getContentLength(), body.getContentLengthOffset(), body.getContentLengthDigits());
+            template.setRequestSlot(request, 1, signature.getNonce(), signature.getNonceOffset(), signature.getNonceLength());
+            template.setRequestSlot(request, 2, signature.getAuthent(), 0, KrakenfutSigner.AUTHENT_LENGTH);
+            return request.writeBytes(body.getBytes(), 0, body.getLength());
+        };
+        return new NettyHttpClient(settings, templates, requests, listener);
     }
 
-    private static MessageDigest createMessageDigest() throws NoSuchAlgorithmException {
-        return MessageDigest.getInstance("SHA-256");
+    public static ApacheHttpClient createApacheClient(ClientSettings settings,
+                                                      String apiKey, String apiSecret,
+                                                      ResponseListener listener) throws Exception {
+        final KrakenfutSigner signer = new KrakenfutSigner(apiSecret);
+        final OrderEncoder encoder = createOrderEncoder(settings);
+        final URI[] uris = Arrays.stream(endpointUrls(settings)).map(url -> url == null ? null : URI.create(url))
+                .toArray(URI[]::new);
+
+        final ApacheHttpClient.ApacheResponseHandler responseHandler =
+                new ApacheHttpClient.ApacheResponseHandler(listener);
+
+        return new ApacheHttpClient(settings, () -> {
+            final Endpoint endpoint = WorkloadWebClient.currentEndpoint();
+            final SimpleRequestBuilder builder = SimpleRequestBuilder.create(endpoint.getMethod())
+                    .setUri(uris[endpoint.ordinal()])
+                    .addHeader("APIKey", apiKey);
+            final KrakenfutSigner.Signature signature;
+            if (endpoint.isPost()) {
+                final OrderEncoder.Body body = encoder.encode(endpoint);
+                signature = signer.sign(body.getBytes(), 0, body.getLength(), endpoint.getPresign());
+                builder.setBody(Arrays.copyOf(body.getBytes(), body.getLength()), ContentType.APPLICATION_FORM_URLENCODED);
+            } else {
+                signature = signer.sign(endpoint.getPresign());
+            }
+            return builder
+                    .addHeader("Nonce", signature.nonceToString())
+                    .addHeader("Authent", signature.authentToString())
+                    .build();
+        }, responseHandler);
     }
 
-    private static Mac createKrakenfutMac(String apiSecret, String algorithm) throws Exception {
-        return createMac(Base64.getDecoder().decode(apiSecret), algorithm);
+    private static Supplier<ClassicHttpRequest> createApacheClassicRequests(ClientSettings settings,
+                                                                            String apiKey, String apiSecret) throws Exception {
+        final KrakenfutSigner signer = new KrakenfutSigner(apiSecret);
+        final OrderEncoder encoder = createOrderEncoder(settings);
+        final URI[] uris = Arrays.stream(endpointUrls(settings)).map(url -> url == null ? null : URI.create(url))
+                .toArray(URI[]::new);
+
+        return () -> {
+            final Endpoint endpoint = WorkloadWebClient.currentEndpoint();
+            final ClassicRequestBuilder builder = ClassicRequestBuilder.create(endpoint.getMethod())
+                    .setUri(uris[endpoint.ordinal()])
+                    .addHeader("APIKey", apiKey);
+            final KrakenfutSigner.Signature signature;
+            if (endpoint.isPost()) {
+                final OrderEncoder.Body body = encoder.encode(endpoint);
+                signature = signer.sign(body.getBytes(), 0, body.getLength(), endpoint.getPresign());
+                builder.setEntity(new ByteArrayEntity(Arrays.copyOf(body.getBytes(), body.getLength()),
+                        ContentType.APPLICATION_FORM_URLENCODED));
+            } else {
+                signature = signer.sign(endpoint.getPresign());
+            }
+            return builder
+                    .addHeader("Nonce", signature.nonceToString())
+                    .addHeader("Authent", signature.authentToString())
+                    .build();
+        };
     }
 
-    private static String calculateBase64Signature(Mac mac, byte[] bytes) {
-        mac.update(bytes);
-        byte[] result = mac.doFinal(); // Allocation here and we can't avoid for now
-        return Base64.getEncoder().encodeToString(result);
+    /**
+     * Returns the URLs of the endpoints by ordinal, only the balance URL is known without a workload.
+     */
+    private static String[] endpointUrls(ClientSettings settings) {
+        final Endpoint[] endpoints = Endpoint.values();
+        final String[] urls = new String[endpoints.length];
+        urls[Endpoint.ACCOUNTS.ordinal()] = settings.getBalanceUrl();
+        if (settings.getWorkload() != null) {
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint != Endpoint.ACCOUNTS) {
+                    urls[endpoint.ordinal()] = endpoint.url(settings.getBalanceUrl());
+                }
+            }
+        }
+        return urls;
     }
 
-    private static Mac createMac(byte[] secret, String algorithm) throws InvalidKeyException, NoSuchAlgorithmException {
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secret, algorithm);
-        Mac mac = Mac.getInstance(secretKeySpec.getAlgorithm());
-        mac.init(secretKeySpec);
-        return mac;
+    private static OrderEncoder createOrderEncoder(ClientSettings settings) {
+        return settings.getWorkload() != null ? settings.getWorkload().newOrderEncoder() : null;
     }
 
 }
@@ -0,0 +1,214 @@
+package deltix.web.client;
+
+import com.epam.deltix.gflog.api.Log;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: requests are sent on a fixed nanosecond schedule whether responses come back or not,
+ * so queueing delay of a client which falls behind shows up in the latency instead of slowing the load down.
+ * <p>
+ * Latency is measured either from the intended send time of the schedule or from the actual send time with
+ * HdrHistogram expected-interval correction, see {@link ResponseStats#setExpectedInterval(long)}.
+ */
+public final class OpenLoopLoadGenerator {
+    private static final long SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final WebClient client;
+    private final ResponseStats stats;
+    private final boolean measureFromIntendedTime;
+    private final Log logger;
+    private final Histogram sendLagHistogram = new Histogram(ResponseStats.MAX_LATENCY, 3);
+
+    public OpenLoopLoadGenerator(WebClient client, ResponseStats stats, boolean measureFromIntendedTime, Log logger) {
+        this.client = client;
+        this.stats = stats;
+        this.measureFromIntendedTime = measureFromIntendedTime;
+        this.logger = logger;
+    }
+
+    /**
+     * Sends requests at the target rate for the given duration and waits for all responses.
+     */
+    public StepResult run(double rate, long duration, TimeUnit unit) throws InterruptedException {
+        return run(rate, unit.toNanos(duration), 0, null);
+    }
+
+    /**
+     * Sends requests at the target rate for the given duration like {@link #run(double, long, TimeUnit)}, and passes
+     * the latencies recorded in every report interval to the listener on the sending thread. A slow listener delays
+     * the following sends, which the send lag shows. The result holds the latencies of the whole run.
+     */
+    public StepResult soak(double rate, long duration, long reportInterval, TimeUnit unit,
+                           IntervalListener listener) throws InterruptedException {
+        return run(rate, unit.toNanos(duration), Math.max(1, unit.toNanos(reportInterval)), listener);
+    }
+
+    private StepResult run(double rate, long duration, long reportInterval, IntervalListener listener) throws InterruptedException {
+        final long interval = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / rate));
+        final long requestCount = Math.max(1, duration / interval);
+
+        stats.setExpectedInterval(measureFromIntendedTime ? 0 : interval);
+        sendLagHistogram.reset();
+        final Histogram total = listener != null ? new Histogram(ResponseStats.MAX_LATENCY, 3) : null;
+
+        // late responses of a timed out step are not counted in this one
+        final long startTime = System.nanoTime();
+        stats.startStep(startTime);
+        long reportTime = startTime + reportInterval;
+        for (long i = 0; i < requestCount; i++) {
+            final long intendedTime = startTime + i * interval;
+            final long sendTime = waitUntil(intendedTime);
+
+            client.executeRequest(measureFromIntendedTime ? intendedTime : sendTime);
+            sendLagHistogram.recordValue(Math.min(sendTime - intendedTime, ResponseStats.MAX_LATENCY));
+
+            if (listener != null && sendTime - reportTime >= 0) {
+                report(listener, total);
+                reportTime += reportInterval;
+            }
+        }
+        final long sendDuration = System.nanoTime() - startTime;
+
+        final boolean completed = stats.awaitStepCompletions(requestCount, 1, TimeUnit.MINUTES);
+        final long totalDuration = System.nanoTime() - startTime;
+
+        final Histogram latency;
+        if (listener != null) {
+            report(listener, total);
+            latency = total;
+        } else {
+            latency = stats.getIntervalHistogram();
+        }
+        return new StepResult(rate, requestCount, sendDuration, totalDuration, completed,
+                stats.getFailureCount(), latency, sendLagHistogram.copy());
+    }
+
+    private void report(IntervalListener listener, Histogram total) {
+        final Histogram interval = stats.getIntervalHistogram();
+        total.add(interval);
+        listener.onInterval(interval);
+    }
+
+    /**
+     * Steps the rate up until p99 latency breaches the SLO, a request fails or the max rate is reached.
+     * The last step within the SLO is the saturation point of the client.
+     */
+    public List<StepResult> ramp(double startRate, double rateStep, double maxRate,
+                                 long stepDuration, TimeUnit unit, long sloP99) throws InterruptedException {
+        final List<StepResult> results = new ArrayList<>();
+        for (double rate = startRate; rate <= maxRate; rate += rateStep) {
+            final StepResult result = run(rate, stepDuration, unit);
+            results.add(result);
+            logger.info("Ramp step: %s").with(result);
+
+            if (!result.isWithinSlo(sloP99)) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private static long waitUntil(long deadline) {
+        long now = System.nanoTime();
+        while (now < deadline) {
+            final long remaining = deadline - now;
+            if (remaining > SPIN_THRESHOLD) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+            } else {
+                Thread.onSpinWait();
+            }
+            now = System.nanoTime();
+        }
+        return now;
+    }
+
+    /**
+     * Receives the latencies of a soak interval.
+     */
+    public interface IntervalListener {
+        void onInterval(Histogram latency);
+    }
+
+    public static final class StepResult {
+        private final double targetRate;
+        private final long requestCount;
+        private final long sendDuration;
+        private final long totalDuration;
+        private final boolean completed;
+        private final long failureCount;
+        private final Histogram latency;
+        private final Histogram sendLag;
+
+        StepResult(double targetRate, long requestCount, long sendDuration, long totalDuration, boolean completed,
+                   long failureCount, Histogram latency, Histogram sendLag) {
+            this.targetRate = targetRate;
+            this.requestCount = requestCount;
+            this.sendDuration = sendDuration;
+            this.totalDuration = totalDuration;
+            this.completed = completed;
+            this.failureCount = failureCount;
+            this.latency = latency;
+            this.sendLag = sendLag;
+        }
+
+        public double getTargetRate() {
+            return targetRate;
+        }
+
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        public double getSendRate() {
+            return requestCount * 1e9 / sendDuration;
+        }
+
+        public double getThroughput() {
+            return (requestCount - failureCount) * 1e9 / totalDuration;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        public Histogram getSendLag() {
+            return sendLag;
+        }
+
+        public boolean isWithinSlo(long sloP99) {
+            return completed && failureCount == 0 && latency.getValueAtPercentile(99.0) <= sloP99;
+        }
+
+        public static String header() {
+            return String.format("%12s %12s %12s %8s %10s %10s %10s %10s %10s %12s",
+                    "Target/s", "Sent/s", "Done/s", "Failed", "p50 us", "p90 us", "p99 us", "p99.9 us", "Max us", "Lag p99 us");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,12.0f %,12.0f %,12.0f %8d %,10.1f %,10.1f %,10.1f %,10.1f %,10.1f %,12.1f%s",
+                    targetRate, getSendRate(), getThroughput(), failureCount,
+                    micros(latency.getValueAtPercentile(50)), micros(latency.getValueAtPercentile(90)),
+                    micros(latency.getValueAtPercentile(99)), micros(latency.getValueAtPercentile(99.9)),
+                    micros(latency.getMaxValue()), micros(sendLag.getValueAtPercentile(99)),
+                    completed ? "" : " (responses lost)");
+        }
+
+        private static double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+    }
+}
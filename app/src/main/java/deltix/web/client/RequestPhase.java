@@ -0,0 +1,41 @@
+package deltix.web.client;
+
+/**
+ * Phases of a request reported to {@link ResponseListener#onPhase} when phase timing is enabled,
+ * see {@link ClientSettings#isPhaseTiming()}. Clients report the phases their hooks expose.
+ */
+public enum RequestPhase {
+    /**
+     * From the start time to the write of the request: waiting for a dispatcher thread, a connection
+     * (including the setup of a new one) or room in the pipeline.
+     */
+    QUEUE,
+    /**
+     * Host name resolution of a new connection.
+     */
+    DNS,
+    /**
+     * TCP connect of a new connection.
+     */
+    CONNECT,
+    /**
+     * TLS handshake of a new connection.
+     */
+    TLS,
+    /**
+     * Write of the request to the connection.
+     */
+    WRITE,
+    /**
+     * From the written request to the first byte of the response.
+     */
+    SERVER_WAIT,
+    /**
+     * From the start time to the first byte of the response (TTFB).
+     */
+    FIRST_BYTE,
+    /**
+     * From the first byte of the response to the end of the body.
+     */
+    BODY
+}
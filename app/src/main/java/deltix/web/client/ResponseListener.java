@@ -0,0 +1,28 @@
+package deltix.web.client;
+
+/**
+ * Receives request completions from the response handlers of {@link WebClient} implementations.
+ * Methods are invoked on the IO threads of the client.
+ */
+public interface ResponseListener {
+
+    void onResponse(long startTime, int statusCode);
+
+    void onFailure(long startTime, Throwable error);
+
+    /**
+     * Duration of a phase of a request in ns, reported only by clients with phase timing enabled.
+     * Phases of a new connection are reported by the request which opened it (or by the connection of a pool).
+     */
+    default void onPhase(RequestPhase phase, long duration) {
+    }
+
+    /**
+     * Endpoint of a request of a mixed workload, reported right before the completion of the request by the listener
+     * {@link deltix.web.client.workload.WorkloadWebClient} sends the request with.
+     *
+     * @param failed true if the request completes with {@link #onFailure}
+     */
+    default void onEndpoint(Endpoint endpoint, long startTime, boolean failed) {
+    }
+}
@@ -0,0 +1,216 @@
+package deltix.web.client;
+
+import com.epam.deltix.gflog.api.Log;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records request-to-response latency of successful responses and counts completions,
+ * the phase durations reported by clients with phase timing and the latency per endpoint of a mixed workload.
+ * <p>
+ * A load generator starts every step with {@link #startStep(long)}: late completions of requests started before
+ * the step are neither recorded nor counted, so they don't complete the requests of the step.
+ */
+public final class ResponseStats implements ResponseListener {
+    public static final long MAX_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+    private final Log logger;
+    private final Recorder recorder = new Recorder(MAX_LATENCY, 3);
+    private final Recorder[] phases = new Recorder[RequestPhase.values().length];
+    private final Recorder[] endpoints = new Recorder[Endpoint.values().length];
+    private final LongAdder[] endpointFailures = new LongAdder[Endpoint.values().length];
+    private final LongAdder completions = new LongAdder();
+    private final LongAdder stepCompletions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private long expectedInterval;
+    private volatile long stepStartTime = System.nanoTime();
+
+    public ResponseStats(Log logger) {
+        this.logger = logger;
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new Recorder(MAX_LATENCY, 3);
+        }
+        for (int i = 0; i < endpoints.length; i++) {
+            endpoints[i] = new Recorder(MAX_LATENCY, 3);
+            endpointFailures[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Enables HdrHistogram coordinated omission correction: a latency above the expected interval
+     * between requests also records the values of the requests which could not be sent in the meantime.
+     * Must be set before requests are sent, 0 disables the correction.
+     */
+    public void setExpectedInterval(long expectedInterval) {
+        this.expectedInterval = expectedInterval;
+    }
+
+    /**
+     * Starts a step with requests sent from the start time on, discards the recorded values like {@link #reset()}.
+     */
+    public void startStep(long stepStartTime) {
+        this.stepStartTime = stepStartTime;
+        reset();
+        stepCompletions.reset();
+    }
+
+    @Override
+    public void onResponse(long startTime, int statusCode) {
+        if (isLate(startTime)) {
+            return;
+        }
+
+        final long latency = Math.min(System.nanoTime() - startTime, MAX_LATENCY);
+        if (expectedInterval > 0) {
+            recorder.recordValueWithExpectedInterval(latency, expectedInterval);
+        } else {
+            recorder.recordValue(latency);
+        }
+        completions.increment();
+        stepCompletions.increment();
+
+        if (statusCode != 200) {
+            logger.error("Response is not successful: %s").with(statusCode);
+        }
+    }
+
+    @Override
+    public void onFailure(long startTime, Throwable error) {
+        if (isLate(startTime)) {
+            return;
+        }
+
+        failures.increment();
+        completions.increment();
+        stepCompletions.increment();
+
+        // rejections of a limiter are counted by the limiter
+        if (!(error instanceof RejectedExecutionException)) {
+            logger.error().append(error).commit();
+        }
+    }
+
+    @Override
+    public void onPhase(RequestPhase phase, long duration) {
+        phases[phase.ordinal()].recordValue(Math.max(0, Math.min(duration, MAX_LATENCY)));
+    }
+
+    @Override
+    public void onEndpoint(Endpoint endpoint, long startTime, boolean failed) {
+        if (isLate(startTime)) {
+            return;
+        }
+        if (failed) {
+            endpointFailures[endpoint.ordinal()].increment();
+        } else {
+            endpoints[endpoint.ordinal()].recordValue(Math.min(System.nanoTime() - startTime, MAX_LATENCY));
+        }
+    }
+
+    /**
+     * Returns the number of completed requests (successful or not) since the creation.
+     */
+    public long getCompletedCount() {
+        return completions.sum();
+    }
+
+    /**
+     * Waits until the given number of requests is completed.
+     *
+     * @return true if all requests are completed, false on timeout
+     */
+    public boolean awaitCompletions(long count, long timeout, TimeUnit unit) throws InterruptedException {
+        return await(completions, count, timeout, unit);
+    }
+
+    /**
+     * Waits until the given number of requests of the step is completed.
+     *
+     * @return true if all requests are completed, false on timeout
+     */
+    public boolean awaitStepCompletions(long count, long timeout, TimeUnit unit) throws InterruptedException {
+        return await(stepCompletions, count, timeout, unit);
+    }
+
+    private static boolean await(LongAdder completions, long count, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (completions.sum() < count) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns latencies recorded since the previous call and starts a new interval.
+     */
+    public Histogram getIntervalHistogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    /**
+     * Returns phase durations recorded since the previous call, phases without values are omitted.
+     */
+    public Map<RequestPhase, Histogram> getPhaseHistograms() {
+        final Map<RequestPhase, Histogram> result = new EnumMap<>(RequestPhase.class);
+        for (RequestPhase phase : RequestPhase.values()) {
+            final Histogram histogram = phases[phase.ordinal()].getIntervalHistogram();
+            if (histogram.getTotalCount() > 0) {
+                result.put(phase, histogram);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns latencies per endpoint recorded since the previous call, endpoints without responses are omitted.
+     */
+    public Map<Endpoint, Histogram> getEndpointHistograms() {
+        final Map<Endpoint, Histogram> result = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            final Histogram histogram = endpoints[endpoint.ordinal()].getIntervalHistogram();
+            if (histogram.getTotalCount() > 0) {
+                result.put(endpoint, histogram);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the failed requests of the endpoint since the reset.
+     */
+    public long getEndpointFailureCount(Endpoint endpoint) {
+        return endpointFailures[endpoint.ordinal()].sum();
+    }
+
+    private boolean isLate(long startTime) {
+        return startTime - stepStartTime < 0;
+    }
+
+    /**
+     * Discards recorded latencies, phases and failures, the completion count is kept.
+     */
+    public void reset() {
+        recorder.reset();
+        for (Recorder phase : phases) {
+            phase.reset();
+        }
+        for (int i = 0; i < endpoints.length; i++) {
+            endpoints[i].reset();
+            endpointFailures[i].reset();
+        }
+        failures.reset();
+    }
+}
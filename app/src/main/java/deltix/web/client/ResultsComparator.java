@@ -0,0 +1,158 @@
+package deltix.web.client;
+
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares the latency logs of two runs written by {@link ResultsWriter}, matching results by name.
+ * <p>
+ * A percentile is a regression when the candidate is worse by more than the threshold and the confidence
+ * intervals of the percentile do not overlap. The intervals come from the order statistics of the histograms
+ * (normal approximation of the binomial rank), which assumes independent samples, so a threshold is required too.
+ * A bound with a rank beyond the samples is unknown, so small samples give no verdict for the high percentiles.
+ * <p>
+ * Usage: {@code ResultsComparator <baseline run dir> <candidate run dir> [--threshold 5] [--confidence 99]},
+ * the exit code is 1 if there is a regression.
+ */
+public final class ResultsComparator {
+    private static final Log LOG = LogFactory.getLog(ResultsComparator.class);
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final double threshold;
+    private final double z;
+
+    public ResultsComparator(double thresholdPercent, double confidencePercent) {
+        this.threshold = thresholdPercent / 100;
+        this.z = zScore(confidencePercent);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Arguments arguments = Arguments.parse(args);
+        if (arguments.size() < 2) {
+            LOG.error("Usage: ResultsComparator <baseline run dir> <candidate run dir> [--threshold 5] [--confidence 99]");
+            System.exit(2);
+        }
+
+        final ResultsComparator comparator = new ResultsComparator(
+                arguments.getDoubleOption("threshold", 5), arguments.getDoubleOption("confidence", 99));
+
+        final Map<String, Histogram> baseline = readLatencyLog(new File(arguments.get(0)));
+        final Map<String, Histogram> candidate = readLatencyLog(new File(arguments.get(1)));
+
+        final StringBuilder report = new StringBuilder(1024);
+        final int regressions = comparator.compare(baseline, candidate, report);
+        LOG.info("Baseline: %s, Candidate: %s\n%s").with(arguments.get(0)).with(arguments.get(1)).with(report);
+
+        if (regressions > 0) {
+            LOG.error("%s regression(s) found").with(regressions);
+            System.exit(1);
+        }
+        LOG.info("No regressions found");
+    }
+
+    /**
+     * Reads the latency log of a run, intervals with the same tag are merged.
+     */
+    public static Map<String, Histogram> readLatencyLog(File runDirectory) throws FileNotFoundException {
+        final Map<String, Histogram> histograms = new TreeMap<>();
+        final HistogramLogReader reader = new HistogramLogReader(new File(runDirectory, ResultsWriter.LATENCY_LOG));
+        EncodableHistogram interval;
+        while ((interval = reader.nextIntervalHistogram()) != null) {
+            final Histogram histogram = (Histogram) interval;
+            final String tag = histogram.getTag() != null ? histogram.getTag() : "";
+            histograms.computeIfAbsent(tag, key -> new Histogram(ResponseStats.MAX_LATENCY, 3)).add(histogram);
+        }
+        return histograms;
+    }
+
+    /**
+     * Appends the comparison table of the results present in both runs.
+     *
+     * @return the number of regressed percentiles
+     */
+    public int compare(Map<String, Histogram> baseline, Map<String, Histogram> candidate, StringBuilder report) {
+        int regressions = 0;
+        report.append(String.format("%-32s %8s %14s %14s %9s  %s%n", "Name", "Pct", "Baseline us", "Candidate us", "Change", "Verdict"));
+
+        for (Map.Entry<String, Histogram> entry : baseline.entrySet()) {
+            final Histogram base = entry.getValue();
+            final Histogram next = candidate.get(entry.getKey());
+            if (next == null) {
+                report.append(String.format("%-32s missing in candidate%n", entry.getKey()));
+                continue;
+            }
+
+            for (double percentile : PERCENTILES) {
+                final long baseValue = base.getValueAtPercentile(percentile);
+                final long nextValue = next.getValueAtPercentile(percentile);
+                final double change = baseValue > 0 ? (double) (nextValue - baseValue) / baseValue : 0;
+
+                final String verdict;
+                if (change > threshold && lowerBound(next, percentile) > upperBound(base, percentile)) {
+                    verdict = "REGRESSION";
+                    regressions++;
+                } else if (change < -threshold && upperBound(next, percentile) < lowerBound(base, percentile)) {
+                    verdict = "improvement";
+                } else {
+                    verdict = "";
+                }
+
+                report.append(String.format("%-32s %8s %,14.1f %,14.1f %+8.1f%%  %s%n",
+                        entry.getKey(), percentile, micros(baseValue), micros(nextValue), change * 100, verdict));
+            }
+        }
+
+        for (String name : candidate.keySet()) {
+            if (!baseline.containsKey(name)) {
+                report.append(String.format("%-32s missing in baseline%n", name));
+            }
+        }
+        return regressions;
+    }
+
+    private long lowerBound(Histogram histogram, double percentile) {
+        final double rank = boundRank(histogram, percentile, -z);
+        return rank < 1 ? 0 : histogram.getValueAtPercentile(rank / histogram.getTotalCount() * 100);
+    }
+
+    private long upperBound(Histogram histogram, double percentile) {
+        final double rank = boundRank(histogram, percentile, z);
+        final long n = histogram.getTotalCount();
+        return rank > n ? Long.MAX_VALUE : histogram.getValueAtPercentile(rank / n * 100);
+    }
+
+    /**
+     * Rank {@code n * p +- z * sqrt(n * p * (1 - p))} of the bound, a rank below 1 or above n is beyond the samples.
+     */
+    static double boundRank(Histogram histogram, double percentile, double z) {
+        final double n = histogram.getTotalCount();
+        final double p = percentile / 100;
+        return n * p + z * Math.sqrt(n * p * (1 - p));
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    private static double zScore(double confidencePercent) {
+        if (confidencePercent >= 99.9) {
+            return 3.291;
+        }
+        if (confidencePercent >= 99) {
+            return 2.576;
+        }
+        if (confidencePercent >= 95) {
+            return 1.960;
+        }
+        return 1.645;
+    }
+}
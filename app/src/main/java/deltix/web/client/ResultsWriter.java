@@ -0,0 +1,304 @@
+package deltix.web.client;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Machine-readable results of a run in a new directory:
+ * <ul>
+ *     <li>{@code latency.hlog} - HdrHistogram interval log of response latency (ns), one tag per result</li>
+ *     <li>{@code summary.json} - settings, JVM and host info plus a summary of every result</li>
+ *     <li>{@code summary.csv} - one row per result</li>
+ *     <li>{@code soak.csv} - one row per interval of a soak run: latency, GC pauses, memory and connections</li>
+ * </ul>
+ * See {@link ResultsComparator} to compare two runs.
+ */
+public final class ResultsWriter implements Closeable {
+    public static final String LATENCY_LOG = "latency.hlog";
+    public static final String SOAK_LOG = "soak.csv";
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final File directory;
+    private final Map<String, String> settings;
+    private final List<Result> results = new ArrayList<>();
+    private final long startTime = System.currentTimeMillis();
+    private final HistogramLogWriter latencyLog;
+    private final PrintStream latencyLogStream;
+    private PrintStream soakLogStream;
+
+    /**
+     * Creates a run directory with the current time as its name in the parent directory.
+     */
+    public ResultsWriter(File parent, Map<String, String> settings) throws IOException {
+        this.directory = new File(parent, new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(startTime)));
+        this.settings = settings;
+
+        if (!directory.mkdirs()) {
+            throw new IllegalStateException("Can't create results directory: " + directory);
+        }
+
+        latencyLogStream = new PrintStream(new File(directory, LATENCY_LOG), StandardCharsets.US_ASCII);
+        latencyLog = new HistogramLogWriter(latencyLogStream);
+        latencyLog.outputLogFormatVersion();
+        latencyLog.outputStartTime(startTime);
+        latencyLog.setBaseTime(startTime);
+        latencyLog.outputLegend();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes the latency histogram to the interval log and adds the result to the summary.
+     *
+     * @param name       unique name of the result, e.g. the client and protocol plus the step of a sweep
+     * @param throughput completed requests per second, NaN if not measured
+     * @param allocation allocation report, null if not measured
+     */
+    public void record(String name, String mode, long requestCount, long failureCount, double throughput,
+                       Histogram latency, AllocationStats.Report allocation) {
+        final String tag = toTag(name);
+        final Histogram interval = latency.copy();
+        interval.setTag(tag);
+        if (interval.getStartTimeStamp() == Long.MAX_VALUE) {
+            interval.setStartTimeStamp(System.currentTimeMillis());
+            interval.setEndTimeStamp(System.currentTimeMillis());
+        }
+        latencyLog.outputIntervalHistogram(interval);
+        latencyLogStream.flush();
+
+        results.add(new Result(tag, mode, requestCount, failureCount, throughput, latency.copy(), allocation));
+    }
+
+    /**
+     * Writes the latency of a soak interval to the interval log, tagged with the name, and the rest of the sample
+     * to the soak log. The interval is not a result of the summary.
+     */
+    public void recordInterval(String name, SoakMonitor.Sample sample) {
+        final String tag = toTag(name);
+        final Histogram latency = sample.getLatency().copy();
+        latency.setTag(tag);
+        latencyLog.outputIntervalHistogram(latency);
+        latencyLogStream.flush();
+
+        if (soakLogStream == null) {
+            try {
+                soakLogStream = new PrintStream(new File(directory, SOAK_LOG), StandardCharsets.US_ASCII);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            soakLogStream.println("name,timestamp,requests,p50,p99,max,gcCount,gcPauseMs,gcMaxPauseMs," +
+                    "heapUsed,liveHeap,nettyDirectMemory,jdkDirectMemory,connections");
+        }
+        final Histogram interval = sample.getLatency();
+        soakLogStream.append(tag).append(',').append(String.valueOf(sample.getTimestamp()))
+                .append(',').append(String.valueOf(interval.getTotalCount()))
+                .append(',').append(String.valueOf(interval.getValueAtPercentile(50)))
+                .append(',').append(String.valueOf(interval.getValueAtPercentile(99)))
+                .append(',').append(String.valueOf(interval.getMaxValue()))
+                .append(',').append(String.valueOf(sample.getGcCount()))
+                .append(',').append(String.valueOf(sample.getGcPauseTime()))
+                .append(',').append(String.valueOf(sample.getGcMaxPause()))
+                .append(',').append(String.valueOf(sample.getHeapUsed()))
+                .append(',').append(String.valueOf(sample.getLiveHeap()))
+                .append(',').append(String.valueOf(sample.getNettyDirectMemory()))
+                .append(',').append(String.valueOf(sample.getJdkDirectMemory()))
+                .append(',').append(String.valueOf(sample.getConnectionCount()))
+                .append('\n');
+        // a soak run may be killed, every interval is kept
+        soakLogStream.flush();
+    }
+
+    /**
+     * Tags of the interval log can't contain spaces and commas.
+     */
+    public static String toTag(String name) {
+        return name.replaceAll("[\\s,]+", "_");
+    }
+
+    @Override
+    public void close() throws IOException {
+        latencyLogStream.close();
+        if (soakLogStream != null) {
+            soakLogStream.close();
+        }
+        Files.writeString(new File(directory, "summary.json").toPath(), toJson());
+        Files.writeString(new File(directory, "summary.csv").toPath(), toCsv());
+    }
+
+    private String toJson() throws IOException {
+        final StringBuilder json = new StringBuilder(4096).append("{\n");
+        json.append("  \"startTime\": ").append(quote(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date(startTime)))).append(",\n");
+
+        json.append("  \"settings\": {");
+        appendFields(json, settings);
+        json.append("},\n");
+
+        json.append("  \"jvm\": {");
+        appendFields(json, jvmInfo());
+        json.append("},\n");
+
+        json.append("  \"host\": {");
+        appendFields(json, hostInfo());
+        json.append("},\n");
+
+        json.append("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            final Result result = results.get(i);
+            final Histogram latency = result.latency;
+            json.append(i > 0 ? ",\n" : "\n").append("    {")
+                    .append("\"name\": ").append(quote(result.name))
+                    .append(", \"mode\": ").append(quote(result.mode))
+                    .append(", \"requests\": ").append(result.requestCount)
+                    .append(", \"failures\": ").append(result.failureCount)
+                    .append(", \"throughput\": ").append(number(result.throughput))
+                    .append(", \"latencyNs\": {\"count\": ").append(latency.getTotalCount())
+                    .append(", \"min\": ").append(latency.getMinValue())
+                    .append(", \"mean\": ").append(number(latency.getMean()));
+            for (double percentile : PERCENTILES) {
+                json.append(", \"p").append(percentileName(percentile)).append("\": ").append(latency.getValueAtPercentile(percentile));
+            }
+            json.append(", \"max\": ").append(latency.getMaxValue()).append('}');
+
+            final AllocationStats.Report allocation = result.allocation;
+            if (allocation != null) {
+                json.append(", \"allocation\": {\"bytesPerRequest\": ").append(number(allocation.getBytesPerRequest()))
+                        .append(", \"callerBytesPerRequest\": ").append(number(allocation.getCallerBytesPerRequest()))
+                        .append(", \"cpuNsPerRequest\": ").append(number(allocation.getCpuTimePerRequest()))
+                        .append(", \"gcCount\": ").append(allocation.getGcCount())
+                        .append(", \"gcTimeMs\": ").append(allocation.getGcTime())
+                        .append(", \"peakThreads\": ").append(allocation.getPeakThreadCount()).append('}');
+            }
+            json.append('}');
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    private String toCsv() {
+        final StringBuilder csv = new StringBuilder(1024)
+                .append("name,mode,requests,failures,throughput,min,mean");
+        for (double percentile : PERCENTILES) {
+            csv.append(",p").append(percentileName(percentile));
+        }
+        csv.append(",max,bytesPerRequest,cpuNsPerRequest,gcCount,gcTimeMs,peakThreads\n");
+
+        for (Result result : results) {
+            final Histogram latency = result.latency;
+            csv.append(result.name).append(',').append(result.mode)
+                    .append(',').append(result.requestCount).append(',').append(result.failureCount)
+                    .append(',').append(number(result.throughput))
+                    .append(',').append(latency.getMinValue()).append(',').append(number(latency.getMean()));
+            for (double percentile : PERCENTILES) {
+                csv.append(',').append(latency.getValueAtPercentile(percentile));
+            }
+            csv.append(',').append(latency.getMaxValue());
+
+            final AllocationStats.Report allocation = result.allocation;
+            if (allocation != null) {
+                csv.append(',').append(number(allocation.getBytesPerRequest()))
+                        .append(',').append(number(allocation.getCpuTimePerRequest()))
+                        .append(',').append(allocation.getGcCount())
+                        .append(',').append(allocation.getGcTime())
+                        .append(',').append(allocation.getPeakThreadCount());
+            } else {
+                csv.append(",,,,,");
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static Map<String, String> jvmInfo() {
+        final Map<String, String> info = new LinkedHashMap<>();
+        info.put("version", System.getProperty("java.version"));
+        info.put("vendor", System.getProperty("java.vendor"));
+        info.put("vmName", System.getProperty("java.vm.name"));
+        info.put("vmVersion", System.getProperty("java.vm.version"));
+        info.put("arguments", String.join(" ", ManagementFactory.getRuntimeMXBean().getInputArguments()));
+        info.put("maxHeap", String.valueOf(Runtime.getRuntime().maxMemory()));
+        return info;
+    }
+
+    private static Map<String, String> hostInfo() throws IOException {
+        final Map<String, String> info = new LinkedHashMap<>();
+        info.put("name", InetAddress.getLocalHost().getHostName());
+        info.put("os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+        info.put("arch", System.getProperty("os.arch"));
+        info.put("cpus", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        return info;
+    }
+
+    private static void appendFields(StringBuilder json, Map<String, String> fields) {
+        boolean first = true;
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            json.append(first ? "" : ", ").append(quote(field.getKey())).append(": ").append(quote(field.getValue()));
+            first = false;
+        }
+    }
+
+    private static String percentileName(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile).replace('.', '_');
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        final StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < ' ') {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static final class Result {
+        private final String name;
+        private final String mode;
+        private final long requestCount;
+        private final long failureCount;
+        private final double throughput;
+        private final Histogram latency;
+        private final AllocationStats.Report allocation;
+
+        private Result(String name, String mode, long requestCount, long failureCount, double throughput,
+                       Histogram latency, AllocationStats.Report allocation) {
+            this.name = name;
+            this.mode = mode;
+            this.requestCount = requestCount;
+            this.failureCount = failureCount;
+            this.throughput = throughput;
+            this.latency = latency;
+            this.allocation = allocation;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package deltix.web.client;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.HdrHistogram.Histogram;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JVM and connection state of a soak run, sampled once per interval next to the latency interval histogram:
+ * <ul>
+ *     <li>GC pauses of the interval from the notifications of the {@link GarbageCollectorMXBean}s, so a latency
+ *     spike can be told apart from a network or client stall: a max latency close to the longest pause is GC</li>
+ *     <li>heap used now and after the last GC, the latter grows steadily with a leak</li>
+ *     <li>direct memory of the Netty pooled allocator and of the JDK direct buffer pool</li>
+ *     <li>established connections of this process to the server port, read from {@code /proc} (Linux only),
+ *     churn or a leaking pool shows up as a drifting count</li>
+ * </ul>
+ */
+public final class SoakMonitor implements Closeable {
+    private static final String[] TCP_TABLES = {"/proc/self/net/tcp", "/proc/self/net/tcp6"};
+    private static final String TCP_ESTABLISHED = "01";
+
+    private final int serverPort;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener gcListener = this::onGcNotification;
+    private final BufferPoolMXBean directPool = findDirectPool();
+
+    // guarded by this
+    private long gcCount;
+    private long gcPauseTime;
+    private long gcMaxPause;
+    private long liveHeap = -1;
+
+    // samples of the sampling thread for the drift
+    private Sample first;
+    private Sample last;
+    private Sample worst;
+    private int minConnectionCount = Integer.MAX_VALUE;
+    private int maxConnectionCount = -1;
+
+    /**
+     * @param serverPort remote port of the connections to count
+     */
+    public SoakMonitor(int serverPort) {
+        this.serverPort = serverPort;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                final NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(gcListener, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    /**
+     * Takes the state at the end of the interval with the given latency histogram and starts a new interval.
+     */
+    public Sample sample(Histogram latency) {
+        final long count;
+        final long pauseTime;
+        final long maxPause;
+        final long live;
+        synchronized (this) {
+            count = gcCount;
+            pauseTime = gcPauseTime;
+            maxPause = gcMaxPause;
+            live = liveHeap;
+            gcCount = 0;
+            gcPauseTime = 0;
+            gcMaxPause = 0;
+        }
+
+        final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        final Sample sample = new Sample(System.currentTimeMillis(), latency, count, pauseTime, maxPause, heap.getUsed(), live,
+                PooledByteBufAllocator.DEFAULT.metric().usedDirectMemory(),
+                directPool != null ? directPool.getMemoryUsed() : -1,
+                countConnections());
+
+        if (first == null) {
+            first = sample;
+        }
+        last = sample;
+        if (worst == null || latency.getValueAtPercentile(99) > worst.latency.getValueAtPercentile(99)) {
+            worst = sample;
+        }
+        minConnectionCount = Math.min(minConnectionCount, sample.connectionCount);
+        maxConnectionCount = Math.max(maxConnectionCount, sample.connectionCount);
+        return sample;
+    }
+
+    /**
+     * Compares the first and the last interval and shows the interval with the worst p99.
+     */
+    public String getDrift() {
+        if (first == null) {
+            return "no intervals";
+        }
+        return String.format("\tLive Heap %,.1f MB -> %,.1f MB, Netty Direct %,.1f MB -> %,.1f MB, JDK Direct %,.1f MB -> %,.1f MB, Connections %d..%d" +
+                        "%n\tp99 %,.1f us -> %,.1f us, worst p99 %,.1f us at %tT (max %,.1f us, GC max pause %d ms, GC/Max %.0f%%)",
+                Sample.megabytes(first.liveHeap), Sample.megabytes(last.liveHeap),
+                Sample.megabytes(first.nettyDirectMemory), Sample.megabytes(last.nettyDirectMemory),
+                Sample.megabytes(first.jdkDirectMemory), Sample.megabytes(last.jdkDirectMemory),
+                minConnectionCount, maxConnectionCount,
+                Sample.micros(first.latency.getValueAtPercentile(99)), Sample.micros(last.latency.getValueAtPercentile(99)),
+                Sample.micros(worst.latency.getValueAtPercentile(99)), worst.timestamp, Sample.micros(worst.latency.getMaxValue()),
+                worst.gcMaxPause, worst.getGcShareOfMax() * 100);
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException ignore) {
+            }
+        }
+    }
+
+    private void onGcNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+
+        final GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long live = 0;
+        for (MemoryUsage usage : info.getGcInfo().getMemoryUsageAfterGc().values()) {
+            live += usage.getUsed();
+        }
+        // concurrent cycles (e.g. "G1 Concurrent GC") report their whole duration, not a pause
+        final boolean pause = !info.getGcName().contains("Concurrent");
+        final long duration = info.getGcInfo().getDuration();
+
+        synchronized (this) {
+            if (pause) {
+                gcCount++;
+                gcPauseTime += duration;
+                gcMaxPause = Math.max(gcMaxPause, duration);
+            }
+            liveHeap = live;
+        }
+    }
+
+    /**
+     * Returns the number of established connections of this process to the server port, -1 without {@code /proc}.
+     */
+    private int countConnections() {
+        final Set<String> inodes = new HashSet<>();
+        try (DirectoryStream<Path> fds = Files.newDirectoryStream(Paths.get("/proc/self/fd"))) {
+            for (Path fd : fds) {
+                try {
+                    final String target = Files.readSymbolicLink(fd).toString();
+                    if (target.startsWith("socket:[")) {
+                        inodes.add(target.substring("socket:[".length(), target.length() - 1));
+                    }
+                } catch (IOException ignore) {
+                    // closed in the meantime
+                }
+            }
+
+            int count = 0;
+            for (String table : TCP_TABLES) {
+                final Path path = Paths.get(table);
+                if (Files.exists(path)) {
+                    count += countConnections(Files.readAllLines(path), serverPort, inodes);
+                }
+            }
+            return count;
+        } catch (IOException | UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Counts the established connections to the remote port among the lines of a {@code /proc/net/tcp} table,
+     * e.g. {@code "0: 0100007F:A2B4 0100007F:1F90 01 00000000:00000000 00:00000000 00000000 1000 0 12345 ..."}.
+     *
+     * @param inodes socket inodes of this process, the table lists the sockets of all processes of the namespace
+     */
+    static int countConnections(List<String> lines, int remotePort, Set<String> inodes) {
+        int count = 0;
+        for (String line : lines) {
+            final String[] fields = line.trim().split("\\s+");
+            if (fields.length < 10 || !fields[0].endsWith(":")) {
+                continue; // header
+            }
+
+            final String remote = fields[2];
+            final int port = Integer.parseInt(remote.substring(remote.indexOf(':') + 1), 16);
+            if (port == remotePort && TCP_ESTABLISHED.equals(fields[3]) && inodes.contains(fields[9])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static BufferPoolMXBean findDirectPool() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * State of one interval, memory in bytes, GC pauses in milliseconds and latency in ns.
+     */
+    public static final class Sample {
+        private final long timestamp;
+        private final Histogram latency;
+        private final long gcCount;
+        private final long gcPauseTime;
+        private final long gcMaxPause;
+        private final long heapUsed;
+        private final long liveHeap;
+        private final long nettyDirectMemory;
+        private final long jdkDirectMemory;
+        private final int connectionCount;
+
+        Sample(long timestamp, Histogram latency, long gcCount, long gcPauseTime, long gcMaxPause, long heapUsed,
+               long liveHeap, long nettyDirectMemory, long jdkDirectMemory, int connectionCount) {
+            this.timestamp = timestamp;
+            this.latency = latency;
+            this.gcCount = gcCount;
+            this.gcPauseTime = gcPauseTime;
+            this.gcMaxPause = gcMaxPause;
+            this.heapUsed = heapUsed;
+            this.liveHeap = liveHeap;
+            this.nettyDirectMemory = nettyDirectMemory;
+            this.jdkDirectMemory = jdkDirectMemory;
+            this.connectionCount = connectionCount;
+        }
+
+        /**
+         * Epoch ms at the end of the interval.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * GC pauses which ended within the interval, concurrent cycles are not counted.
+         */
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        public long getGcPauseTime() {
+            return gcPauseTime;
+        }
+
+        public long getGcMaxPause() {
+            return gcMaxPause;
+        }
+
+        /**
+         * Share of the max latency covered by the longest GC pause, close to 1 if the worst request waited for GC.
+         */
+        public double getGcShareOfMax() {
+            final long max = latency.getMaxValue();
+            return max > 0 ? Math.min(1.0, gcMaxPause * 1_000_000.0 / max) : 0;
+        }
+
+        public long getHeapUsed() {
+            return heapUsed;
+        }
+
+        /**
+         * Heap used after the last GC, -1 before the first GC.
+         */
+        public long getLiveHeap() {
+            return liveHeap;
+        }
+
+        /**
+         * Direct memory used by the arenas of {@link PooledByteBufAllocator#DEFAULT}.
+         */
+        public long getNettyDirectMemory() {
+            return nettyDirectMemory;
+        }
+
+        /**
+         * Memory of the JDK direct buffers, -1 if not available. Netty buffers are included unless Netty
+         * allocates without the JDK cleaner.
+         */
+        public long getJdkDirectMemory() {
+            return jdkDirectMemory;
+        }
+
+        /**
+         * Established connections to the server port, -1 if not available.
+         */
+        public int getConnectionCount() {
+            return connectionCount;
+        }
+
+        public static String header() {
+            return String.format("%-8s %10s %10s %10s %10s %5s %9s %9s %6s %9s %9s %9s %9s %6s",
+                    "Time", "Count", "p50 us", "p99 us", "Max us", "GCs", "GC ms", "GC max", "GC/Max",
+                    "Heap MB", "Live MB", "Netty MB", "Direct MB", "Conns");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%tT %10d %,10.1f %,10.1f %,10.1f %5d %9d %9d %5.0f%% %,9.1f %,9.1f %,9.1f %,9.1f %6d",
+                    timestamp, latency.getTotalCount(), micros(latency.getValueAtPercentile(50)),
+                    micros(latency.getValueAtPercentile(99)), micros(latency.getMaxValue()),
+                    gcCount, gcPauseTime, gcMaxPause, getGcShareOfMax() * 100,
+                    megabytes(heapUsed), megabytes(liveHeap), megabytes(nettyDirectMemory), megabytes(jdkDirectMemory),
+                    connectionCount);
+        }
+
+        private static double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+
+        private static double megabytes(long bytes) {
+            return bytes < 0 ? -1 : bytes / (1024.0 * 1024.0);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package deltix.web.client;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches of requests submitted by several threads sharing one {@link WebClient}, to expose contention inside
+ * the client (dispatchers, channel pools, selectors). Every submitter thread records its own submission histogram,
+ * response latency is recorded by the shared {@link ResponseStats}.
+ */
+public final class SubmitterLoadGenerator {
+    private final WebClient client;
+    private final ResponseStats stats;
+
+    public SubmitterLoadGenerator(WebClient client, ResponseStats stats) {
+        this.client = client;
+        this.stats = stats;
+    }
+
+    /**
+     * Every submitter sends {@code batchCount} batches of {@code requestInBatch} requests with {@code period} ms
+     * between batches, then all responses are awaited.
+     */
+    public Result run(int submitters, int batchCount, int requestInBatch, int period) throws InterruptedException {
+        final long requestCount = (long) submitters * batchCount * requestInBatch;
+        final Histogram[] submissions = new Histogram[submitters];
+        final Thread[] threads = new Thread[submitters];
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        for (int i = 0; i < submitters; i++) {
+            final Histogram submission = new Histogram(ResponseStats.MAX_LATENCY, 3);
+            submissions[i] = submission;
+            threads[i] = new Thread(() -> {
+                try {
+                    startLatch.await();
+                    submit(submission, batchCount, requestInBatch, period);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "submitter-" + i);
+            threads[i].start();
+        }
+
+        final long startTime = System.nanoTime();
+        stats.startStep(startTime);
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        final long sendDuration = System.nanoTime() - startTime;
+
+        final boolean completed = stats.awaitStepCompletions(requestCount, 2, TimeUnit.MINUTES);
+        final long totalDuration = System.nanoTime() - startTime;
+
+        return new Result(submitters, requestCount, sendDuration, totalDuration, completed,
+                stats.getFailureCount(), stats.getIntervalHistogram(), submissions);
+    }
+
+    private void submit(Histogram submission, int batchCount, int requestInBatch, int period) throws InterruptedException {
+        for (int i = 0; i < batchCount; i++) {
+            if (i > 0 && period > 0) {
+                Thread.sleep(period);
+            }
+
+            for (int j = 0; j < requestInBatch; j++) {
+                final long startTime = System.nanoTime();
+
+                client.executeRequest(startTime);
+
+                submission.recordValue(Math.min(System.nanoTime() - startTime, ResponseStats.MAX_LATENCY));
+            }
+        }
+    }
+
+    public static final class Result {
+        private final int submitters;
+        private final long requestCount;
+        private final long sendDuration;
+        private final long totalDuration;
+        private final boolean completed;
+        private final long failureCount;
+        private final Histogram latency;
+        private final Histogram[] submissions;
+        private final Histogram submission;
+
+        Result(int submitters, long requestCount, long sendDuration, long totalDuration, boolean completed,
+               long failureCount, Histogram latency, Histogram[] submissions) {
+            this.submitters = submitters;
+            this.requestCount = requestCount;
+            this.sendDuration = sendDuration;
+            this.totalDuration = totalDuration;
+            this.completed = completed;
+            this.failureCount = failureCount;
+            this.latency = latency;
+            this.submissions = submissions;
+            this.submission = new Histogram(ResponseStats.MAX_LATENCY, 3);
+            for (Histogram histogram : submissions) {
+                submission.add(histogram);
+            }
+        }
+
+        public int getSubmitters() {
+            return submitters;
+        }
+
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        public double getSendRate() {
+            return requestCount * 1e9 / sendDuration;
+        }
+
+        public double getThroughput() {
+            return (requestCount - failureCount) * 1e9 / totalDuration;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Submission histogram of each submitter thread.
+         */
+        public Histogram[] getSubmissions() {
+            return submissions;
+        }
+
+        /**
+         * Submission histograms of all submitter threads merged.
+         */
+        public Histogram getSubmission() {
+            return submission;
+        }
+
+        public static String header() {
+            return String.format("%10s %12s %12s %8s %10s %10s %10s %10s %14s %14s",
+                    "Submitters", "Sent/s", "Done/s", "Failed", "p50 us", "p90 us", "p99 us", "Max us",
+                    "Submit p50 us", "Submit p99 us");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%10d %,12.0f %,12.0f %8d %,10.1f %,10.1f %,10.1f %,10.1f %,14.1f %,14.1f%s",
+                    submitters, getSendRate(), getThroughput(), failureCount,
+                    micros(latency.getValueAtPercentile(50)), micros(latency.getValueAtPercentile(90)),
+                    micros(latency.getValueAtPercentile(99)), micros(latency.getMaxValue()),
+                    micros(submission.getValueAtPercentile(50)), micros(submission.getValueAtPercentile(99)),
+                    completed ? "" : " (responses lost)");
+        }
+
+        private static double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+    }
+}
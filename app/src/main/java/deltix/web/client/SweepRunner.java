@@ -0,0 +1,369 @@
+package deltix.web.client;
+
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every combination of a parameter matrix as a {@link WebClientTest} in its own forked JVM, with
+ * {@code --results-dir}, and consolidates the summaries into one table per client (result name: client, protocol
+ * and TLS provider) which marks the throughput/p99 Pareto frontier: the runs which no other run of the client beats
+ * in both throughput and p99.
+ * <p>
+ * The matrix file has {@code name = value, value, ...} lines and {@code #} comments:
+ * <ul>
+ *     <li>axes of the positional arguments: {@code clients}, {@code period}, {@code batchCount},
+ *     {@code requestInBatch}, {@code native}, {@code ioThreads}</li>
+ *     <li>{@code rate} - {@code --rate} (open-loop mode), {@code concurrency} - {@code --connections}</li>
+ *     <li>{@code --<option>} - any other option, {@code false} leaves the option out</li>
+ *     <li>single values: {@code apiKey}, {@code apiSecret}, {@code args} (options of every run),
+ *     {@code jvmArgs}</li>
+ * </ul>
+ * Usage: {@code SweepRunner <matrix file> [--output sweeps] [--run-timeout 600] [--java <java executable>]}
+ */
+public final class SweepRunner {
+    private static final Log LOG = LogFactory.getLog(SweepRunner.class);
+
+    private static final String[] POSITIONAL_AXES = {"clients", "period", "batchCount", "requestInBatch", "native", "ioThreads"};
+    private static final String[] POSITIONAL_DEFAULTS = {"AHC", "200", "20", "5", "false", "0"};
+    private static final Map<String, String> OPTION_AXES = Map.of("rate", "--rate", "concurrency", "--connections");
+    private static final String[] SINGLE_VALUES = {"apiKey", "apiSecret", "args", "jvmArgs"};
+
+    private final Map<String, List<String>> axes;
+    private final Map<String, String> values;
+    private final File directory;
+    private final String java;
+    private final long runTimeout;
+
+    public SweepRunner(Map<String, List<String>> axes, Map<String, String> values, File directory, String java, long runTimeout) {
+        this.axes = axes;
+        this.values = values;
+        this.directory = directory;
+        this.java = java;
+        this.runTimeout = runTimeout;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Arguments arguments = Arguments.parse(args);
+        if (arguments.size() < 1) {
+            LOG.error("Usage: SweepRunner <matrix file> [--output sweeps] [--run-timeout 600] [--java <java executable>]");
+            System.exit(2);
+        }
+
+        final Map<String, List<String>> axes = new LinkedHashMap<>();
+        final Map<String, String> values = new LinkedHashMap<>();
+        parseMatrix(Files.readAllLines(new File(arguments.get(0)).toPath(), StandardCharsets.UTF_8), axes, values);
+
+        final File directory = new File(arguments.getOption("output", "sweeps"),
+                new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        if (!directory.mkdirs()) {
+            throw new IllegalStateException("Can't create sweep directory: " + directory);
+        }
+
+        final String java = arguments.getOption("java",
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        final SweepRunner runner = new SweepRunner(axes, values, directory, java, arguments.getLongOption("run-timeout", 600));
+
+        final String report = runner.run();
+        LOG.info("Sweep Results (%s): \n%s").with(directory).with(report);
+    }
+
+    /**
+     * Reads axes ({@code name = value, value}) and single values of the matrix file.
+     */
+    static void parseMatrix(List<String> lines, Map<String, List<String>> axes, Map<String, String> values) {
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            final int separator = line.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected name = value: " + line);
+            }
+            final String name = line.substring(0, separator).trim();
+            final String value = line.substring(separator + 1).trim();
+
+            if (Arrays.asList(SINGLE_VALUES).contains(name)) {
+                values.put(name, value);
+            } else if (Arrays.asList(POSITIONAL_AXES).contains(name) || OPTION_AXES.containsKey(name) || name.startsWith("--")) {
+                final List<String> axis = new ArrayList<>();
+                for (String item : value.split(",")) {
+                    if (!item.isBlank()) {
+                        axis.add(item.trim());
+                    }
+                }
+                axes.put(name, axis);
+            } else {
+                throw new IllegalArgumentException("Unknown matrix entry: " + name);
+            }
+        }
+    }
+
+    /**
+     * Returns every combination of the axes in the order of the matrix file, the last axis changes first.
+     */
+    static List<Map<String, String>> combinations(Map<String, List<String>> axes) {
+        List<Map<String, String>> result = new ArrayList<>();
+        result.add(new LinkedHashMap<>());
+        for (Map.Entry<String, List<String>> axis : axes.entrySet()) {
+            final List<Map<String, String>> next = new ArrayList<>(result.size() * axis.getValue().size());
+            for (Map<String, String> combination : result) {
+                for (String value : axis.getValue()) {
+                    final Map<String, String> extended = new LinkedHashMap<>(combination);
+                    extended.put(axis.getKey(), value);
+                    next.add(extended);
+                }
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    /**
+     * Runs all combinations one by one and writes {@code sweep.csv} and {@code sweep.txt}.
+     *
+     * @return the report of {@code sweep.txt}
+     */
+    public String run() throws IOException, InterruptedException {
+        final List<Map<String, String>> combinations = combinations(axes);
+        LOG.info("Sweep of %s runs into %s").with(combinations.size()).with(directory);
+
+        final List<Point> points = new ArrayList<>();
+        for (int i = 0; i < combinations.size(); i++) {
+            final Map<String, String> combination = combinations.get(i);
+            final File runDirectory = new File(directory, String.format("run-%03d", i + 1));
+            if (!runDirectory.mkdirs()) {
+                throw new IllegalStateException("Can't create run directory: " + runDirectory);
+            }
+
+            LOG.info("Run %s/%s: %s").with(i + 1).with(combinations.size()).with(toString(combination));
+            final String status = fork(command(combination, runDirectory), runDirectory);
+            final List<Point> runPoints = readSummary(runDirectory, combination, status);
+            if (runPoints.isEmpty()) {
+                LOG.warn("Run %s/%s has no results: %s, see %s")
+                        .with(i + 1).with(combinations.size()).with(status).with(new File(runDirectory, "output.log"));
+            }
+            points.addAll(runPoints);
+        }
+
+        final String report = report(points);
+        Files.writeString(new File(directory, "sweep.txt").toPath(), report);
+        Files.writeString(new File(directory, "sweep.csv").toPath(), toCsv(points));
+        return report;
+    }
+
+    private List<String> command(Map<String, String> combination, File runDirectory) {
+        final List<String> command = new ArrayList<>();
+        command.add(java);
+        addTokens(command, values.get("jvmArgs"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(WebClientTest.class.getName());
+
+        command.add(values.getOrDefault("apiKey", "key"));
+        command.add(values.getOrDefault("apiSecret", "c2VjcmV0"));
+        for (int i = 0; i < POSITIONAL_AXES.length; i++) {
+            command.add(combination.getOrDefault(POSITIONAL_AXES[i], POSITIONAL_DEFAULTS[i]));
+        }
+
+        for (Map.Entry<String, String> entry : combination.entrySet()) {
+            final String option = entry.getKey().startsWith("--") ? entry.getKey() : OPTION_AXES.get(entry.getKey());
+            if (option != null && !"false".equals(entry.getValue())) {
+                command.add(option);
+                command.add(entry.getValue());
+            }
+        }
+        addTokens(command, values.get("args"));
+
+        command.add("--results-dir");
+        command.add(runDirectory.getPath());
+        return command;
+    }
+
+    /**
+     * Runs the command with the output in {@code output.log} of the run directory.
+     *
+     * @return "ok", "exit code N" or "timeout"
+     */
+    private String fork(List<String> command, File runDirectory) throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(runDirectory, "output.log"))
+                .start();
+
+        if (!process.waitFor(runTimeout, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+            return "timeout";
+        }
+        return process.exitValue() == 0 ? "ok" : "exit code " + process.exitValue();
+    }
+
+    /**
+     * Reads the summary of the results directory which {@link ResultsWriter} created in the run directory,
+     * phase and cold-start results ({@code name/phase}) are skipped.
+     */
+    private static List<Point> readSummary(File runDirectory, Map<String, String> combination, String status) throws IOException {
+        final List<Point> points = new ArrayList<>();
+        final File[] resultDirectories = runDirectory.listFiles(file -> new File(file, "summary.csv").isFile());
+        if (resultDirectories == null) {
+            return points;
+        }
+
+        for (File resultDirectory : resultDirectories) {
+            final List<String> lines = Files.readAllLines(new File(resultDirectory, "summary.csv").toPath());
+            if (lines.isEmpty()) {
+                continue;
+            }
+            final List<String> header = Arrays.asList(lines.get(0).split(","));
+            for (String line : lines.subList(1, lines.size())) {
+                final String[] row = line.split(",", -1);
+                final String name = row[header.indexOf("name")];
+                if (name.contains("/")) {
+                    continue;
+                }
+                points.add(new Point(combination, status, name,
+                        Long.parseLong(row[header.indexOf("failures")]),
+                        parseDouble(row[header.indexOf("throughput")]),
+                        Long.parseLong(row[header.indexOf("p50")]),
+                        Long.parseLong(row[header.indexOf("p99")])));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Marks the Pareto frontier of the runs of a client: sorted by throughput, a run is on the frontier
+     * if its p99 is below the p99 of every run with at least its throughput. Runs with failures are not eligible.
+     */
+    static void markFrontier(List<Point> points) {
+        final List<Point> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparingDouble((Point point) -> -point.throughput).thenComparingLong(point -> point.p99));
+        long bestP99 = Long.MAX_VALUE;
+        for (Point point : sorted) {
+            if (!Double.isNaN(point.throughput) && point.failures == 0 && point.p99 < bestP99) {
+                point.frontier = true;
+                bestP99 = point.p99;
+            }
+        }
+    }
+
+    private static String report(List<Point> points) {
+        final Map<String, List<Point>> clients = new LinkedHashMap<>();
+        for (Point point : points) {
+            clients.computeIfAbsent(point.name, key -> new ArrayList<>()).add(point);
+        }
+
+        final StringBuilder report = new StringBuilder(4096);
+        for (Map.Entry<String, List<Point>> client : clients.entrySet()) {
+            final List<Point> clientPoints = client.getValue();
+            markFrontier(clientPoints);
+            clientPoints.sort(Comparator.comparingDouble((Point point) -> -point.throughput));
+
+            report.append(client.getKey()).append(" (* - Pareto frontier of throughput and p99)\n");
+            report.append(String.format("  %-2s %12s %12s %12s %8s  %s%n",
+                    "", "Throughput/s", "p50 us", "p99 us", "Failed", "Parameters"));
+            for (Point point : clientPoints) {
+                report.append(String.format(Locale.ROOT, "  %-2s %,12.0f %,12.1f %,12.1f %8d  %s%s%n",
+                        point.frontier ? "*" : "", point.throughput, point.p50 / 1000.0, point.p99 / 1000.0,
+                        point.failures, toString(point.combination),
+                        "ok".equals(point.status) ? "" : " (" + point.status + ")"));
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+
+    private static String toCsv(List<Point> points) {
+        final List<String> parameters = new ArrayList<>();
+        for (Point point : points) {
+            for (String name : point.combination.keySet()) {
+                if (!parameters.contains(name)) {
+                    parameters.add(name);
+                }
+            }
+        }
+
+        final StringBuilder csv = new StringBuilder(1024);
+        for (String name : parameters) {
+            csv.append(name).append(',');
+        }
+        csv.append("name,status,failures,throughput,p50,p99,frontier\n");
+        for (Point point : points) {
+            for (String name : parameters) {
+                csv.append(point.combination.getOrDefault(name, "")).append(',');
+            }
+            csv.append(point.name).append(',').append(point.status)
+                    .append(',').append(point.failures)
+                    .append(',').append(String.format(Locale.ROOT, "%.1f", point.throughput))
+                    .append(',').append(point.p50).append(',').append(point.p99)
+                    .append(',').append(point.frontier).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static void addTokens(List<String> command, String value) {
+        if (value != null) {
+            for (String token : value.trim().split("\\s+")) {
+                if (!token.isEmpty()) {
+                    command.add(token);
+                }
+            }
+        }
+    }
+
+    private static double parseDouble(String value) {
+        return value.isEmpty() || "null".equals(value) ? Double.NaN : Double.parseDouble(value);
+    }
+
+    private static String toString(Map<String, String> combination) {
+        final StringBuilder builder = new StringBuilder(128);
+        for (Map.Entry<String, String> entry : combination.entrySet()) {
+            builder.append(builder.length() > 0 ? " " : "").append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Result of a client in the summary of a run with the parameters of the run.
+     */
+    static final class Point {
+        private final Map<String, String> combination;
+        private final String status;
+        private final String name;
+        private final long failures;
+        private final double throughput;
+        private final long p50;
+        private final long p99;
+        private boolean frontier;
+
+        Point(Map<String, String> combination, String status, String name, long failures, double throughput, long p50, long p99) {
+            this.combination = combination;
+            this.status = status;
+            this.name = name;
+            this.failures = failures;
+            this.throughput = throughput;
+            this.p50 = p50;
+            this.p99 = p99;
+        }
+
+        boolean isFrontier() {
+            return frontier;
+        }
+    }
+}
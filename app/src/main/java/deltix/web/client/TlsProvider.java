@@ -0,0 +1,28 @@
+package deltix.web.client;
+
+/**
+ * TLS implementation of the clients.
+ */
+public enum TlsProvider {
+    /**
+     * JSSE {@code SSLEngine}/{@code SSLSocket} of the JDK.
+     */
+    JDK,
+    /**
+     * BoringSSL: netty-tcnative for the Netty and AHC clients, Conscrypt for the OkHttp, Java and Apache clients.
+     */
+    OPENSSL;
+
+    public static TlsProvider parse(String value) {
+        switch (value.toLowerCase()) {
+            case "jdk":
+            case "jsse":
+                return JDK;
+            case "openssl":
+            case "boringssl":
+                return OPENSSL;
+            default:
+                throw new IllegalArgumentException("Unknown TLS provider: " + value);
+        }
+    }
+}
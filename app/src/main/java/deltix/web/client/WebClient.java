@@ -3,5 +3,34 @@ package deltix.web.client;
 import java.io.Closeable;
 
 public interface WebClient extends Closeable {
-    void executeRequest();
+
+    /**
+     * Sends the request asynchronously.
+     *
+     * @param startTime {@link System#nanoTime()} the request latency is measured from,
+     *                  it is handed back to the {@link ResponseListener} together with the response
+     */
+    void executeRequest(long startTime);
+
+    /**
+     * Sends the request asynchronously and reports its completion to the given listener instead of the listener
+     * of the client, phases are reported to the listener of the client. A decorator keeps the state of a request
+     * in its listener, e.g. the endpoint of a workload or the other request of a hedge. Not supported by default.
+     */
+    default void executeRequest(long startTime, ResponseListener listener) {
+        throw new UnsupportedOperationException("Per-request listener is not supported by " + getClass().getSimpleName());
+    }
+
+    default void executeRequest() {
+        executeRequest(System.nanoTime());
+    }
+
+    /**
+     * Opens up to {@code connectionCount} connections (TCP connect and TLS handshake) ahead of the first request
+     * and waits for them, so that the first requests do not pay for the connection setup.
+     * Clients without a connect API open pooled connections with concurrent HEAD requests to the balance URL.
+     * Does nothing by default.
+     */
+    default void preconnect(int connectionCount) throws Exception {
+    }
 }
@@ -0,0 +1,9 @@
+package deltix.web.client;
+
+/**
+ * Creates a client which reports its completions to the listener, e.g. a new client per cold start
+ * or the client behind a decorator which tracks the completions.
+ */
+public interface WebClientFactory {
+    WebClient create(ResponseListener listener) throws Exception;
+}
@@ -8,11 +8,23 @@ import com.epam.deltix.gflog.core.LogConfigurator;
 import com.epam.deltix.gflog.core.Logger;
 import com.epam.deltix.gflog.core.appender.Appender;
 import com.epam.deltix.gflog.core.appender.ConsoleAppenderFactory;
+import deltix.web.client.hedge.HedgedWebClient;
+import deltix.web.client.limit.LimitPolicy;
+import deltix.web.client.limit.LimitedWebClient;
+import deltix.web.client.offload.OffloadingListener;
+import deltix.web.client.offload.WaitStrategy;
+import deltix.web.client.server.LocalFeedServer;
+import deltix.web.client.server.LocalKrakenfutServer;
+import deltix.web.client.workload.Workload;
+import deltix.web.client.ws.FeedBenchmark;
 import org.HdrHistogram.Histogram;
 
+import java.io.File;
+import java.net.URI;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 public class WebClientTest {
@@ -22,44 +34,467 @@ public class WebClientTest {
 
     private final static Log LOG = LogFactory.getLog("KrakenfutHttpTest");
 
-    private enum WebClientType {
-        AHC, NETTY, OKHTTP, APACHE, JAVA
-    }
-
     public static void main(String[] args) throws Exception {
         enableDetailedLog(Map.of("io.netty", LogLevel.DEBUG, LOG.getName(), LogLevel.DEBUG));
 
-        final String apiKey = args[0];
-        final String apiSecret = args[1];
-        final WebClientType[] clientTypes = args.length > 2 ? parseClientTypes(args[2]) : new WebClientType[]{WebClientType.AHC};
+        final Arguments arguments = Arguments.parse(args);
+        final String apiKey = arguments.get(0);
+        final String apiSecret = arguments.get(1);
+        final WebClientType[] clientTypes = arguments.size() > 2 ? parseClientTypes(arguments.get(2)) : new WebClientType[]{WebClientType.AHC};
 
-        final int period = args.length > 3 ? Integer.parseInt(args[3]) : 200;
-        final int batchCount = args.length > 4 ? Integer.parseInt(args[4]) : 20;
-        final int requestInBatch = args.length > 5 ? Integer.parseInt(args[5]) : 5;
-        final boolean useNativeTransport = args.length > 6 ? Boolean.parseBoolean(args[6]) : false;
-        final int ioThreadCount = args.length > 7 ? Integer.parseInt(args[7]) : 0;
+        final int period = arguments.getInt(3, 200);
+        final int batchCount = arguments.getInt(4, 20);
+        final int requestInBatch = arguments.getInt(5, 5);
+        final boolean useNativeTransport = arguments.getBoolean(6, false);
+        final int ioThreadCount = arguments.getInt(7, 0);
+
+        final ClientSettings settings = new ClientSettings()
+                .setProtocol(HttpProtocol.parse(arguments.getOption("protocol", "http/1.1")))
+                .setTlsProvider(TlsProvider.parse(arguments.getOption("tls-provider", "jdk")))
+                .setIoThreadCount(ioThreadCount)
+                .setUseNativeTransport(useNativeTransport)
+                .setConnectionCount(arguments.getIntOption("connections", 1))
+                .setMaxConnectionCount(arguments.getIntOption("max-connections", 0))
+                .setPipelineDepth(arguments.getIntOption("pipeline-depth", 0))
+                .setPhaseTiming(arguments.hasOption("phases"))
+                .setBusyPoll(arguments.hasOption("busy-poll"))
+                .setIoRatio(arguments.getIntOption("io-ratio", 0))
+                .setIoThreadCpus(parseCpus(arguments.getOption("cpu-affinity", "")));
+        if (arguments.hasOption("transport")) {
+            settings.setTransport(IoTransport.parse(arguments.getOption("transport", "nio")));
+        }
+
+        final LocalKrakenfutServer.Settings serverSettings = arguments.hasOption("local-server") ?
+                createServerSettings(arguments) : null;
+        final LocalFeedServer.Settings feedSettings = arguments.hasOption("feed") ?
+                createFeedSettings(arguments) : null;
+        final LimitedWebClient.Settings limitSettings = arguments.hasOption("max-in-flight") || arguments.hasOption("bucket-capacity") ?
+                createLimitSettings(arguments) : null;
+        final HedgedWebClient.Settings hedgeSettings = arguments.hasOption("hedge") ?
+                createHedgeSettings(arguments) : null;
+        if (arguments.hasOption("workload") || arguments.hasOption("workload-script")) {
+            if (hedgeSettings != null) {
+                throw new IllegalArgumentException("Hedging sends a request twice, orders of a workload are not idempotent");
+            }
+            settings.setWorkload(createWorkload(arguments));
+        }
+        final WaitStrategy offloadStrategy = arguments.hasOption("offload") ?
+                WaitStrategy.parse(arguments.getBooleanOption("offload", false) ? "spin" : arguments.getOption("offload", "spin")) : null;
+        final int offloadCapacity = arguments.getIntOption("offload-capacity", 4096);
 
         LOG.info().append("Experiment Settings: ")
                 .append("\n\tWeb Client Types: ").append(Arrays.toString(Arrays.stream(clientTypes).map(Enum::name).toArray(String[]::new)))
+                .append("\n\tProtocol: ").append(settings.getProtocol().getAlpnName())
+                .append("\n\tTLS Provider: ").append(settings.getTlsProvider())
                 .append("\n\tBatch Count: ").append(batchCount)
                 .append("\n\tRequests in Batch: ").append(requestInBatch)
                 .append("\n\tPeriod: ").append(period).append(" ms")
                 .append("\n\tUse Native?: ").append(useNativeTransport)
                 .append("\n\tIO Threads: ").append(ioThreadCount)
+                .append("\n\tNetty Transport: ").append(settings.getTransport())
+                .append(settings.isBusyPoll() ? " busy-poll" : "")
+                .append(settings.getIoRatio() > 0 ? " io-ratio " + settings.getIoRatio() : "")
+                .append(settings.getIoThreadCpus().length > 0 ? " CPUs " + Arrays.toString(settings.getIoThreadCpus()) : "")
+                .append("\n\tNetty Connections: ").append(settings.getConnectionCount())
+                .append(" (max ").append(Math.max(settings.getConnectionCount(), settings.getMaxConnectionCount())).append(')')
+                .append("\n\tPhase Timing: ").append(settings.isPhaseTiming())
+                .append("\n\tNetty Pipeline Depth: ").append(settings.getPipelineDepth() > 0 ? String.valueOf(settings.getPipelineDepth()) : "unlimited")
+                .append("\n\tLocal Server: ").append(serverSettings != null ? serverSettings.toString() : "none")
+                .append("\n\tFeed Server: ").append(feedSettings != null ? feedSettings.toString() : "none")
+                .append("\n\tLimits: ").append(limitSettings != null ? limitSettings.toString() : "none")
+                .append("\n\tHedging: ").append(hedgeSettings != null ? hedgeSettings.toString() : "none")
+                .append("\n\tWorkload: ").append(settings.getWorkload() != null ? settings.getWorkload().toString() : "balance only")
+                .append("\n\tResponse Offload: ").append(offloadStrategy != null ? offloadStrategy + " (capacity " + offloadCapacity + ')' : "none")
                 .commit();
 
         final int warmupCount = 2;
 
-        final CountDownLatch latch = new CountDownLatch(warmupCount *requestInBatch + batchCount * requestInBatch);
+        final Map<String, String> runSettings = new LinkedHashMap<>();
+        runSettings.put("clientTypes", Arrays.toString(clientTypes));
+        runSettings.put("period", String.valueOf(period));
+        runSettings.put("batchCount", String.valueOf(batchCount));
+        runSettings.put("requestInBatch", String.valueOf(requestInBatch));
+        runSettings.put("nativeTransport", String.valueOf(useNativeTransport));
+        runSettings.put("ioThreadCount", String.valueOf(ioThreadCount));
+        runSettings.put("transport", settings.getTransport() + (settings.isBusyPoll() ? " busy-poll" : ""));
+        runSettings.put("localServer", serverSettings != null ? serverSettings.toString() : "none");
+        runSettings.put("feedServer", feedSettings != null ? feedSettings.toString() : "none");
+        runSettings.put("limits", limitSettings != null ? limitSettings.toString() : "none");
+        runSettings.put("hedging", hedgeSettings != null ? hedgeSettings.toString() : "none");
+        runSettings.put("workload", settings.getWorkload() != null ? settings.getWorkload().toString() : "none");
+        runSettings.put("offload", offloadStrategy != null ? offloadStrategy + " " + offloadCapacity : "none");
+        runSettings.put("arguments", String.join(" ", args).replace(apiSecret, "***"));
+
+        try (LocalKrakenfutServer server = serverSettings != null ? new LocalKrakenfutServer(serverSettings) : null;
+             ResultsWriter results = arguments.hasOption("results-dir") ?
+                     new ResultsWriter(new File(arguments.getOption("results-dir", "results")), runSettings) : null) {
+            if (results != null) {
+                LOG.info("Results are written to %s").with(results.getDirectory());
+            }
+            if (server != null) {
+                settings.setBalanceUrl(server.getBalanceUrl())
+                        .setTrustAllCertificates(true);
+            }
+            runSettings.put("client", settings.toString());
+
+            if (arguments.hasOption("cold-start")) {
+                doColdStartTest(settings, clientTypes, apiKey, apiSecret, results, arguments);
+                return;
+            }
+            if (feedSettings != null) {
+                doFeedTest(settings, feedSettings, clientTypes, results, arguments);
+                return;
+            }
+
+            final AllocationStats allocationStats = new AllocationStats(LocalKrakenfutServer.THREAD_NAME_PREFIX);
+            for (WebClientType clientType : clientTypes) {
+                final ResponseStats stats = new ResponseStats(LOG);
+
+                final String testName = testName(clientType, settings);
+
+                final WebClientFactory clientFactory = listener -> KrakenfutUtil.createClient(clientType, settings, apiKey, apiSecret, listener);
+                // the limits apply to the requests of the caller, hedges are not counted
+                final HedgedWebClient[] hedged = new HedgedWebClient[1];
+                final WebClientFactory factory = hedgeSettings == null ? clientFactory :
+                        listener -> hedged[0] = new HedgedWebClient(hedgeSettings, listener, clientFactory);
+                // closed after the client, which completes requests till it is closed
+                try (OffloadingListener offload = offloadStrategy != null ?
+                        new OffloadingListener(stats, offloadStrategy, offloadCapacity) : null;
+                     WebClient httpRequestTest = limitSettings != null ?
+                             new LimitedWebClient(limitSettings, offload != null ? offload : stats, factory) :
+                             factory.create(offload != null ? offload : stats)) {
+                    if (arguments.hasOption("preconnect")) {
+                        httpRequestTest.preconnect(Math.max(1, settings.getConnectionCount()));
+                    }
+                    if (arguments.hasOption("soak")) {
+                        doSoakTest(httpRequestTest, stats, allocationStats, results, testName, settings, arguments,
+                                requestInBatch, period);
+                    } else if (arguments.hasOption("rate")) {
+                        doOpenLoopTest(httpRequestTest, stats, allocationStats, results, testName, arguments);
+                    } else if (arguments.hasOption("submitters")) {
+                        doSubmitterTest(httpRequestTest, stats, allocationStats, results, testName, requestInBatch, batchCount, period,
+                                arguments.getOption("submitters", "1"));
+                    } else {
+                        doTest(httpRequestTest, stats, allocationStats, results, testName, warmupCount, requestInBatch, batchCount, period);
+                    }
+                    if (httpRequestTest instanceof LimitedWebClient) {
+                        final LimitedWebClient limited = (LimitedWebClient) httpRequestTest;
+                        LOG.info("(%s) Limiter (whole run): rejected %s, queued %s, blocked %s\n\n").with(testName)
+                                .with(limited.getRejectedCount()).with(limited.getQueuedCount()).with(limited.getBlockedCount());
+                    }
+                    if (hedged[0] != null) {
+                        LOG.info("(%s) Hedging (whole run): hedged %s, won %s, budget exhausted %s, delay %s us\n\n")
+                                .with(testName).with(hedged[0].getHedgedCount()).with(hedged[0].getWonCount())
+                                .with(hedged[0].getBudgetExhaustedCount()).with(hedged[0].getDelay() / 1000);
+                    }
+                    if (offload != null) {
+                        reportOffload(offload, results, testName);
+                    }
+                } catch (UnsupportedOperationException e) {
+                    LOG.warn("(%s) Skipped: %s").with(testName).with(e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static LocalKrakenfutServer.Settings createServerSettings(Arguments arguments) {
+        return new LocalKrakenfutServer.Settings()
+                .setPort(arguments.getIntOption("server-port", 0))
+                .setSecure(!arguments.getBooleanOption("plain-http", false))
+                .setResponseSize(arguments.getIntOption("response-size", 1024))
+                .setThinkTimeMicros(arguments.getLongOption("think-time", 0))
+                .setKeepAlive(arguments.getBooleanOption("keep-alive", true))
+                .setSlowRate(arguments.getDoubleOption("slow-rate", 0))
+                .setSlowTimeMicros(arguments.getLongOption("slow-time", 50_000))
+                .setResetRate(arguments.getDoubleOption("reset-rate", 0))
+                .setThrottleRate(arguments.getDoubleOption("throttle-rate", 0))
+                .setFaultSeed(arguments.getLongOption("fault-seed", 42));
+    }
+
+    private static LocalFeedServer.Settings createFeedSettings(Arguments arguments) {
+        return new LocalFeedServer.Settings()
+                .setSecure(!arguments.getBooleanOption("plain-http", false))
+                .setRate(arguments.getIntOption("feed-rate", 1000))
+                .setMessageSize(arguments.getIntOption("feed-size", 512))
+                .setFragmentSize(arguments.getIntOption("feed-fragment", 0));
+    }
+
+    /**
+     * Weights of {@code --workload} (the default mix without a value) or the ordered {@code --workload-script}, orders of {@code --order-symbol}
+     * at {@code --order-price}.
+     */
+    private static Workload createWorkload(Arguments arguments) {
+        final String weights = arguments.getOption("workload", "true");
+        final Workload workload = arguments.hasOption("workload-script") ?
+                Workload.script(arguments.getOption("workload-script", "accounts")) :
+                Workload.weighted("true".equals(weights) ? "accounts:1,sendorder:6,cancelorder:3" : weights);
+        return workload.setOrder(arguments.getOption("order-symbol", "PI_XBTUSD"),
+                arguments.getLongOption("order-price", 30_000));
+    }
+
+    private static HedgedWebClient.Settings createHedgeSettings(Arguments arguments) {
+        return new HedgedWebClient.Settings()
+                .setPercentile(arguments.getDoubleOption("hedge-percentile", 95))
+                .setMinDelay(TimeUnit.MICROSECONDS.toNanos(arguments.getLongOption("hedge-min-delay", 1000)))
+                .setMaxDelay(TimeUnit.MICROSECONDS.toNanos(arguments.getLongOption("hedge-max-delay", 1_000_000)))
+                .setBudgetRatio(arguments.getDoubleOption("hedge-budget", 0.05))
+                .setBudgetBurst(arguments.getLongOption("hedge-burst", 10));
+    }
+
+    private static LimitedWebClient.Settings createLimitSettings(Arguments arguments) {
+        return new LimitedWebClient.Settings()
+                .setMaxInFlight(arguments.getIntOption("max-in-flight", 0))
+                .setBucketCapacity(arguments.getLongOption("bucket-capacity", 0))
+                .setBucketRefillRate(arguments.getDoubleOption("bucket-refill-rate", 50))
+                .setRequestCost(arguments.getLongOption("request-cost", 1))
+                .setPolicy(LimitPolicy.parse(arguments.getOption("limit-policy", "reject")))
+                .setMaxQueued(arguments.getIntOption("max-queued", 10_000));
+    }
+
+    private static void doColdStartTest(ClientSettings settings, WebClientType[] clientTypes, String apiKey, String apiSecret,
+                                        ResultsWriter results, Arguments arguments) throws Exception {
+        final int iterations = arguments.getIntOption("cold-start", 20);
+        final boolean preconnect = arguments.hasOption("preconnect");
+        final long pause = arguments.getLongOption("cold-start-pause", 100);
+        final ColdStartBenchmark benchmark = new ColdStartBenchmark(settings);
+
+        LOG.info("Start Connection Probe: %s connections per handshake kind").with(iterations);
+        final ColdStartBenchmark.Result probe = benchmark.probe(iterations);
+        LOG.info("Connection Probe Results (sessions not resumed: %s): \n%s\n%s\n\n").with(probe.getFailureCount())
+                .with(ColdStartBenchmark.Result.header()).with(probe);
+        record(results, "probe", "cold-start", probe);
 
         for (WebClientType clientType : clientTypes) {
-            try (WebClient httpRequestTest = createWebClient(clientType, apiKey, apiSecret, ioThreadCount, useNativeTransport, latch)) {
-                doTest(httpRequestTest, latch, clientType, warmupCount, requestInBatch, batchCount, period);
+            final String testName = testName(clientType, settings);
+            try {
+                LOG.info("(%s) Start Cold-Start Experiment: %s clients, preconnect: %s")
+                        .with(testName).with(iterations).with(preconnect);
+                final ColdStartBenchmark.Result result = benchmark.run(
+                        listener -> KrakenfutUtil.createClient(clientType, settings, apiKey, apiSecret, listener),
+                        iterations, preconnect, pause);
+                LOG.info("(%s) Cold-Start Results (failed: %s): \n%s\n%s\n\n").with(testName)
+                        .with(result.getFailureCount()).with(ColdStartBenchmark.Result.header()).with(result);
+                record(results, testName, "cold-start", result);
+            } catch (UnsupportedOperationException e) {
+                LOG.warn("(%s) Skipped: %s").with(testName).with(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs the feed benchmark of every client type against a local feed server for {@code --feed} seconds
+     * (10 without a value) after {@code --warmup} seconds.
+     */
+    private static void doFeedTest(ClientSettings settings, LocalFeedServer.Settings feedSettings, WebClientType[] clientTypes,
+                                   ResultsWriter results, Arguments arguments) throws Exception {
+        final String feed = arguments.getOption("feed", "true");
+        final long duration = "true".equals(feed) ? 10 : Long.parseLong(feed);
+        final long warmup = arguments.getLongOption("warmup", 2);
+        final AllocationStats allocationStats = new AllocationStats(LocalKrakenfutServer.THREAD_NAME_PREFIX);
+
+        try (LocalFeedServer server = new LocalFeedServer(feedSettings)) {
+            settings.setTrustAllCertificates(true);
+            final FeedBenchmark benchmark = new FeedBenchmark(settings, server.getUrl(), LOG);
+            for (WebClientType clientType : clientTypes) {
+                final String testName = clientType + " WS";
+                try {
+                    LOG.info("(%s) Start Feed Experiment: %s s").with(testName).with(duration);
+                    final FeedBenchmark.Result result = benchmark.run(clientType, warmup, duration, TimeUnit.SECONDS,
+                            allocationStats);
+                    LOG.info("(%s) Feed Results: %s\nDelivery latency:\n%s\n%s\n%s\n\n").with(testName).with(result)
+                            .with(ColdStartBenchmark.Result.header())
+                            .with(ColdStartBenchmark.Result.row("message", result.getLatency()))
+                            .with(result.getAllocation());
+                    if (results != null) {
+                        results.record(testName, "feed", result.getMessageCount(), result.getErrorCount(),
+                                result.getThroughput(), result.getLatency(), result.getAllocation());
+                    }
+                } catch (UnsupportedOperationException e) {
+                    LOG.warn("(%s) Skipped: %s").with(testName).with(e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void record(ResultsWriter results, String testName, String mode, ColdStartBenchmark.Result result) {
+        if (results != null) {
+            for (Map.Entry<String, Histogram> phase : result.getPhases().entrySet()) {
+                final Histogram latency = phase.getValue();
+                results.record(testName + "/" + phase.getKey(), mode, latency.getTotalCount(), result.getFailureCount(),
+                        Double.NaN, latency, null);
             }
         }
     }
 
-    private static void doTest(WebClient httpRequestTest, CountDownLatch latch, WebClientType clientType,
+    private static void doOpenLoopTest(WebClient httpRequestTest, ResponseStats stats, AllocationStats allocationStats,
+                                       ResultsWriter results, String testName, Arguments arguments) throws InterruptedException {
+        final double rate = arguments.getDoubleOption("rate", 1000);
+        final long duration = arguments.getLongOption("duration", 10);
+        final long warmup = arguments.getLongOption("warmup", 2);
+        final boolean measureFromIntendedTime = !"interval".equals(arguments.getOption("co-correction", "intended"));
+
+        final OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator(httpRequestTest, stats, measureFromIntendedTime, LOG);
+
+        LOG.info("(%s) Warmup at %s req/s for %s s").with(testName).with(rate).with(warmup);
+        generator.run(rate, warmup, TimeUnit.SECONDS);
+
+        LOG.info("\n\n");
+        LOG.info("(%s) Start Open-Loop Experiment").with(testName);
+        allocationStats.start();
+        if (arguments.hasOption("ramp")) {
+            final double rateStep = arguments.getDoubleOption("rate-step", rate);
+            final double maxRate = arguments.getDoubleOption("max-rate", rate * 20);
+            final long sloP99 = TimeUnit.MICROSECONDS.toNanos(arguments.getLongOption("slo-p99", 1000));
+
+            final List<OpenLoopLoadGenerator.StepResult> steps =
+                    generator.ramp(rate, rateStep, maxRate, duration, TimeUnit.SECONDS, sloP99);
+            long requestCount = 0;
+            for (OpenLoopLoadGenerator.StepResult result : steps) {
+                requestCount += result.getRequestCount();
+            }
+            final AllocationStats.Report allocationReport = allocationStats.stop(requestCount);
+
+            final StringBuilder table = new StringBuilder(256).append(OpenLoopLoadGenerator.StepResult.header());
+            double saturationRate = 0;
+            for (OpenLoopLoadGenerator.StepResult result : steps) {
+                table.append('\n').append(result);
+                if (result.isWithinSlo(sloP99)) {
+                    saturationRate = result.getTargetRate();
+                }
+                if (results != null) {
+                    results.record(testName + "@" + Math.round(result.getTargetRate()) + "rps", "ramp",
+                            result.getRequestCount(), result.getFailureCount(), result.getThroughput(), result.getLatency(), null);
+                }
+            }
+            LOG.info("(%s) Ramp Results (SLO p99 %s us, saturation at %s req/s): \n%s\n\n")
+                    .with(testName).with(TimeUnit.NANOSECONDS.toMicros(sloP99)).with(saturationRate).with(table);
+            LOG.info("(%s) Allocation and GC Stats: \n%s\n\n").with(testName).with(allocationReport);
+        } else {
+            final OpenLoopLoadGenerator.StepResult result = generator.run(rate, duration, TimeUnit.SECONDS);
+            final AllocationStats.Report allocationReport = allocationStats.stop(result.getRequestCount());
+            LOG.info("(%s) Open-Loop Results: \n%s\n%s").with(testName)
+                    .with(OpenLoopLoadGenerator.StepResult.header()).with(result);
+            LOG.info("(%s) Balance Requests Send Lag Stats: \n%s").with(testName).with(toString(result.getSendLag()));
+            LOG.info("(%s) Balance Requests Response Stats (failed: %s): \n%s")
+                    .with(testName).with(result.getFailureCount()).with(toString(result.getLatency()));
+            reportPhases(stats, results, testName, "open-loop", result.getFailureCount());
+            reportEndpoints(stats, results, testName, "open-loop");
+            LOG.info("(%s) Allocation and GC Stats: \n%s\n\n").with(testName).with(allocationReport);
+            if (results != null) {
+                results.record(testName, "open-loop", result.getRequestCount(), result.getFailureCount(),
+                        result.getThroughput(), result.getLatency(), allocationReport);
+            }
+        }
+    }
+
+    /**
+     * Open-loop load for hours, every interval logs the latencies next to GC pauses, memory and connections
+     * of the {@link SoakMonitor} and writes them to the results.
+     */
+    private static void doSoakTest(WebClient httpRequestTest, ResponseStats stats, AllocationStats allocationStats,
+                                   ResultsWriter results, String testName, ClientSettings settings, Arguments arguments,
+                                   int requestInBatch, int period) throws InterruptedException {
+        final String soak = arguments.getOption("soak", "true");
+        final long duration = "true".equals(soak) ? TimeUnit.HOURS.toSeconds(1) : Long.parseLong(soak);
+        final long interval = arguments.getLongOption("soak-interval", 10);
+        final long warmup = arguments.getLongOption("warmup", 2);
+        // the batch pattern as a steady rate unless given
+        final double rate = arguments.getDoubleOption("rate", requestInBatch * 1000.0 / period);
+        final boolean measureFromIntendedTime = !"interval".equals(arguments.getOption("co-correction", "intended"));
+
+        final OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator(httpRequestTest, stats, measureFromIntendedTime, LOG);
+
+        LOG.info("(%s) Warmup at %s req/s for %s s").with(testName).with(rate).with(warmup);
+        generator.run(rate, warmup, TimeUnit.SECONDS);
+
+        LOG.info("\n\n");
+        LOG.info("(%s) Start Soak at %s req/s for %s s, interval %s s: \n%s")
+                .with(testName).with(rate).with(duration).with(interval).with(SoakMonitor.Sample.header());
+        try (SoakMonitor monitor = new SoakMonitor(serverPort(settings))) {
+            allocationStats.start();
+            final OpenLoopLoadGenerator.StepResult result = generator.soak(rate, duration, interval, TimeUnit.SECONDS, latency -> {
+                final SoakMonitor.Sample sample = monitor.sample(latency);
+                LOG.info("(%s) %s").with(testName).with(sample);
+                if (results != null) {
+                    results.recordInterval(testName + "/soak", sample);
+                }
+            });
+            final AllocationStats.Report allocationReport = allocationStats.stop(result.getRequestCount());
+
+            LOG.info("(%s) Soak Results: \n%s\n%s").with(testName)
+                    .with(OpenLoopLoadGenerator.StepResult.header()).with(result);
+            LOG.info("(%s) Soak Drift: \n%s").with(testName).with(monitor.getDrift());
+            LOG.info("(%s) Balance Requests Response Stats (failed: %s): \n%s")
+                    .with(testName).with(result.getFailureCount()).with(toString(result.getLatency()));
+            reportPhases(stats, results, testName, "soak", result.getFailureCount());
+            reportEndpoints(stats, results, testName, "soak");
+            LOG.info("(%s) Allocation and GC Stats: \n%s\n\n").with(testName).with(allocationReport);
+            if (results != null) {
+                results.record(testName, "soak", result.getRequestCount(), result.getFailureCount(),
+                        result.getThroughput(), result.getLatency(), allocationReport);
+            }
+        }
+    }
+
+    private static int serverPort(ClientSettings settings) {
+        final URI uri = URI.create(settings.getBalanceUrl());
+        return uri.getPort() > 0 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+    }
+
+    private static void doSubmitterTest(WebClient httpRequestTest, ResponseStats stats, AllocationStats allocationStats,
+                                        ResultsWriter results, String testName, int requestInBatch, int batchCount, int period,
+                                        String submitters) throws InterruptedException {
+        final SubmitterLoadGenerator generator = new SubmitterLoadGenerator(httpRequestTest, stats);
+
+        LOG.info("(%s) Warmup").with(testName);
+        generator.run(1, 2, requestInBatch, 100);
+
+        LOG.info("\n\n");
+        if ("sweep".equals(submitters)) {
+            final int cores = Runtime.getRuntime().availableProcessors();
+            LOG.info("(%s) Start Submitter Sweep 1..%s").with(testName).with(cores);
+
+            final StringBuilder table = new StringBuilder(256).append(SubmitterLoadGenerator.Result.header());
+            for (int n = 1; n <= cores; n++) {
+                final SubmitterLoadGenerator.Result result = generator.run(n, batchCount, requestInBatch, period);
+                LOG.info("Sweep step: %s").with(result);
+                table.append('\n').append(result);
+                if (results != null) {
+                    results.record(testName + "@" + n + "submitters", "sweep", result.getRequestCount(),
+                            result.getFailureCount(), result.getThroughput(), result.getLatency(), null);
+                }
+            }
+            LOG.info("(%s) Submitter Scaling: \n%s\n\n").with(testName).with(table);
+        } else {
+            final int submitterCount = Integer.parseInt(submitters);
+            LOG.info("(%s) Start Experiment with %s submitters").with(testName).with(submitterCount);
+
+            allocationStats.start();
+            final SubmitterLoadGenerator.Result result = generator.run(submitterCount, batchCount, requestInBatch, period);
+            final AllocationStats.Report allocationReport = allocationStats.stop(result.getRequestCount());
+
+            for (int i = 0; i < submitterCount; i++) {
+                LOG.info("(%s) Balance Requests Submission Stats of submitter-%s: \n%s")
+                        .with(testName).with(i).with(toString(result.getSubmissions()[i]));
+            }
+            LOG.info("(%s) Balance Requests Submission Stats (all submitters): \n%s")
+                    .with(testName).with(toString(result.getSubmission()));
+            LOG.info("(%s) Submitter Results: \n%s\n%s").with(testName)
+                    .with(SubmitterLoadGenerator.Result.header()).with(result);
+            LOG.info("(%s) Balance Requests Response Stats (failed: %s): \n%s")
+                    .with(testName).with(result.getFailureCount()).with(toString(result.getLatency()));
+            reportPhases(stats, results, testName, "submitters-" + submitterCount, result.getFailureCount());
+            reportEndpoints(stats, results, testName, "submitters-" + submitterCount);
+            LOG.info("(%s) Allocation and GC Stats: \n%s\n\n").with(testName).with(allocationReport);
+            if (results != null) {
+                results.record(testName, "submitters-" + submitterCount, result.getRequestCount(),
+                        result.getFailureCount(), result.getThroughput(), result.getLatency(), allocationReport);
+            }
+        }
+    }
+
+    private static void doTest(WebClient httpRequestTest, ResponseStats stats, AllocationStats allocationStats,
+                               ResultsWriter results, String testName,
                                int warmupCount, int requestInBatch, int batchCount, int period) throws InterruptedException {
         final long maxDuration = 100 * 1_000_000L;
         final Histogram histogram = new Histogram(maxDuration, 3);
@@ -72,9 +507,12 @@ public class WebClientTest {
         }
 
         Thread.sleep(2000);
+        stats.reset();
 
         LOG.info("\n\n");
-        LOG.info("(%s) Start Experiment").with(clientType);
+        LOG.info("(%s) Start Experiment").with(testName);
+        allocationStats.start();
+        final long experimentStartTime = System.nanoTime();
         for (int i = 0; i < batchCount; i++) {
             if (i > 0) {
                 Thread.sleep(period);
@@ -83,7 +521,7 @@ public class WebClientTest {
             for (int j = 0; j < requestInBatch; j++) {
                 final long startTime = System.nanoTime();
 
-                httpRequestTest.executeRequest();
+                httpRequestTest.executeRequest(startTime);
 
                 final long duration = System.nanoTime() - startTime;
                 if (duration < maxDuration) {
@@ -91,18 +529,111 @@ public class WebClientTest {
                 }
             }
         }
-        LOG.info("(%s) Finish Experiment").with(clientType);
-        LOG.info("(%s) Responses are not received so far: %s").with(clientType).with(latch.getCount());
+        final long requestCount = (long) warmupCount * requestInBatch + (long) batchCount * requestInBatch;
+        LOG.info("(%s) Finish Experiment").with(testName);
+        LOG.info("(%s) Responses are not received so far: %s").with(testName).with(requestCount - stats.getCompletedCount());
 
-        LOG.info("(%s) Balance Requests Stats: \n%s").with(clientType).with(toString(histogram));
+        LOG.info("(%s) Balance Requests Submission Stats: \n%s").with(testName).with(toString(histogram));
 
-        if (latch.await(2, TimeUnit.MINUTES)) {
-            LOG.info("(%s) All responses successfully received.\n\n").with(clientType);
+        final boolean completed = stats.awaitCompletions(requestCount, 2, TimeUnit.MINUTES);
+        final long experimentDuration = System.nanoTime() - experimentStartTime;
+        final long experimentRequestCount = (long) batchCount * requestInBatch;
+        final AllocationStats.Report allocationReport = allocationStats.stop(experimentRequestCount);
+        if (completed) {
+            LOG.info("(%s) All responses successfully received.").with(testName);
         } else {
-            LOG.error("(%s) %s responses still not received!\n\n").with(clientType).with(latch.getCount());
+            LOG.error("(%s) %s responses still not received!").with(testName).with(requestCount - stats.getCompletedCount());
+        }
+
+        final long failureCount = stats.getFailureCount();
+        final Histogram latency = stats.getIntervalHistogram();
+        LOG.info("(%s) Balance Requests Response Stats (failed: %s): \n%s")
+                .with(testName).with(failureCount).with(toString(latency));
+        reportPhases(stats, results, testName, "batch", failureCount);
+        reportEndpoints(stats, results, testName, "batch");
+        LOG.info("(%s) Allocation and GC Stats: \n%s\n\n").with(testName).with(allocationReport);
+        if (results != null) {
+            results.record(testName, "batch", experimentRequestCount, failureCount,
+                    (experimentRequestCount - failureCount) * 1e9 / experimentDuration, latency, allocationReport);
+        }
+    }
+
+    /**
+     * Logs the phase durations of the client (if any) and records every phase as a result named {@code testName/phase}.
+     */
+    private static void reportPhases(ResponseStats stats, ResultsWriter results, String testName, String mode, long failureCount) {
+        final Map<RequestPhase, Histogram> phases = stats.getPhaseHistograms();
+        if (phases.isEmpty()) {
+            return;
+        }
+
+        final StringBuilder table = new StringBuilder(512).append(ColdStartBenchmark.Result.header());
+        for (Map.Entry<RequestPhase, Histogram> phase : phases.entrySet()) {
+            table.append('\n').append(ColdStartBenchmark.Result.row(phase.getKey().name(), phase.getValue()));
+        }
+        LOG.info("(%s) Request Phases: \n%s").with(testName).with(table);
+
+        if (results != null) {
+            for (Map.Entry<RequestPhase, Histogram> phase : phases.entrySet()) {
+                final Histogram latency = phase.getValue();
+                results.record(testName + "/" + phase.getKey(), mode, latency.getTotalCount(), failureCount,
+                        Double.NaN, latency, null);
+            }
         }
     }
 
+    /**
+     * Logs the latency and failures per endpoint of a mixed workload (if any) and records every endpoint
+     * as a result named {@code testName/endpoint}.
+     */
+    private static void reportEndpoints(ResponseStats stats, ResultsWriter results, String testName, String mode) {
+        final Map<Endpoint, Histogram> endpoints = stats.getEndpointHistograms();
+        if (endpoints.isEmpty()) {
+            return;
+        }
+
+        final StringBuilder table = new StringBuilder(512).append(ColdStartBenchmark.Result.header())
+                .append(String.format(" %8s", "Failed"));
+        for (Map.Entry<Endpoint, Histogram> endpoint : endpoints.entrySet()) {
+            table.append('\n').append(ColdStartBenchmark.Result.row(endpoint.getKey().getName(), endpoint.getValue()))
+                    .append(String.format(" %8d", stats.getEndpointFailureCount(endpoint.getKey())));
+        }
+        LOG.info("(%s) Endpoints: \n%s").with(testName).with(table);
+
+        if (results != null) {
+            for (Map.Entry<Endpoint, Histogram> endpoint : endpoints.entrySet()) {
+                final Histogram latency = endpoint.getValue();
+                results.record(testName + "/" + endpoint.getKey().getName(), mode, latency.getTotalCount(),
+                        stats.getEndpointFailureCount(endpoint.getKey()), Double.NaN, latency, null);
+            }
+        }
+    }
+
+    /**
+     * Logs the handoff time of the response offload during the whole run and records it as {@code testName/handoff}.
+     */
+    private static void reportOffload(OffloadingListener offload, ResultsWriter results, String testName) {
+        final Histogram handoff = offload.getHandoffHistogram();
+        LOG.info("(%s) Response Offload (whole run, ring full: %s): \n%s\n%s\n\n").with(testName)
+                .with(offload.getFullWaitCount()).with(ColdStartBenchmark.Result.header())
+                .with(ColdStartBenchmark.Result.row("handoff", handoff));
+        if (results != null) {
+            results.record(testName + "/handoff", "offload", handoff.getTotalCount(), 0, Double.NaN, handoff, null);
+        }
+    }
+
+    private static String testName(WebClientType clientType, ClientSettings settings) {
+        final String testName = clientType + " " + settings.getProtocol();
+        return settings.getTlsProvider() == TlsProvider.JDK ? testName : testName + " " + settings.getTlsProvider();
+    }
+
+    /**
+     * Comma-separated CPU ids, e.g. "2,3".
+     */
+    private static int[] parseCpus(String value) {
+        return value.isEmpty() ? new int[0] : Arrays.stream(value.split(",")).mapToInt(cpu -> Integer.parseInt(cpu.trim())).toArray();
+    }
+
     private static WebClientType[] parseClientTypes(String value) {
         final String[] types = value.split(",");
         final WebClientType[] result = new WebClientType[types.length];
@@ -112,29 +643,6 @@ public class WebClientTest {
         return result;
     }
 
-    private static WebClient createWebClient(WebClientType testType, String apiKey, String apiSecret,
-                                             int ioThreadCount, boolean useNativeTransport,
-                                             CountDownLatch latch) throws Exception {
-        final WebClient httpRequestTest;
-        switch (testType) {
-            case NETTY:
-                httpRequestTest = KrakenfutUtil.createNettyClient(ioThreadCount, useNativeTransport, apiKey, apiSecret, latch, LOG);
-                break;
-            case OKHTTP:
-                httpRequestTest = KrakenfutUtil.createOkhttpClient(ioThreadCount, apiKey, apiSecret, latch, LOG);
-                break;
-            case JAVA:
-                httpRequestTest = KrakenfutUtil.createJavaClient(ioThreadCount, apiKey, apiSecret, latch, LOG);
-                break;
-            case APACHE:
-                httpRequestTest = KrakenfutUtil.createApacheClient(apiKey, apiSecret, latch, LOG);
-                break;
-            default:
-                httpRequestTest = KrakenfutUtil.createAhcClient(ioThreadCount, useNativeTransport, apiKey, apiSecret, latch, LOG);
-        }
-        return httpRequestTest;
-    }
-
     private static final double[] PERCENTILES = new double[]{
             0.0, 10.0, 20.0, 30.0, 40.0, 50.0, 60.0, 70.0, 80.0, 90.0, 99.0, 99.9, 99.99, 99.999, 100.0
     };
@@ -0,0 +1,9 @@
+package deltix.web.client;
+
+public enum WebClientType {
+    AHC, NETTY, OKHTTP, APACHE, JAVA,
+    /**
+     * Blocking APIs on a virtual thread per request, require Java 21.
+     */
+    OKHTTP_VT, APACHE_VT, JAVA_VT
+}
@@ -0,0 +1,421 @@
+package deltix.web.client.hedge;
+
+import deltix.web.client.Endpoint;
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
+import deltix.web.client.ResponseStats;
+import deltix.web.client.WebClient;
+import deltix.web.client.WebClientFactory;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorator which cuts the latency tail with hedged requests: a request which is not completed within the hedge
+ * delay is sent once more by a second client of the factory, i.e. on other connections, and the first successful
+ * completion is passed on. The completion of the loser is discarded.
+ * <p>
+ * The delay is a percentile of the latency of the passed on responses, refreshed every second within the min and max
+ * delay, the max delay applies till enough responses are recorded. Hedges are paid from a budget which grows with
+ * every request, so they stay within a share of the requests plus a burst.
+ * <p>
+ * Every request keeps its state in the listener it is sent with ({@link WebClient#executeRequest(long, ResponseListener)}),
+ * so the clients of the factory must support per-request listeners. A failure is passed on only if the other request
+ * can't complete it. The deadline of a request is a timeout of a {@link HashedWheelTimer} (the "hedge-timer" thread,
+ * 1 ms ticks): scheduling it takes no lock on the calling thread and the completion of the request cancels it,
+ * so only the outstanding requests stay in the wheel.
+ */
+public final class HedgedWebClient implements WebClient {
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // a second of deadlines per round of the wheel
+    private static final int TICKS_PER_WHEEL = 1024;
+    private static final int MIN_SAMPLES = 100;
+    // budget in thousandths of a hedge
+    private static final long HEDGE_COST = 1000;
+
+    private final ResponseListener listener;
+    private final double percentile;
+    private final long minDelay;
+    private final long maxDelay;
+    private final long budgetDeposit;
+    private final long maxBudget;
+    private final WebClient client;
+    private final WebClient hedgeClient;
+
+    private final HashedWheelTimer timer;
+    private final AtomicLong budget;
+    private final Recorder recorder = new Recorder(ResponseStats.MAX_LATENCY, 3);
+    // latency samples of the delay, used by the timer thread only
+    private final Histogram samples = new Histogram(ResponseStats.MAX_LATENCY, 3);
+    private Histogram interval;
+    private volatile long delay;
+
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder won = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    public HedgedWebClient(Settings settings, ResponseListener listener, WebClientFactory factory) throws Exception {
+        if (settings.getMinDelay() <= 0 || settings.getMaxDelay() < settings.getMinDelay()) {
+            throw new IllegalArgumentException("Invalid hedge delays: " + settings);
+        }
+
+        this.listener = listener;
+        this.percentile = settings.getPercentile();
+        this.minDelay = settings.getMinDelay();
+        this.maxDelay = settings.getMaxDelay();
+        this.delay = maxDelay;
+        this.budgetDeposit = Math.round(settings.getBudgetRatio() * HEDGE_COST);
+        this.maxBudget = settings.getBudgetBurst() * HEDGE_COST;
+        this.budget = new AtomicLong(maxBudget);
+
+        this.client = factory.create(new CompletionListener(false));
+        try {
+            this.hedgeClient = factory.create(new CompletionListener(true));
+        } catch (Exception e) {
+            client.close();
+            throw e;
+        }
+
+        timer = new HashedWheelTimer(runnable -> {
+            final Thread thread = new Thread(runnable, "hedge-timer");
+            thread.setDaemon(true);
+            return thread;
+        }, TICK_NANOS, TimeUnit.NANOSECONDS, TICKS_PER_WHEEL);
+        timer.newTimeout(this::refreshDelay, REFRESH_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void executeRequest(long startTime) {
+        depositBudget();
+
+        final Request request = new Request(startTime);
+        request.timeout = timer.newTimeout(request, delay, TimeUnit.NANOSECONDS);
+        client.executeRequest(startTime, request);
+    }
+
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        client.preconnect(connectionCount);
+        hedgeClient.preconnect(connectionCount);
+    }
+
+    @Override
+    public void close() throws IOException {
+        timer.stop();
+
+        try {
+            client.close();
+        } finally {
+            hedgeClient.close();
+        }
+    }
+
+    /**
+     * Returns the number of hedges sent.
+     */
+    public long getHedgedCount() {
+        return hedged.sum();
+    }
+
+    /**
+     * Returns the number of hedges which completed their request first.
+     */
+    public long getWonCount() {
+        return won.sum();
+    }
+
+    /**
+     * Returns the number of hedges skipped for the lack of budget.
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.sum();
+    }
+
+    /**
+     * Current hedge delay in ns.
+     */
+    public long getDelay() {
+        return delay;
+    }
+
+    private void depositBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current >= maxBudget) {
+                return;
+            }
+        } while (!budget.compareAndSet(current, Math.min(current + budgetDeposit, maxBudget)));
+    }
+
+    private boolean withdrawBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - HEDGE_COST));
+        return true;
+    }
+
+    private void refundBudget() {
+        long current;
+        do {
+            current = budget.get();
+        } while (!budget.compareAndSet(current, Math.min(current + HEDGE_COST, maxBudget)));
+    }
+
+    private void passOnCompletion(long startTime, int statusCode, Throwable error, boolean fromHedge) {
+        if (fromHedge) {
+            won.increment();
+        }
+        if (error == null) {
+            if (statusCode == 200) {
+                recorder.recordValue(Math.min(System.nanoTime() - startTime, ResponseStats.MAX_LATENCY));
+            }
+            listener.onResponse(startTime, statusCode);
+        } else {
+            listener.onFailure(startTime, error);
+        }
+    }
+
+    /**
+     * Sets the delay to the percentile of the latency recorded since the last refresh with enough samples,
+     * runs every second on the timer thread.
+     */
+    private void refreshDelay(Timeout timeout) {
+        interval = recorder.getIntervalHistogram(interval);
+        samples.add(interval);
+        if (samples.getTotalCount() >= MIN_SAMPLES) {
+            delay = Math.max(minDelay, Math.min(maxDelay, samples.getValueAtPercentile(percentile)));
+            samples.reset();
+        }
+        try {
+            timeout.timer().newTimeout(this::refreshDelay, REFRESH_NANOS, TimeUnit.NANOSECONDS);
+        } catch (IllegalStateException e) {
+            // stopped by close()
+        }
+    }
+
+    /**
+     * State of a request and the listener of its first send: the count of outstanding sends and whether
+     * the completion is passed on, updated with CAS by the IO threads of both clients and by the timer.
+     * The timeout of the hedge delay is cancelled when the completion is passed on.
+     */
+    private final class Request implements ResponseListener, TimerTask {
+        private static final int DONE = 1 << 8;
+        private static final int OUTSTANDING_MASK = DONE - 1;
+
+        private final long startTime;
+        // set before the first send
+        private Timeout timeout;
+        volatile int state = 1;
+
+        private Request(long startTime) {
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void onResponse(long startTime, int statusCode) {
+            complete(statusCode, null, false);
+        }
+
+        @Override
+        public void onFailure(long startTime, Throwable error) {
+            complete(0, error, false);
+        }
+
+        private void complete(int statusCode, Throwable error, boolean fromHedge) {
+            final boolean successful = error == null && statusCode == 200;
+            int current;
+            int next;
+            do {
+                current = state;
+                final int outstanding = (current & OUTSTANDING_MASK) - 1;
+                // an unsuccessful completion waits for the other send, if any
+                final boolean passOn = (current & DONE) == 0 && (successful || outstanding == 0);
+                next = outstanding | (passOn ? DONE : current & DONE);
+            } while (!STATE.compareAndSet(this, current, next));
+
+            if ((current & DONE) == 0 && (next & DONE) != 0) {
+                timeout.cancel();
+                passOnCompletion(startTime, statusCode, error, fromHedge);
+            }
+        }
+
+        /**
+         * Sends the hedge when the delay expires.
+         */
+        @Override
+        public void run(Timeout timeout) {
+            if ((state & DONE) != 0) {
+                return;
+            }
+            if (!withdrawBudget()) {
+                budgetExhausted.increment();
+                return;
+            }
+
+            int current;
+            do {
+                current = state;
+                if ((current & DONE) != 0) {
+                    refundBudget(); // completed in the meantime
+                    return;
+                }
+            } while (!STATE.compareAndSet(this, current, current + 1));
+
+            hedged.increment();
+            hedgeClient.executeRequest(startTime, new HedgeListener(this));
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<Request> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Request.class, "state");
+
+    /**
+     * Listener of a hedge, allocated only when the hedge is sent.
+     */
+    private static final class HedgeListener implements ResponseListener {
+        private final Request request;
+
+        private HedgeListener(Request request) {
+            this.request = request;
+        }
+
+        @Override
+        public void onResponse(long startTime, int statusCode) {
+            request.complete(statusCode, null, true);
+        }
+
+        @Override
+        public void onFailure(long startTime, Throwable error) {
+            request.complete(0, error, true);
+        }
+    }
+
+    /**
+     * Listener of a client: passes on the completions of requests which were not sent by the decorator,
+     * phases of the hedges are not reported.
+     */
+    private final class CompletionListener implements ResponseListener {
+        private final boolean hedge;
+
+        private CompletionListener(boolean hedge) {
+            this.hedge = hedge;
+        }
+
+        @Override
+        public void onResponse(long startTime, int statusCode) {
+            listener.onResponse(startTime, statusCode);
+        }
+
+        @Override
+        public void onFailure(long startTime, Throwable error) {
+            listener.onFailure(startTime, error);
+        }
+
+        @Override
+        public void onPhase(RequestPhase phase, long duration) {
+            if (!hedge) {
+                listener.onPhase(phase, duration);
+            }
+        }
+
+        @Override
+        public void onEndpoint(Endpoint endpoint, long startTime, boolean failed) {
+            if (!hedge) {
+                listener.onEndpoint(endpoint, startTime, failed);
+            }
+        }
+    }
+
+    public static final class Settings {
+        private double percentile = 95;
+        private long minDelay = TimeUnit.MILLISECONDS.toNanos(1);
+        private long maxDelay = TimeUnit.SECONDS.toNanos(1);
+        private double budgetRatio = 0.05;
+        private long budgetBurst = 10;
+
+        /**
+         * Percentile of the response latency which is the hedge delay.
+         */
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public Settings setPercentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Min hedge delay in ns.
+         */
+        public long getMinDelay() {
+            return minDelay;
+        }
+
+        public Settings setMinDelay(long minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        /**
+         * Max hedge delay in ns, the delay till enough responses are recorded.
+         */
+        public long getMaxDelay() {
+            return maxDelay;
+        }
+
+        public Settings setMaxDelay(long maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Hedges per request the budget grows by, e.g. 0.05 for at most 5% more requests.
+         */
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public Settings setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        /**
+         * Max hedges of the budget, the budget is full at the start.
+         */
+        public long getBudgetBurst() {
+            return budgetBurst;
+        }
+
+        public Settings setBudgetBurst(long budgetBurst) {
+            this.budgetBurst = budgetBurst;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Settings{" +
+                    "percentile=" + percentile +
+                    ", minDelay=" + minDelay +
+                    ", maxDelay=" + maxDelay +
+                    ", budgetRatio=" + budgetRatio +
+                    ", budgetBurst=" + budgetBurst +
+                    '}';
+        }
+    }
+}
@@ -1,29 +1,53 @@
 package deltix.web.client.http;
 
-import com.epam.deltix.gflog.api.Log;
+import deltix.web.client.BalanceParser;
+import deltix.web.client.ClientSettings;
+import deltix.web.client.IoTransport;
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
 import deltix.web.client.WebClient;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import org.asynchttpclient.*;
+import org.asynchttpclient.netty.LazyResponseBodyPart;
+import org.asynchttpclient.netty.request.NettyRequest;
 
+import javax.net.ssl.SSLSession;
 import java.io.IOException;
-import java.util.concurrent.CountDownLatch;
-import java.util.function.BiFunction;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public final class AhcHttpClient implements WebClient {
     private final AsyncHttpClient client;
-    private final Request request;
-    private final BiFunction<Response, Throwable, Response> responseHandler;
+    private final String balanceUrl;
+    private final Supplier<Request> requests;
+    private final AhcResponseHandler responseHandler;
+    private final boolean phaseTiming;
 
-    public AhcHttpClient(int ioThreadCount, boolean useNativeTransport,
-                         RequestBuilder request,
-                         BiFunction<Response, Throwable, Response> responseHandler) throws Exception {
-        this.request = request.build();
+    public AhcHttpClient(ClientSettings settings,
+                         Supplier<Request> requests,
+                         AhcResponseHandler responseHandler) throws Exception {
+        this.balanceUrl = settings.getBalanceUrl();
+        this.requests = requests;
         this.responseHandler = responseHandler;
+        this.phaseTiming = settings.isPhaseTiming();
+        if (settings.getTransport() == IoTransport.IO_URING) {
+            throw new UnsupportedOperationException("AHC has no io_uring transport");
+        }
 
-        final SslContext sslContext = SslContextBuilder.forClient()
-                .protocols("TLSv1.3")
-                .build();
+        // AHC creates the engines, so the finalizer-based OpenSSL provider
+        final SslContextBuilder sslContextBuilder = SslContextBuilder.forClient()
+                .sslProvider(TlsUtil.nettySslProvider(settings, false))
+                .protocols("TLSv1.3");
+        if (settings.isTrustAllCertificates()) {
+            sslContextBuilder.trustManager(InsecureTrustManagerFactory.INSTANCE);
+        }
+        final SslContext sslContext = sslContextBuilder.build();
 
         final DefaultAsyncHttpClientConfig.Builder httpClientConfig = Dsl.config();
         httpClientConfig.setThreadPoolName("KRAKEN");
@@ -34,23 +58,45 @@ public final class AhcHttpClient implements WebClient {
         httpClientConfig.setCookieStore(null);
         httpClientConfig.setValidateResponseHeaders(false);
         httpClientConfig.setDisableUrlEncodingForBoundRequests(true);
+        // body parts wrap the Netty buffers instead of copying them into arrays
+        httpClientConfig.setResponseBodyPartFactory(AsyncHttpClientConfig.ResponseBodyPartFactory.LAZY);
 
         httpClientConfig.setSslContext(sslContext);
-        httpClientConfig.setUseNativeTransport(useNativeTransport);
+        httpClientConfig.setDisableHttpsEndpointIdentificationAlgorithm(settings.isTrustAllCertificates());
+        // epoll, busy-poll and CPU pinning apply to the Netty clients only
+        httpClientConfig.setUseNativeTransport(settings.isUseNativeTransport());
 
         //httpClientConfig.setMaxConnections(512); // by default - 200
         //httpClientConfig.setMaxConnectionsPerHost(512); // by default - unlimited
 
-        if (ioThreadCount > 0) {
-            httpClientConfig.setIoThreadsCount(ioThreadCount);
+        if (settings.getIoThreadCount() > 0) {
+            httpClientConfig.setIoThreadsCount(settings.getIoThreadCount());
         }
 
         client = Dsl.asyncHttpClient(httpClientConfig);
     }
 
     @Override
-    public void executeRequest() {
-        client.executeRequest(request).toCompletableFuture().handle(responseHandler);
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, responseHandler.listener);
+    }
+
+    @Override
+    public void executeRequest(long startTime, ResponseListener listener) {
+        client.executeRequest(requests.get(), phaseTiming ?
+                new PhaseTimingCallback(startTime, listener, responseHandler) : new ResponseCallback(startTime, listener, responseHandler));
+    }
+
+    /**
+     * Concurrent HEAD requests, the channel pool opens a channel for every request in flight.
+     */
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        final List<Future<?>> responses = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            responses.add(client.prepareHead(balanceUrl).execute());
+        }
+        PreconnectUtil.awaitAll(responses);
     }
 
     @Override
@@ -58,27 +104,167 @@ public final class AhcHttpClient implements WebClient {
         client.close();
     }
 
-    public static class AhcResponseHandler implements BiFunction<Response, Throwable, Response> {
-        private final CountDownLatch latch;
-        private final Log logger;
+    public static class AhcResponseHandler {
+        private final ResponseListener listener;
+
+        public AhcResponseHandler(ResponseListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * @param listener listener of the request, see {@link WebClient#executeRequest(long, ResponseListener)}
+         */
+        public void completed(long startTime, ResponseListener listener, int statusCode, BalanceParser parser) {
+            if (parser != null && parser.isValid(statusCode)) {
+                listener.onResponse(startTime, statusCode);
+            } else {
+                listener.onFailure(startTime, BalanceParser.malformedResponse());
+            }
+        }
+
+        public void failed(long startTime, ResponseListener listener, Throwable throwable) {
+            listener.onFailure(startTime, throwable);
+        }
+    }
 
-        public AhcResponseHandler(CountDownLatch latch, Log logger) {
-            this.latch = latch;
-            this.logger = logger;
+    /**
+     * Streams body parts through a pooled balance parser, parts of responses of different channels interleave
+     * on an event loop.
+     */
+    private static class ResponseCallback implements AsyncHandler<Void> {
+        private final long startTime;
+        private final ResponseListener listener;
+        private final AhcResponseHandler responseHandler;
+        // taken by the event loop with the status, it parses the body parts
+        private BalanceParser parser;
+        private int statusCode;
+        private boolean released;
+
+        ResponseCallback(long startTime, ResponseListener listener, AhcResponseHandler responseHandler) {
+            this.startTime = startTime;
+            this.listener = listener;
+            this.responseHandler = responseHandler;
+        }
+
+        @Override
+        public State onStatusReceived(HttpResponseStatus responseStatus) {
+            statusCode = responseStatus.getStatusCode();
+            if (parser == null) {
+                parser = BalanceParser.acquire();
+            }
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onHeadersReceived(HttpHeaders headers) {
+            return State.CONTINUE;
+        }
+
+        @Override
+        public State onBodyPartReceived(HttpResponseBodyPart bodyPart) {
+            if (bodyPart instanceof LazyResponseBodyPart) {
+                parser.parse(((LazyResponseBodyPart) bodyPart).getBuf());
+            } else {
+                parser.parse(bodyPart.getBodyByteBuffer());
+            }
+            return State.CONTINUE;
+        }
+
+        @Override
+        public void onThrowable(Throwable t) {
+            if (release()) {
+                responseHandler.failed(startTime, listener, t);
+            }
         }
 
         @Override
-        public Response apply(Response response, Throwable throwable) {
-            latch.countDown();
+        public Void onCompleted() {
+            try {
+                responseHandler.completed(startTime, listener, statusCode, parser);
+            } finally {
+                release();
+            }
+            return null;
+        }
 
-            if (throwable != null) {
-                logger.error().append(throwable).commit();
-                return response;
+        private boolean release() {
+            if (released) {
+                return false;
             }
-            if (response.getStatusCode() != 200) {
-                logger.error("Response is not successful: %s").with(response.getStatusCode());
+            released = true;
+            if (parser != null) {
+                parser.release();
+                parser = null;
             }
-            return response;
+            return true;
+        }
+    }
+
+    /**
+     * Reports the phases from the connection and request events of AHC. AHC has no event for the end of the write,
+     * so the server wait includes the write.
+     */
+    private static final class PhaseTimingCallback extends ResponseCallback {
+        private final ResponseListener phaseListener;
+        private long dnsStartTime;
+        private long connectStartTime;
+        private long tlsStartTime;
+        private long writeStartTime;
+        private long firstByteTime;
+
+        private PhaseTimingCallback(long startTime, ResponseListener listener, AhcResponseHandler responseHandler) {
+            super(startTime, listener, responseHandler);
+            this.phaseListener = responseHandler.listener;
+        }
+
+        @Override
+        public void onHostnameResolutionAttempt(String name) {
+            dnsStartTime = System.nanoTime();
+        }
+
+        @Override
+        public void onHostnameResolutionSuccess(String name, List<InetSocketAddress> addresses) {
+            phaseListener.onPhase(RequestPhase.DNS, System.nanoTime() - dnsStartTime);
+        }
+
+        @Override
+        public void onTcpConnectAttempt(InetSocketAddress remoteAddress) {
+            connectStartTime = System.nanoTime();
+        }
+
+        @Override
+        public void onTcpConnectSuccess(InetSocketAddress remoteAddress, io.netty.channel.Channel connection) {
+            phaseListener.onPhase(RequestPhase.CONNECT, System.nanoTime() - connectStartTime);
+        }
+
+        @Override
+        public void onTlsHandshakeAttempt() {
+            tlsStartTime = System.nanoTime();
+        }
+
+        @Override
+        public void onTlsHandshakeSuccess(SSLSession sslSession) {
+            phaseListener.onPhase(RequestPhase.TLS, System.nanoTime() - tlsStartTime);
+        }
+
+        @Override
+        public void onRequestSend(NettyRequest request) {
+            writeStartTime = System.nanoTime();
+            phaseListener.onPhase(RequestPhase.QUEUE, writeStartTime - super.startTime);
+        }
+
+        @Override
+        public State onStatusReceived(HttpResponseStatus responseStatus) {
+            firstByteTime = System.nanoTime();
+            phaseListener.onPhase(RequestPhase.SERVER_WAIT, firstByteTime - writeStartTime);
+            phaseListener.onPhase(RequestPhase.FIRST_BYTE, firstByteTime - super.startTime);
+            return super.onStatusReceived(responseStatus);
+        }
+
+        @Override
+        public Void onCompleted() {
+            phaseListener.onPhase(RequestPhase.BODY, System.nanoTime() - firstByteTime);
+            return super.onCompleted();
         }
     }
 }
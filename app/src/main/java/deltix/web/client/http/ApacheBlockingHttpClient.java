@@ -0,0 +1,119 @@
+package deltix.web.client.http;
+
+import deltix.web.client.BalanceParser;
+import deltix.web.client.ClientSettings;
+import deltix.web.client.HttpProtocol;
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
+import deltix.web.client.WebClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Blocking Apache classic client on a virtual thread per request. The request is built and signed by the calling thread.
+ */
+public final class ApacheBlockingHttpClient implements WebClient {
+    private final CloseableHttpClient client;
+    private final String balanceUrl;
+    private final Supplier<ClassicHttpRequest> requests;
+    private final ResponseListener listener;
+    private final ExecutorService executor;
+    private final boolean phaseTiming;
+
+    public ApacheBlockingHttpClient(ClientSettings settings, Supplier<ClassicHttpRequest> requests, ResponseListener listener) throws Exception {
+        if (settings.getProtocol() != HttpProtocol.HTTP_1_1) {
+            throw new UnsupportedOperationException("Apache classic client supports HTTP/1.1 only");
+        }
+
+        this.balanceUrl = settings.getBalanceUrl();
+        this.requests = requests;
+        this.listener = listener;
+        this.executor = VirtualThreadUtil.newVirtualThreadPerTaskExecutor();
+        this.phaseTiming = settings.isPhaseTiming();
+
+        final PoolingHttpClientConnectionManagerBuilder connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(512)
+                .setMaxConnPerRoute(512);
+        if (TlsUtil.isCustomSslContext(settings)) {
+            final SSLConnectionSocketFactory socketFactory = SSLConnectionSocketFactoryBuilder.create()
+                    .setSslContext(TlsUtil.sslContext(settings))
+                    .setHostnameVerifier(settings.isTrustAllCertificates() ? NoopHostnameVerifier.INSTANCE : null)
+                    .build();
+            connectionManager.setSSLSocketFactory(socketFactory);
+        }
+
+        client = HttpClients.custom()
+                .disableCookieManagement()
+                .disableAuthCaching()
+                .setConnectionManager(connectionManager.build())
+                .build();
+    }
+
+    @Override
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, listener);
+    }
+
+    @Override
+    public void executeRequest(long startTime, ResponseListener requestListener) {
+        final ClassicHttpRequest request = requests.get();
+        executor.execute(() -> {
+            try {
+                final int statusCode = client.execute(request, response -> {
+                    // the handler is called with the response head, it reads the body
+                    final long firstByteTime = phaseTiming ? System.nanoTime() : 0;
+                    if (phaseTiming) {
+                        listener.onPhase(RequestPhase.FIRST_BYTE, firstByteTime - startTime);
+                    }
+                    final BalanceParser parser = BalanceParser.acquire();
+                    try (InputStream content = response.getEntity() != null ? response.getEntity().getContent() : null) {
+                        if (content != null) {
+                            parser.parse(content);
+                        }
+                        if (!parser.isValid(response.getCode())) {
+                            throw BalanceParser.malformedResponse();
+                        }
+                        if (phaseTiming) {
+                            listener.onPhase(RequestPhase.BODY, System.nanoTime() - firstByteTime);
+                        }
+                        return response.getCode();
+                    } finally {
+                        parser.release();
+                    }
+                });
+                requestListener.onResponse(startTime, statusCode);
+            } catch (Exception e) {
+                requestListener.onFailure(startTime, e);
+            }
+        });
+    }
+
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        final List<Future<?>> responses = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            responses.add(executor.submit(() -> client.execute(ClassicRequestBuilder.head(balanceUrl).build(), response -> null)));
+        }
+        PreconnectUtil.awaitAll(responses);
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        client.close();
+    }
+}
@@ -1,44 +1,106 @@
 package deltix.web.client.http;
 
-import com.epam.deltix.gflog.api.Log;
+import deltix.web.client.BalanceParser;
+import deltix.web.client.ClientSettings;
+import deltix.web.client.HttpProtocol;
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
 import deltix.web.client.WebClient;
 import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
-import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.utils.URIUtils;
 import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
 import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
 
 import java.io.IOException;
-import java.util.concurrent.CountDownLatch;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public final class ApacheHttpClient implements WebClient {
     private static final HttpContext CONTEXT = HttpClientContext.create();
 
     private final CloseableHttpAsyncClient client;
-    private final FutureCallback<SimpleHttpResponse> responseHandler;
-    private final SimpleHttpRequest request;
+    private final String balanceUrl;
+    private final ApacheResponseHandler responseHandler;
+    private final Supplier<SimpleHttpRequest> requests;
+    private final boolean phaseTiming;
 
-    public ApacheHttpClient(SimpleHttpRequest request, FutureCallback<SimpleHttpResponse> responseHandler) {
-        this.request = request;
+    public ApacheHttpClient(ClientSettings settings, Supplier<SimpleHttpRequest> requests, ApacheResponseHandler responseHandler) throws Exception {
+        this.balanceUrl = settings.getBalanceUrl();
+        this.requests = requests;
         this.responseHandler = responseHandler;
+        this.phaseTiming = settings.isPhaseTiming();
+
+        final TlsStrategy tlsStrategy = TlsUtil.isCustomSslContext(settings) ?
+                ClientTlsStrategyBuilder.create()
+                        .setSslContext(TlsUtil.sslContext(settings))
+                        .setHostnameVerifier(settings.isTrustAllCertificates() ? NoopHostnameVerifier.INSTANCE : null)
+                        .build() :
+                DefaultClientTlsStrategy.getDefault();
 
         // by default HttpClient uses CachedThreadPool with no limits
-        client = HttpAsyncClients.custom()
-                .disableCookieManagement()
-                .disableAuthCaching()
-                .build();
+        if (settings.getProtocol() == HttpProtocol.H2) {
+            client = HttpAsyncClients.customHttp2()
+                    .disableCookieManagement()
+                    .disableAuthCaching()
+                    .setTlsStrategy(tlsStrategy)
+                    .build();
+        } else {
+            client = HttpAsyncClients.custom()
+                    .disableCookieManagement()
+                    .disableAuthCaching()
+                    .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                            .setTlsStrategy(tlsStrategy)
+                            .setDefaultTlsConfig(TlsConfig.custom()
+                                    .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_1)
+                                    .build())
+                            .build())
+                    .build();
+        }
         client.start();
     }
 
     @Override
-    public void executeRequest() {
-        client.execute(request, CONTEXT, responseHandler);
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, responseHandler.listener);
+    }
+
+    @Override
+    public void executeRequest(long startTime, ResponseListener listener) {
+        client.execute(SimpleRequestProducer.create(requests.get()), new BalanceResponseConsumer(startTime, phaseTiming ? responseHandler.listener : null), CONTEXT,
+                new RequestCallback(startTime, listener, responseHandler));
+    }
+
+    /**
+     * Concurrent HEAD requests, the connection manager leases a connection for every request in flight.
+     */
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        final List<Future<?>> responses = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            responses.add(client.execute(SimpleRequestBuilder.head(balanceUrl).build(), null));
+        }
+        PreconnectUtil.awaitAll(responses);
     }
 
     @Override
@@ -46,33 +108,112 @@ public final class ApacheHttpClient implements WebClient {
         client.close();
     }
 
-    public static class ApacheResponseHandler implements FutureCallback<SimpleHttpResponse> {
-        private final CountDownLatch latch;
-        private final Log logger;
+    public static class ApacheResponseHandler {
+        private final ResponseListener listener;
+
+        public ApacheResponseHandler(ResponseListener listener) {
+            this.listener = listener;
+        }
 
-        public ApacheResponseHandler(CountDownLatch latch, Log logger) {
-            this.latch = latch;
-            this.logger = logger;
+        /**
+         * @param listener listener of the request, see {@link WebClient#executeRequest(long, ResponseListener)}
+         */
+        public void completed(long startTime, ResponseListener listener, int statusCode) {
+            listener.onResponse(startTime, statusCode);
+        }
+
+        public void failed(long startTime, ResponseListener listener, Exception e) {
+            listener.onFailure(startTime, e);
+        }
+
+        public void cancelled(long startTime, ResponseListener listener) {
+            listener.onFailure(startTime, new CancellationException("Request has been cancelled"));
+        }
+    }
+
+    /**
+     * Streams the body through a pooled balance parser, the result is the status code.
+     * A malformed body fails the request. With a phase listener it reports the first byte (the response head)
+     * and the body, the client exposes no connection and write events.
+     */
+    private static final class BalanceResponseConsumer extends AbstractBinResponseConsumer<Integer> {
+        private final long startTime;
+        private final ResponseListener phaseListener;
+        private int statusCode;
+        private long firstByteTime;
+        private BalanceParser parser;
+
+        private BalanceResponseConsumer(long startTime, ResponseListener phaseListener) {
+            this.startTime = startTime;
+            this.phaseListener = phaseListener;
         }
 
         @Override
-        public void completed(SimpleHttpResponse response) {
-            latch.countDown();
-            if (response.getCode() != 200) {
-                logger.error("Response is not successful: %s").with(response.getCode());
+        protected void start(HttpResponse response, ContentType contentType) {
+            if (phaseListener != null) {
+                firstByteTime = System.nanoTime();
+                phaseListener.onPhase(RequestPhase.FIRST_BYTE, firstByteTime - startTime);
             }
+            statusCode = response.getCode();
+            parser = BalanceParser.acquire();
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+            parser.parse(src);
+            src.position(src.limit());
+            if (endOfStream && !parser.isValid(statusCode)) {
+                throw BalanceParser.malformedResponse();
+            }
+        }
+
+        @Override
+        protected Integer buildResult() {
+            if (phaseListener != null) {
+                phaseListener.onPhase(RequestPhase.BODY, System.nanoTime() - firstByteTime);
+            }
+            releaseResources();
+            return statusCode;
+        }
+
+        @Override
+        public void releaseResources() {
+            if (parser != null) {
+                parser.release();
+                parser = null;
+            }
+        }
+    }
+
+    private static final class RequestCallback implements FutureCallback<Integer> {
+        private final long startTime;
+        private final ResponseListener listener;
+        private final ApacheResponseHandler responseHandler;
+
+        private RequestCallback(long startTime, ResponseListener listener, ApacheResponseHandler responseHandler) {
+            this.startTime = startTime;
+            this.listener = listener;
+            this.responseHandler = responseHandler;
+        }
+
+        @Override
+        public void completed(Integer statusCode) {
+            responseHandler.completed(startTime, listener, statusCode);
         }
 
         @Override
         public void failed(Exception e) {
-            latch.countDown();
-            logger.error().append(e).commit();
+            responseHandler.failed(startTime, listener, e);
         }
 
         @Override
         public void cancelled() {
-            latch.countDown();
-            logger.error().append("Request has been cancelled").commit();
+            responseHandler.cancelled(startTime, listener);
         }
     }
 }
@@ -0,0 +1,160 @@
+package deltix.web.client.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP/1.1 request without a body, encoded once: the request line and the static headers are a pooled direct
+ * buffer which is sent with {@link ByteBuf#retainedDuplicate()}, the dynamic headers (e.g. nonce and signature)
+ * follow in a small per-request buffer with fixed-width value slots.
+ * <p>
+ * Clients which send requests of several templates (e.g. a mixed workload) copy the whole request into a single
+ * per-request buffer with {@link #newRequest}, which also has room for a body after the headers.
+ * <p>
+ * A slot is padded with trailing spaces, which are optional whitespace of the header value (RFC 7230).
+ * The static part is shared by concurrent requests and never modified, so it is released by {@link #release()} only.
+ */
+public final class HttpRequestTemplate {
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final ByteBuf staticPart;
+    private final ByteBuf dynamicPart;
+    private final int[] slotOffsets;
+    private final int[] slotWidths;
+
+    private HttpRequestTemplate(byte[] staticPart, byte[] dynamicPart, int[] slotOffsets, int[] slotWidths) {
+        this.staticPart = PooledByteBufAllocator.DEFAULT.directBuffer(staticPart.length).writeBytes(staticPart);
+        this.dynamicPart = PooledByteBufAllocator.DEFAULT.directBuffer(dynamicPart.length).writeBytes(dynamicPart);
+        this.slotOffsets = slotOffsets;
+        this.slotWidths = slotWidths;
+    }
+
+    public static Builder builder(HttpMethod method, String requestTarget) {
+        return new Builder(method, requestTarget);
+    }
+
+    /**
+     * Returns a new reference to the request line and the static headers, which is released when written.
+     */
+    public ByteBuf newStaticPart() {
+        return staticPart.retainedDuplicate();
+    }
+
+    /**
+     * Returns a new buffer with the dynamic headers and blank slots, which is released when written.
+     */
+    public ByteBuf newDynamicPart(ByteBufAllocator allocator) {
+        final int length = dynamicPart.readableBytes();
+        return allocator.directBuffer(length).writeBytes(dynamicPart, 0, length);
+    }
+
+    /**
+     * Returns a new buffer with the static part and the dynamic headers with blank slots, which is released
+     * when written. The body of the given length is written after the headers.
+     */
+    public ByteBuf newRequest(ByteBufAllocator allocator, int bodyLength) {
+        final int staticLength = staticPart.readableBytes();
+        final int dynamicLength = dynamicPart.readableBytes();
+        return allocator.directBuffer(staticLength + dynamicLength + bodyLength)
+                .writeBytes(staticPart, 0, staticLength)
+                .writeBytes(dynamicPart, 0, dynamicLength);
+    }
+
+    /**
+     * Writes the value into the slot of a request of {@link #newRequest}, the rest of the slot stays blank.
+     */
+    public void setRequestSlot(ByteBuf request, int slot, byte[] value, int offset, int length) {
+        checkSlot(slot, length);
+        request.setBytes(staticPart.readableBytes() + slotOffsets[slot], value, offset, length);
+    }
+
+    /**
+     * Writes the value into the slot of the dynamic part, the rest of the slot stays blank.
+     *
+     * @param slot index of the slot in the order of {@link Builder#slot(CharSequence, int)}
+     */
+    public void setSlot(ByteBuf dynamicPart, int slot, byte[] value, int offset, int length) {
+        checkSlot(slot, length);
+        dynamicPart.setBytes(slotOffsets[slot], value, offset, length);
+    }
+
+    private void checkSlot(int slot, int length) {
+        if (length > slotWidths[slot]) {
+            throw new IllegalArgumentException("Value of " + length + " bytes does not fit the slot of " + slotWidths[slot]);
+        }
+    }
+
+    public int getLength() {
+        return staticPart.readableBytes() + dynamicPart.readableBytes();
+    }
+
+    public void release() {
+        staticPart.release();
+        dynamicPart.release();
+    }
+
+    @Override
+    public String toString() {
+        return staticPart.toString(StandardCharsets.US_ASCII) + dynamicPart.toString(StandardCharsets.US_ASCII);
+    }
+
+    public static final class Builder {
+        private final ByteArrayOutputStream staticPart = new ByteArrayOutputStream(512);
+        private final ByteArrayOutputStream dynamicPart = new ByteArrayOutputStream(256);
+        private final List<int[]> slots = new ArrayList<>();
+
+        private Builder(HttpMethod method, String requestTarget) {
+            append(staticPart, method.name());
+            append(staticPart, " ");
+            append(staticPart, requestTarget);
+            append(staticPart, " HTTP/1.1");
+            staticPart.writeBytes(CRLF);
+        }
+
+        public Builder header(CharSequence name, CharSequence value) {
+            append(staticPart, name);
+            append(staticPart, ": ");
+            append(staticPart, value);
+            staticPart.writeBytes(CRLF);
+            return this;
+        }
+
+        /**
+         * Adds a dynamic header, the value is set by {@link HttpRequestTemplate#setSlot} for every request.
+         */
+        public Builder slot(CharSequence name, int width) {
+            append(dynamicPart, name);
+            append(dynamicPart, ": ");
+            slots.add(new int[]{dynamicPart.size(), width});
+            for (int i = 0; i < width; i++) {
+                dynamicPart.write(' ');
+            }
+            dynamicPart.writeBytes(CRLF);
+            return this;
+        }
+
+        public HttpRequestTemplate build() {
+            dynamicPart.writeBytes(CRLF); // end of headers
+            final int[] offsets = new int[slots.size()];
+            final int[] widths = new int[slots.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = slots.get(i)[0];
+                widths[i] = slots.get(i)[1];
+            }
+            return new HttpRequestTemplate(staticPart.toByteArray(), dynamicPart.toByteArray(), offsets, widths);
+        }
+
+        private static void append(ByteArrayOutputStream out, CharSequence value) {
+            for (int i = 0; i < value.length(); i++) {
+                out.write(value.charAt(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package deltix.web.client.http;
+
+import deltix.web.client.ClientSettings;
+import deltix.web.client.HttpProtocol;
+import deltix.web.client.ResponseListener;
+import deltix.web.client.WebClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Blocking {@link HttpClient#send} on a virtual thread per request. The request is built and signed by the calling thread.
+ */
+public final class JavaBlockingHttpClient implements WebClient {
+    private final HttpClient client;
+    private final URI balanceUri;
+    private final Supplier<HttpRequest> requests;
+    private final JavaHttpClient.JavaResponseHandler responseHandler;
+    private final ResponseListener listener;
+    private final ExecutorService executor;
+    private final boolean phaseTiming;
+
+    public JavaBlockingHttpClient(ClientSettings settings, Supplier<HttpRequest> requests, ResponseListener listener) throws Exception {
+        this.balanceUri = URI.create(settings.getBalanceUrl());
+        this.requests = requests;
+        this.responseHandler = new JavaHttpClient.JavaResponseHandler(listener);
+        this.listener = listener;
+        this.executor = VirtualThreadUtil.newVirtualThreadPerTaskExecutor();
+        this.phaseTiming = settings.isPhaseTiming();
+
+        final HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(settings.getProtocol() == HttpProtocol.H2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1);
+        if (settings.isTrustAllCertificates()) {
+            // read once when the HttpClient implementation is initialized
+            System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
+        }
+        if (TlsUtil.isCustomSslContext(settings)) {
+            builder.sslContext(TlsUtil.sslContext(settings));
+        }
+        client = builder.build();
+    }
+
+    @Override
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, listener);
+    }
+
+    @Override
+    public void executeRequest(long startTime, ResponseListener requestListener) {
+        final HttpRequest request = requests.get();
+        executor.execute(() -> {
+            try {
+                final HttpResponse.BodyHandler<Boolean> bodyHandler = phaseTiming ?
+                        JavaHttpClient.phaseTimingBodyHandler(startTime, listener) : JavaHttpClient.BALANCE_BODY_HANDLER;
+                responseHandler.apply(startTime, requestListener, client.send(request, bodyHandler), null);
+            } catch (Exception e) {
+                responseHandler.apply(startTime, requestListener, null, e);
+            }
+        });
+    }
+
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        final HttpRequest request = HttpRequest.newBuilder(balanceUri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+        final List<Future<?>> responses = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        PreconnectUtil.awaitAll(responses);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -1,60 +1,169 @@
 package deltix.web.client.http;
 
-import com.epam.deltix.gflog.api.Log;
+import deltix.web.client.BalanceParser;
+import deltix.web.client.ClientSettings;
+import deltix.web.client.HttpProtocol;
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
 import deltix.web.client.WebClient;
 
+import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.concurrent.CountDownLatch;
-import java.util.function.BiFunction;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public final class JavaHttpClient implements WebClient {
+    /**
+     * Streams the body through a pooled balance parser, the body of the response is true if it is valid.
+     */
+    public static final HttpResponse.BodyHandler<Boolean> BALANCE_BODY_HANDLER = responseInfo -> {
+        final BalanceSubscriber subscriber = new BalanceSubscriber(responseInfo.statusCode(), null, 0);
+        return HttpResponse.BodySubscribers.fromSubscriber(subscriber, BalanceSubscriber::isValid);
+    };
+
     private final HttpClient client;
-    private final HttpRequest request;
-    private final BiFunction<HttpResponse<Void>, Throwable, Object> responseHandler;
+    private final URI balanceUri;
+    private final Supplier<HttpRequest> requests;
+    private final JavaResponseHandler responseHandler;
+    private final boolean phaseTiming;
 
-    public JavaHttpClient(HttpRequest request, BiFunction<HttpResponse<Void>, Throwable, Object> responseHandler) {
-        this.request = request;
+    public JavaHttpClient(ClientSettings settings, Supplier<HttpRequest> requests, JavaResponseHandler responseHandler) throws Exception {
+        this.balanceUri = URI.create(settings.getBalanceUrl());
+        this.requests = requests;
         this.responseHandler = responseHandler;
+        this.phaseTiming = settings.isPhaseTiming();
 
         // by default HttpClient uses CachedThreadPool with no limits
         final HttpClient.Builder builder = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_1_1);
+                .version(settings.getProtocol() == HttpProtocol.H2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1);
+        if (settings.isTrustAllCertificates()) {
+            // read once when the HttpClient implementation is initialized
+            System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
+        }
+        if (TlsUtil.isCustomSslContext(settings)) {
+            builder.sslContext(TlsUtil.sslContext(settings));
+        }
         client = builder.build();
     }
 
     @Override
-    public void executeRequest() {
-        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
-                .toCompletableFuture().handle(responseHandler);
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, responseHandler.listener);
+    }
+
+    @Override
+    public void executeRequest(long startTime, ResponseListener listener) {
+        client.sendAsync(requests.get(), phaseTiming ? phaseTimingBodyHandler(startTime, responseHandler.listener) : BALANCE_BODY_HANDLER)
+                .handle((response, throwable) -> responseHandler.apply(startTime, listener, response, throwable));
+    }
+
+    /**
+     * Concurrent HEAD requests, the client opens a connection for every request in flight.
+     */
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        final HttpRequest request = HttpRequest.newBuilder(balanceUri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+        final List<Future<?>> responses = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        PreconnectUtil.awaitAll(responses);
     }
 
     @Override
     public void close() {
     }
 
-    public static class JavaResponseHandler implements BiFunction<HttpResponse<Void>, Throwable, Object> {
-        private final CountDownLatch latch;
-        private final Log logger;
+    /**
+     * {@link #BALANCE_BODY_HANDLER} which reports the first byte (the body handler is called with the response
+     * headers) and the body of the request, the client exposes no connection and write events.
+     */
+    static HttpResponse.BodyHandler<Boolean> phaseTimingBodyHandler(long startTime, ResponseListener listener) {
+        return responseInfo -> {
+            final long firstByteTime = System.nanoTime();
+            listener.onPhase(RequestPhase.FIRST_BYTE, firstByteTime - startTime);
+            final BalanceSubscriber subscriber = new BalanceSubscriber(responseInfo.statusCode(), listener, firstByteTime);
+            return HttpResponse.BodySubscribers.fromSubscriber(subscriber, BalanceSubscriber::isValid);
+        };
+    }
+
+    public static class JavaResponseHandler {
+        private final ResponseListener listener;
+
+        public JavaResponseHandler(ResponseListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * @param listener listener of the request, see {@link WebClient#executeRequest(long, ResponseListener)}
+         */
+        public Object apply(long startTime, ResponseListener listener, HttpResponse<Boolean> response, Throwable throwable) {
+            if (throwable != null) {
+                listener.onFailure(startTime, throwable);
+            } else if (!response.body()) {
+                listener.onFailure(startTime, BalanceParser.malformedResponse());
+            } else {
+                listener.onResponse(startTime, response.statusCode());
+            }
+            return response;
+        }
+    }
+
+    private static final class BalanceSubscriber implements Flow.Subscriber<List<ByteBuffer>> {
+        private final int statusCode;
+        private final ResponseListener phaseListener;
+        private final long firstByteTime;
+        private BalanceParser parser;
+        private boolean valid;
 
-        public JavaResponseHandler(CountDownLatch latch, Log logger) {
-            this.latch = latch;
-            this.logger = logger;
+        private BalanceSubscriber(int statusCode, ResponseListener phaseListener, long firstByteTime) {
+            this.statusCode = statusCode;
+            this.phaseListener = phaseListener;
+            this.firstByteTime = firstByteTime;
         }
 
         @Override
-        public Object apply(HttpResponse response, Throwable throwable) {
-            latch.countDown();
+        public void onSubscribe(Flow.Subscription subscription) {
+            parser = BalanceParser.acquire();
+            subscription.request(Long.MAX_VALUE);
+        }
 
-            if (throwable != null) {
-                logger.error().append(throwable).commit();
-                return response;
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            for (int i = 0; i < buffers.size(); i++) {
+                parser.parse(buffers.get(i));
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            release();
+        }
+
+        @Override
+        public void onComplete() {
+            valid = parser.isValid(statusCode);
+            release();
+            if (phaseListener != null) {
+                phaseListener.onPhase(RequestPhase.BODY, System.nanoTime() - firstByteTime);
             }
-            if (response.statusCode() != 200) {
-                logger.error("Response is not successful: %s").with(response.statusCode());
+        }
+
+        private boolean isValid() {
+            return valid;
+        }
+
+        private void release() {
+            if (parser != null) {
+                parser.release();
+                parser = null;
             }
-            return response;
         }
     }
 }
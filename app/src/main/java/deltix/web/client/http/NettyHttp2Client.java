@@ -0,0 +1,423 @@
+package deltix.web.client.http;
+
+import deltix.web.client.BalanceParser;
+import deltix.web.client.ClientSettings;
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
+import deltix.web.client.WebClient;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http2.*;
+import io.netty.handler.ssl.*;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.Promise;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * HTTP/2 client: every request is a stream of a multiplexed connection ({@link Http2FrameCodec} and
+ * {@link Http2MultiplexHandler}). With several connections a request goes to the one with the fewest open streams,
+ * a closed connection is reconnected. Requests wait in a queue while no connection is active, a server which does not
+ * negotiate h2 with ALPN fails the client for good.
+ * <p>
+ * With phase timing a request reports the queueing until its stream is open, the write of the headers frame
+ * and the server wait until the read with the response headers, stamped by a {@link PhaseTimingHandler}
+ * in front of the connection pipeline.
+ */
+public final class NettyHttp2Client implements WebClient {
+    private static final long RECONNECT_DELAY_MS = 100;
+
+    private final EventLoopGroup group;
+    private final SslContext sslContext;
+    private final Bootstrap bootstrap;
+    private final Supplier<HttpRequest> requests;
+    private final ResponseListener listener;
+    private final String host;
+    private final int port;
+    private final Connection[] connections;
+    private final Queue<StreamHandler> waitingRequests = new ConcurrentLinkedQueue<>();
+    // set when the server does not negotiate h2, fails all requests and stops the reconnects
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    public NettyHttp2Client(ClientSettings settings,
+                            Supplier<HttpRequest> requests,
+                            ResponseListener listener) throws Exception {
+        this.requests = requests;
+        this.listener = listener;
+
+        final URI uri = URI.create(settings.getBalanceUrl());
+        final boolean secure = "https".equals(uri.getScheme());
+        host = uri.getHost();
+        port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+
+        // the engines are released by SslHandler, the context by close()
+        sslContext = secure ? SslContextBuilder.forClient()
+                .sslProvider(TlsUtil.nettySslProvider(settings, true))
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                .applicationProtocolConfig(new ApplicationProtocolConfig(
+                        ApplicationProtocolConfig.Protocol.ALPN,
+                        ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                        ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                        ApplicationProtocolNames.HTTP_2))
+                .build() : null;
+
+        final boolean phaseTiming = settings.isPhaseTiming();
+        try {
+            group = TransportUtil.newEventLoopGroup(settings);
+        } catch (RuntimeException e) { // transport is not available
+            ReferenceCountUtil.release(sslContext);
+            throw e;
+        }
+        bootstrap = new Bootstrap();
+        bootstrap.group(group)
+                .channel(TransportUtil.socketChannelClass(settings))
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ChannelPipeline p = ch.pipeline();
+                        if (phaseTiming) {
+                            p.addLast(new PhaseTimingHandler(listener));
+                        }
+                        if (sslContext != null) {
+                            p.addLast(sslContext.newHandler(ch.alloc(), host, port));
+                        }
+                        p.addLast(Http2FrameCodecBuilder.forClient()
+                                .initialSettings(Http2Settings.defaultSettings().pushEnabled(false))
+                                .build());
+                        p.addLast(new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+                    }
+                });
+
+        connections = new Connection[Math.max(1, settings.getConnectionCount())];
+        try {
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = new Connection();
+                connect(connections[i]).sync();
+            }
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, listener);
+    }
+
+    @Override
+    public void executeRequest(long startTime, ResponseListener listener) {
+        final HttpRequest request = requests.get();
+        final Http2Headers headers = HttpConversionUtil.toHttp2Headers(request, false);
+        // the body of a POST follows the headers in a data frame
+        final ByteBuf body = request instanceof FullHttpRequest && ((FullHttpRequest) request).content().isReadable() ?
+                ((FullHttpRequest) request).content() : null;
+        submit(new StreamHandler(headers, body, startTime, listener));
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        failWaitingRequests(new ClosedChannelException());
+        for (Connection connection : connections) {
+            if (connection != null && connection.channel != null) {
+                connection.channel.close();
+            }
+        }
+        group.shutdownGracefully().addListener(future -> ReferenceCountUtil.release(sslContext));
+    }
+
+    /**
+     * Opens the stream of the request on an active connection or queues the request for the next active connection.
+     */
+    private void submit(StreamHandler stream) {
+        final Throwable failure = this.failure;
+        if (closed || failure != null) {
+            stream.fail(failure != null ? failure : new ClosedChannelException());
+            return;
+        }
+
+        final Connection connection = selectConnection();
+        if (connection != null) {
+            stream.open(connection);
+        } else {
+            waitingRequests.offer(stream);
+            submitWaitingRequests(); // a connection may have become active in the meantime
+        }
+    }
+
+    private void submitWaitingRequests() {
+        Connection connection;
+        while (!waitingRequests.isEmpty() && (connection = selectConnection()) != null) {
+            final StreamHandler stream = waitingRequests.poll();
+            if (stream != null) {
+                stream.open(connection);
+            }
+        }
+    }
+
+    private void failWaitingRequests(Throwable cause) {
+        StreamHandler stream;
+        while ((stream = waitingRequests.poll()) != null) {
+            stream.fail(cause);
+        }
+    }
+
+    private Connection selectConnection() {
+        Connection result = null;
+        int minOpenStreams = Integer.MAX_VALUE;
+        for (Connection connection : connections) {
+            final Channel channel = connection.channel;
+            if (channel != null && channel.isActive()) {
+                final int openStreams = connection.openStreams.get();
+                if (openStreams < minOpenStreams) {
+                    result = connection;
+                    minOpenStreams = openStreams;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Connects the connection, it becomes active after the TLS handshake has negotiated h2.
+     * A closed active connection is reconnected at once, a failed connect or handshake after a delay.
+     *
+     * @return completed when the connection is active
+     */
+    private Future<Channel> connect(Connection connection) {
+        final Promise<Channel> active = group.next().newPromise();
+        bootstrap.connect(host, port).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                final Channel channel = future.channel();
+                channel.closeFuture().addListener(closeFuture -> {
+                    active.tryFailure(new ClosedChannelException());
+                    if (connection.channel != channel) {
+                        reconnect(connection); // closed before it became active
+                    } else if (!closed && failure == null) {
+                        connect(connection);
+                    }
+                });
+                final SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+                if (sslHandler == null) {
+                    activate(connection, channel, active);
+                } else {
+                    sslHandler.handshakeFuture().addListener(handshake -> {
+                        if (!handshake.isSuccess()) {
+                            active.tryFailure(handshake.cause());
+                        } else if (!ApplicationProtocolNames.HTTP_2.equals(sslHandler.applicationProtocol())) {
+                            final Throwable failure = new IllegalStateException("Server does not support h2: " + host + ":" + port);
+                            this.failure = failure;
+                            failWaitingRequests(failure);
+                            active.tryFailure(failure);
+                            channel.close();
+                        } else {
+                            activate(connection, channel, active);
+                        }
+                    });
+                }
+            } else {
+                failWaitingRequests(future.cause());
+                active.tryFailure(future.cause());
+                reconnect(connection);
+            }
+        });
+        return active;
+    }
+
+    private void activate(Connection connection, Channel channel, Promise<Channel> active) {
+        connection.setChannel(channel);
+        active.trySuccess(channel);
+        submitWaitingRequests();
+    }
+
+    /**
+     * Retries a failed connect after a delay.
+     */
+    private void reconnect(Connection connection) {
+        if (!closed && failure == null) {
+            group.schedule(() -> {
+                if (!closed && failure == null) {
+                    connect(connection);
+                }
+            }, RECONNECT_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static final class Connection {
+        private final AtomicInteger openStreams = new AtomicInteger();
+        private volatile Channel channel;
+        // without a handler, it is shared by concurrent requests, each stream adds its handler when opened
+        private volatile Http2StreamChannelBootstrap streamBootstrap;
+        // null without phase timing
+        private volatile PhaseTimingHandler phaseTimingHandler;
+
+        private void setChannel(Channel channel) {
+            this.streamBootstrap = new Http2StreamChannelBootstrap(channel);
+            this.phaseTimingHandler = channel.pipeline().get(PhaseTimingHandler.class);
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Request context of a stream: sends the request headers (and the body) when the stream is open and completes the request
+     * when the response stream ends. Streams of a connection interleave, so every stream takes a pooled balance
+     * parser for its data frames.
+     */
+    private final class StreamHandler extends ChannelInboundHandlerAdapter implements GenericFutureListener<Future<Http2StreamChannel>> {
+        private final Http2Headers headers;
+        private ByteBuf body;
+        private final long startTime;
+        private final ResponseListener requestListener;
+        // null while the request waits for an active connection
+        private Connection connection;
+        private int statusCode;
+        private BalanceParser parser;
+        private boolean completed;
+        private long writeStartTime;
+        private long writtenTime;
+        private long firstByteTime;
+
+        /**
+         * @param body            body of the request, released when written, null without a body
+         * @param requestListener listener of the completion, phases go to the listener of the client
+         */
+        private StreamHandler(Http2Headers headers, ByteBuf body, long startTime, ResponseListener requestListener) {
+            this.headers = headers;
+            this.body = body;
+            this.startTime = startTime;
+            this.requestListener = requestListener;
+        }
+
+        private void open(Connection connection) {
+            this.connection = connection;
+            connection.openStreams.incrementAndGet();
+            connection.streamBootstrap.open().addListener(this);
+        }
+
+        @Override
+        public void operationComplete(Future<Http2StreamChannel> future) {
+            if (future.isSuccess()) {
+                final Http2StreamChannel streamChannel = future.getNow();
+                streamChannel.pipeline().addLast(this);
+                if (connection.phaseTimingHandler != null) {
+                    writeStartTime = System.nanoTime();
+                    listener.onPhase(RequestPhase.QUEUE, writeStartTime - startTime);
+                }
+                final ChannelFuture written;
+                if (body != null) {
+                    streamChannel.write(new DefaultHttp2HeadersFrame(headers, false), streamChannel.voidPromise());
+                    written = streamChannel.writeAndFlush(new DefaultHttp2DataFrame(body, true));
+                    body = null;
+                } else {
+                    written = streamChannel.writeAndFlush(new DefaultHttp2HeadersFrame(headers, true));
+                }
+                written.addListener(write -> {
+                    if (!write.isSuccess()) {
+                        fail(write.cause());
+                    } else if (connection.phaseTimingHandler != null) {
+                        writtenTime = System.nanoTime();
+                        listener.onPhase(RequestPhase.WRITE, writtenTime - writeStartTime);
+                    }
+                });
+            } else {
+                fail(future.cause());
+            }
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            try {
+                boolean endStream = false;
+                if (msg instanceof Http2HeadersFrame) {
+                    final Http2HeadersFrame frame = (Http2HeadersFrame) msg;
+                    if (frame.headers().status() != null) {
+                        statusCode = HttpResponseStatus.parseLine(frame.headers().status()).code();
+                        final PhaseTimingHandler phaseTimingHandler = connection.phaseTimingHandler;
+                        if (phaseTimingHandler != null) {
+                            firstByteTime = phaseTimingHandler.getReadTime();
+                            listener.onPhase(RequestPhase.SERVER_WAIT, firstByteTime - writtenTime);
+                            listener.onPhase(RequestPhase.FIRST_BYTE, firstByteTime - startTime);
+                        }
+                    }
+                    endStream = frame.isEndStream();
+                } else if (msg instanceof Http2DataFrame) {
+                    final Http2DataFrame frame = (Http2DataFrame) msg;
+                    if (parser == null) {
+                        parser = BalanceParser.acquire();
+                    }
+                    parser.parse(frame.content());
+                    endStream = frame.isEndStream();
+                }
+
+                if (endStream && !completed) {
+                    completed = true;
+                    connection.openStreams.decrementAndGet();
+                    final boolean valid = statusCode != 200 || (parser != null && parser.isComplete());
+                    releaseParser();
+                    if (connection.phaseTimingHandler != null) {
+                        listener.onPhase(RequestPhase.BODY, System.nanoTime() - firstByteTime);
+                    }
+                    if (valid) {
+                        requestListener.onResponse(startTime, statusCode);
+                    } else {
+                        requestListener.onFailure(startTime, BalanceParser.malformedResponse());
+                    }
+                }
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            fail(new ClosedChannelException());
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            fail(cause);
+            ctx.close();
+        }
+
+        private void fail(Throwable cause) {
+            if (!completed) {
+                completed = true;
+                if (connection != null) {
+                    connection.openStreams.decrementAndGet();
+                }
+                if (body != null) {
+                    body.release();
+                    body = null;
+                }
+                releaseParser();
+                requestListener.onFailure(startTime, cause);
+            }
+        }
+
+        private void releaseParser() {
+            if (parser != null) {
+                parser.release();
+                parser = null;
+            }
+        }
+    }
+}
@@ -1,94 +1,546 @@
 package deltix.web.client.http;
 
-import com.epam.deltix.gflog.api.Log;
+import deltix.web.client.BalanceParser;
+import deltix.web.client.ClientSettings;
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
 import deltix.web.client.WebClient;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.*;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.PlatformDependent;
 
 import java.io.IOException;
-import java.util.concurrent.CountDownLatch;
+import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 
+/**
+ * Pool of channels spread across the event loops. A request goes to the connected channel with the fewest
+ * in-flight requests. The pool opens a new channel (up to the max connection count) when every channel is busy
+ * and reconnects a channel right away when it is closed, a failed connect is retried after a delay.
+ * Requests without a connected channel wait for the next connected channel (a failed connect fails them),
+ * requests which were submitted to a channel but not written when it closed are sent on another channel.
+ * A channel with a {@code Connection: close} response takes no more requests. A new channel writes one request
+ * until its first response keeps the connection alive, requests pipelined behind a closing response would be lost
+ * with the connection.
+ * <p>
+ * Requests are pipelined: a channel writes up to the pipeline depth of requests without waiting for responses.
+ * Requests submitted from other threads are queued and written by a single event loop task with one flush.
+ * Response bodies are not aggregated, every content chunk is fed to the balance parser of the channel.
+ * <p>
+ * Requests are not encoded by {@link HttpClientCodec}: the pre-encoded static part of the {@link HttpRequestTemplate}
+ * is written with the per-request dynamic part, only the response decoder is in the pipeline. Requests of several
+ * templates (a mixed workload) are whole requests of {@link HttpRequestTemplate#newRequest}.
+ * <p>
+ * With phase timing a {@link PhaseTimingHandler} in front of the pipeline stamps the reads, a request reports
+ * the queueing until the event loop writes it, the write until the promise completes (flushed to the socket),
+ * the server wait until the read with the first byte of the response and the body until the last content.
+ */
 public final class NettyHttpClient implements WebClient {
+    private static final long RECONNECT_DELAY_MS = 100;
 
-    private final Channel channel;
     private final EventLoopGroup group;
-    private final HttpRequest request;
-
-    public NettyHttpClient(int ioThreadCount, boolean useNativeTransport,
-                           HttpRequest request,
-                           HttpChannelInboundHandler responseHandler) throws Exception {
-        this.request = request;
-
-        final SslContext sslContext = SslContextBuilder.forClient()
-           .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
-
-        final String url = request.uri();
-        final int start = url.indexOf("//") + 2;
-        final int end = url.indexOf('/', start);
-        final String host = url.substring(start, end);
-        final int port = 443;
-
-        group = useNativeTransport ? new EpollEventLoopGroup(ioThreadCount) : new NioEventLoopGroup(ioThreadCount);
-        Bootstrap b = new Bootstrap();
-        b.group(group)
-                .channel(NioSocketChannel.class)
+    private final SslContext sslContext;
+    private final Bootstrap bootstrap;
+    private final HttpRequestTemplate[] templates;
+    private final Supplier<ByteBuf> requests;
+    private final ResponseListener listener;
+    private final String host;
+    private final int port;
+    private final AtomicReferenceArray<HttpChannelInboundHandler> connections;
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    // requests which wait for a connected channel
+    private final Queue<PendingRequest> waitingRequests = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    /**
+     * @param requests dynamic parts of the template, see {@link HttpRequestTemplate#newDynamicPart}, the client
+     *                 owns the template and releases it when closed
+     */
+    public NettyHttpClient(ClientSettings settings,
+                           HttpRequestTemplate template,
+                           Supplier<ByteBuf> requests,
+                           ResponseListener listener) throws Exception {
+        this(settings, template, new HttpRequestTemplate[]{template}, requests, listener);
+    }
+
+    /**
+     * @param requests whole requests of the templates, see {@link HttpRequestTemplate#newRequest}, the client
+     *                 owns the templates and releases them when closed
+     */
+    public NettyHttpClient(ClientSettings settings,
+                           HttpRequestTemplate[] templates,
+                           Supplier<ByteBuf> requests,
+                           ResponseListener listener) throws Exception {
+        this(settings, null, templates, requests, listener);
+    }
+
+    /**
+     * @param template template of the static part which precedes the requests, null if the requests are whole
+     */
+    private NettyHttpClient(ClientSettings settings,
+                            HttpRequestTemplate template,
+                            HttpRequestTemplate[] templates,
+                            Supplier<ByteBuf> requests,
+                            ResponseListener listener) throws Exception {
+        this.templates = templates;
+        this.requests = requests;
+        this.listener = listener;
+
+        try {
+            // the engines are released by SslHandler, the context by close()
+            sslContext = SslContextBuilder.forClient()
+                    .sslProvider(TlsUtil.nettySslProvider(settings, true))
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+        } catch (Exception e) {
+            releaseTemplates();
+            throw e;
+        }
+
+        final URI uri = URI.create(settings.getBalanceUrl());
+        final boolean secure = "https".equals(uri.getScheme());
+        host = uri.getHost();
+        port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+
+        final int pipelineDepth = settings.getPipelineDepth() > 0 ? settings.getPipelineDepth() : Integer.MAX_VALUE;
+        final boolean phaseTiming = settings.isPhaseTiming();
+        try {
+            group = TransportUtil.newEventLoopGroup(settings);
+        } catch (RuntimeException e) { // transport is not available
+            releaseTemplates();
+            ReferenceCountUtil.release(sslContext);
+            throw e;
+        }
+        bootstrap = new Bootstrap();
+        bootstrap.group(group)
+                .channel(TransportUtil.socketChannelClass(settings))
                 .option(ChannelOption.SO_KEEPALIVE, true)
                 .option(ChannelOption.TCP_NODELAY, true)
                 .handler(new ChannelInitializer<>() {
                     @Override
                     protected void initChannel(Channel ch) throws Exception {
                         ChannelPipeline p = ch.pipeline();
-                        p.addLast(sslContext.newHandler(ch.alloc(), host, port));
-                        p.addLast(new HttpClientCodec());
-                        p.addLast(new HttpObjectAggregator(1024 * 1024));
-                        p.addLast(responseHandler);
+                        final PhaseTimingHandler phaseTimingHandler = phaseTiming ? new PhaseTimingHandler(listener) : null;
+                        if (phaseTimingHandler != null) {
+                            p.addLast(phaseTimingHandler);
+                        }
+                        if (secure) {
+                            p.addLast(sslContext.newHandler(ch.alloc(), host, port));
+                        }
+                        p.addLast(new HttpResponseDecoder());
+                        p.addLast(new HttpChannelInboundHandler(NettyHttpClient.this, template, listener, pipelineDepth,
+                                phaseTimingHandler));
                     }
                 });
 
-        channel = b.connect(host, port).sync().channel();
+        final int minConnectionCount = Math.max(1, settings.getConnectionCount());
+        final int maxConnectionCount = Math.max(minConnectionCount, settings.getMaxConnectionCount());
+        connections = new AtomicReferenceArray<>(maxConnectionCount);
+
+        connectionCount.set(minConnectionCount);
+        try {
+            for (int i = 0; i < minConnectionCount; i++) {
+                final Channel channel = connect(i).sync().channel();
+                connections.set(i, channel.pipeline().get(HttpChannelInboundHandler.class));
+            }
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
     }
 
     @Override
-    public void executeRequest() {
-        channel.writeAndFlush(request);
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, listener);
+    }
+
+    @Override
+    public void executeRequest(long startTime, ResponseListener listener) {
+        submit(new PendingRequest(requests.get(), startTime, listener));
+    }
+
+    /**
+     * Opens the missing connections of the pool and waits for the TLS handshakes,
+     * the constructor waits for the TCP connect of the min connection count only.
+     */
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        final int count = Math.min(connectionCount, connections.length());
+        int slot;
+        while ((slot = this.connectionCount.get()) < count) {
+            if (this.connectionCount.compareAndSet(slot, slot + 1)) {
+                final Channel channel = connect(slot).sync().channel();
+                connections.set(slot, channel.pipeline().get(HttpChannelInboundHandler.class));
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            final HttpChannelInboundHandler connection = connections.get(i);
+            final SslHandler sslHandler = connection != null ? connection.channel.pipeline().get(SslHandler.class) : null;
+            if (sslHandler != null) {
+                sslHandler.handshakeFuture().sync();
+            }
+        }
     }
 
     @Override
     public void close() throws IOException {
-        channel.close();
-        group.shutdownGracefully();
+        closed = true;
+        failWaitingRequests(new ClosedChannelException());
+        for (int i = 0; i < connections.length(); i++) {
+            final HttpChannelInboundHandler connection = connections.get(i);
+            if (connection != null) {
+                connection.channel.close();
+            }
+        }
+        // written requests keep their references to the template
+        releaseTemplates();
+        group.shutdownGracefully().addListener(future -> ReferenceCountUtil.release(sslContext));
+    }
+
+    private void releaseTemplates() {
+        for (HttpRequestTemplate template : templates) {
+            template.release();
+        }
+    }
+
+    /**
+     * Submits the request to a connected channel or queues it for the next connected channel.
+     */
+    private void submit(PendingRequest pendingRequest) {
+        if (closed) {
+            pendingRequest.fail(new ClosedChannelException());
+            return;
+        }
+
+        final HttpChannelInboundHandler connection = selectConnection();
+        if (connection != null) {
+            connection.submit(pendingRequest);
+        } else {
+            waitingRequests.offer(pendingRequest);
+            submitWaitingRequests(); // a channel may have connected in the meantime
+        }
     }
 
-    public static class HttpChannelInboundHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
-        private final CountDownLatch latch;
-        private final Log logger;
+    private void submitWaitingRequests() {
+        HttpChannelInboundHandler connection;
+        while (!waitingRequests.isEmpty() && (connection = selectConnection()) != null) {
+            final PendingRequest pendingRequest = waitingRequests.poll();
+            if (pendingRequest != null) {
+                connection.submit(pendingRequest);
+            }
+        }
+    }
 
-        public HttpChannelInboundHandler(CountDownLatch latch, Log logger) {
-            this.latch = latch;
-            this.logger = logger;
+    private void failWaitingRequests(Throwable cause) {
+        PendingRequest pendingRequest;
+        while ((pendingRequest = waitingRequests.poll()) != null) {
+            pendingRequest.fail(cause);
+        }
+    }
+
+    private HttpChannelInboundHandler selectConnection() {
+        HttpChannelInboundHandler result = null;
+        int minInFlight = Integer.MAX_VALUE;
+
+        final int count = connectionCount.get();
+        for (int i = 0; i < count; i++) {
+            final HttpChannelInboundHandler connection = connections.get(i);
+            if (connection != null && connection.channel.isActive() && !connection.closing) {
+                final int inFlight = connection.inFlight.get();
+                if (inFlight < minInFlight) {
+                    result = connection;
+                    minInFlight = inFlight;
+                    if (inFlight == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (minInFlight > 0 && count < connections.length() && connectionCount.compareAndSet(count, count + 1)) {
+            connect(count);
+        }
+        return result;
+    }
+
+    private ChannelFuture connect(int slot) {
+        return bootstrap.connect(host, port).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                final Channel channel = future.channel();
+                connections.set(slot, channel.pipeline().get(HttpChannelInboundHandler.class));
+                channel.closeFuture().addListener(closeFuture -> {
+                    if (!closed) {
+                        connect(slot);
+                    }
+                });
+                submitWaitingRequests();
+            } else {
+                failWaitingRequests(future.cause());
+                reconnect(slot);
+            }
+        });
+    }
+
+    /**
+     * Retries a failed connect after a delay.
+     */
+    private void reconnect(int slot) {
+        if (!closed) {
+            group.schedule(() -> {
+                if (!closed) {
+                    connect(slot);
+                }
+            }, RECONNECT_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Request context with its start time and listener. HTTP/1.1 responses come in the order of requests,
+     * so pending requests are matched with responses through a per-channel FIFO.
+     * Completed exactly once on the event loop: by the response, by the channel failure or by the write failure,
+     * a request which waits for a connection is failed by a failed connect or by the close of the client.
+     * The dynamic part of the request is owned by the request until it is written.
+     */
+    private static final class PendingRequest implements ChannelFutureListener {
+        private ByteBuf request;
+        private final long startTime;
+        private final ResponseListener listener;
+        // channel handler the request is submitted to
+        private HttpChannelInboundHandler responseHandler;
+        private boolean completed;
+        private long writeStartTime;
+        private long writtenTime;
+
+        private PendingRequest(ByteBuf request, long startTime, ResponseListener listener) {
+            this.request = request;
+            this.startTime = startTime;
+            this.listener = listener;
         }
 
         @Override
-        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) throws Exception {
-            latch.countDown();
-            if (msg.status().code() != 200) {
-                logger.error("Response is not successful: %s").with(msg.status().code());
+        public void operationComplete(ChannelFuture future) {
+            if (!future.isSuccess()) {
+                // the request stays in the FIFO, the responses of the channel can't be matched any more
+                responseHandler.fail(this, future.cause());
+                future.channel().close();
+            } else if (responseHandler.phaseTimingHandler != null) {
+                writtenTime = System.nanoTime();
+            }
+        }
+
+        private void fail(Throwable cause) {
+            if (request != null) {
+                request.release();
+                request = null;
+            }
+            if (!completed) {
+                completed = true;
+                listener.onFailure(startTime, cause);
             }
         }
+    }
+
+    /**
+     * Per-channel handler which tracks in-flight requests of the channel: submitted requests wait in a queue
+     * until the pipeline has room, written requests wait for their responses in the FIFO.
+     */
+    public static class HttpChannelInboundHandler extends ChannelInboundHandlerAdapter {
+        private final Queue<PendingRequest> submittedRequests = PlatformDependent.newMpscQueue();
+        private final ArrayDeque<PendingRequest> pendingRequests = new ArrayDeque<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean();
+        private final Runnable writeTask = this::writeSubmittedRequests;
+        private final BalanceParser parser = new BalanceParser();
+        private final NettyHttpClient client;
+        private final HttpRequestTemplate template;
+        private final ResponseListener listener;
+        private final int pipelineDepth;
+        private final PhaseTimingHandler phaseTimingHandler;
+        private int statusCode;
+        private long firstByteTime;
+        // a response closes the connection, the remaining requests go to other channels
+        private volatile boolean closing;
+        // a response kept the connection alive, requests are pipelined
+        private boolean keepAlive;
+        private ChannelHandlerContext ctx;
+        private Channel channel;
+
+        /**
+         * @param template           template of the static part of the requests, null if the requests are whole
+         * @param phaseTimingHandler handler of the channel which stamps the reads, null without phase timing
+         */
+        HttpChannelInboundHandler(NettyHttpClient client, HttpRequestTemplate template, ResponseListener listener,
+                                  int pipelineDepth, PhaseTimingHandler phaseTimingHandler) {
+            this.client = client;
+            this.template = template;
+            this.listener = listener;
+            this.pipelineDepth = pipelineDepth;
+            this.phaseTimingHandler = phaseTimingHandler;
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+            this.channel = ctx.channel();
+        }
+
+        /**
+         * Queues the request from any thread, the event loop writes queued requests in a batch.
+         */
+        private void submit(PendingRequest pendingRequest) {
+            pendingRequest.responseHandler = this;
+            inFlight.incrementAndGet();
+            submittedRequests.offer(pendingRequest);
+            if (writeScheduled.compareAndSet(false, true)) {
+                ctx.executor().execute(writeTask);
+            }
+        }
+
+        private void writeSubmittedRequests() {
+            writeScheduled.set(false);
+            if (!channel.isActive()) {
+                resubmitSubmittedRequests();
+                return;
+            }
+
+            if (closing) {
+                return; // resubmitted when the channel is closed
+            }
+
+            boolean written = false;
+            final long writeStartTime = phaseTimingHandler != null ? System.nanoTime() : 0;
+            final int depth = keepAlive ? pipelineDepth : 1;
+            PendingRequest pendingRequest;
+            while (pendingRequests.size() < depth && (pendingRequest = submittedRequests.poll()) != null) {
+                pendingRequests.addLast(pendingRequest);
+                pendingRequest.writeStartTime = writeStartTime;
+                final ByteBuf request = pendingRequest.request;
+                pendingRequest.request = null;
+                if (template != null) {
+                    ctx.write(template.newStaticPart(), ctx.voidPromise());
+                }
+                ctx.write(request).addListener(pendingRequest);
+                written = true;
+            }
+            if (written) {
+                ctx.flush();
+            }
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (!(msg instanceof HttpObject)) {
+                ctx.fireChannelRead(msg);
+                return;
+            }
+
+            boolean last = false;
+            try {
+                if (msg instanceof HttpResponse) {
+                    statusCode = ((HttpResponse) msg).status().code();
+                    if (HttpUtil.isKeepAlive((HttpResponse) msg)) {
+                        keepAlive = true;
+                    } else {
+                        closing = true;
+                    }
+                    parser.reset();
+                    if (phaseTimingHandler != null) {
+                        firstByteTime = phaseTimingHandler.getReadTime();
+                    }
+                }
+                if (msg instanceof HttpContent) {
+                    parser.parse(((HttpContent) msg).content());
+                    last = msg instanceof LastHttpContent;
+                }
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+
+            if (last) {
+                final PendingRequest pendingRequest = pendingRequests.pollFirst();
+                if (pendingRequest != null && !pendingRequest.completed) {
+                    pendingRequest.completed = true;
+                    inFlight.decrementAndGet();
+                    if (phaseTimingHandler != null) {
+                        reportPhases(pendingRequest);
+                    }
+                    if (parser.isValid(statusCode)) {
+                        pendingRequest.listener.onResponse(pendingRequest.startTime, statusCode);
+                    } else {
+                        pendingRequest.listener.onFailure(pendingRequest.startTime, BalanceParser.malformedResponse());
+                    }
+                }
+                if (!submittedRequests.isEmpty()) {
+                    writeSubmittedRequests();
+                }
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            failPendingRequests(new ClosedChannelException());
+            resubmitSubmittedRequests();
+            super.channelInactive(ctx);
+        }
 
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-            latch.countDown();
-            logger.error().append(cause).commit();
+            failPendingRequests(cause);
             ctx.close();
         }
+
+        private void reportPhases(PendingRequest pendingRequest) {
+            final long startTime = pendingRequest.startTime;
+            listener.onPhase(RequestPhase.QUEUE, pendingRequest.writeStartTime - startTime);
+            listener.onPhase(RequestPhase.WRITE, pendingRequest.writtenTime - pendingRequest.writeStartTime);
+            listener.onPhase(RequestPhase.SERVER_WAIT, firstByteTime - pendingRequest.writtenTime);
+            listener.onPhase(RequestPhase.FIRST_BYTE, firstByteTime - startTime);
+            listener.onPhase(RequestPhase.BODY, System.nanoTime() - firstByteTime);
+        }
+
+        public int getInFlightCount() {
+            return inFlight.get();
+        }
+
+        private void failPendingRequests(Throwable cause) {
+            PendingRequest pendingRequest;
+            while ((pendingRequest = pendingRequests.pollFirst()) != null) {
+                fail(pendingRequest, cause);
+            }
+        }
+
+        /**
+         * Sends the requests which are not written on another channel.
+         */
+        private void resubmitSubmittedRequests() {
+            PendingRequest pendingRequest;
+            while ((pendingRequest = submittedRequests.poll()) != null) {
+                inFlight.decrementAndGet();
+                client.submit(pendingRequest);
+            }
+        }
+
+        private void fail(PendingRequest pendingRequest, Throwable cause) {
+            if (!pendingRequest.completed) {
+                inFlight.decrementAndGet();
+            }
+            pendingRequest.fail(cause);
+        }
     }
 }
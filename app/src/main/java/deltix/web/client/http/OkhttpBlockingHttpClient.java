@@ -0,0 +1,91 @@
+package deltix.web.client.http;
+
+import deltix.web.client.ClientSettings;
+import deltix.web.client.HttpProtocol;
+import deltix.web.client.ResponseListener;
+import deltix.web.client.WebClient;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Blocking OkHttp {@link Call#execute()} on a virtual thread per request, the dispatcher is not used.
+ * The request is built and signed by the calling thread.
+ */
+public final class OkhttpBlockingHttpClient implements WebClient {
+    private final OkHttpClient client;
+    private final String balanceUrl;
+    private final Supplier<Request> requests;
+    private final OkhttpHttpClient.ResponseHandler responseHandler;
+    private final ResponseListener listener;
+    private final ExecutorService executor;
+
+    public OkhttpBlockingHttpClient(ClientSettings settings, Supplier<Request> requests, ResponseListener listener) throws Exception {
+        this.balanceUrl = settings.getBalanceUrl();
+        this.requests = requests;
+        this.responseHandler = new OkhttpHttpClient.ResponseHandler(listener);
+        this.listener = listener;
+        this.executor = VirtualThreadUtil.newVirtualThreadPerTaskExecutor();
+
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                // keep connections of concurrent requests, default is 5 idle connections
+                .connectionPool(new ConnectionPool(512, 5, TimeUnit.MINUTES))
+                .protocols(settings.getProtocol() == HttpProtocol.H2 ?
+                        List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1));
+        if (TlsUtil.isCustomSslContext(settings)) {
+            builder.sslSocketFactory(TlsUtil.sslContext(settings).getSocketFactory(), TlsUtil.trustManager(settings));
+        }
+        if (settings.isTrustAllCertificates()) {
+            builder.hostnameVerifier((hostname, session) -> true);
+        }
+        if (settings.isPhaseTiming()) {
+            builder.eventListenerFactory(OkhttpPhaseListener.factory(listener));
+        }
+        client = builder.build();
+    }
+
+    @Override
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, listener);
+    }
+
+    @Override
+    public void executeRequest(long startTime, ResponseListener requestListener) {
+        final Request request = requests.get();
+        executor.execute(() -> {
+            final Response response;
+            try {
+                response = client.newCall(request).execute();
+            } catch (IOException e) {
+                responseHandler.onFailure(startTime, requestListener, e);
+                return;
+            }
+            responseHandler.onResponse(startTime, requestListener, response);
+        });
+    }
+
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        final Request request = new Request.Builder().url(balanceUrl).head().build();
+        final List<Future<?>> calls = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            calls.add(executor.submit(() -> {
+                client.newCall(request).execute().close();
+                return null;
+            }));
+        }
+        PreconnectUtil.awaitAll(calls);
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        client.connectionPool().evictAll();
+    }
+}
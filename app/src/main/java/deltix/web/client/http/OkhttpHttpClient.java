@@ -1,34 +1,74 @@
 package deltix.web.client.http;
 
-import com.epam.deltix.gflog.api.Log;
+import deltix.web.client.BalanceParser;
+import deltix.web.client.ClientSettings;
+import deltix.web.client.HttpProtocol;
+import deltix.web.client.ResponseListener;
 import deltix.web.client.WebClient;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.util.concurrent.CountDownLatch;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public final class OkhttpHttpClient implements WebClient {
     private final OkHttpClient client;
-    private final Request request;
-    private final ResponseCallback callback;
+    private final String balanceUrl;
+    private final Supplier<Request> requests;
+    private final ResponseHandler responseHandler;
 
-    public OkhttpHttpClient(Request request, ResponseCallback callback) throws Exception {
-        this.request = request;
-        this.callback = callback;
+    public OkhttpHttpClient(ClientSettings settings, Supplier<Request> requests, ResponseHandler responseHandler) throws Exception {
+        this.balanceUrl = settings.getBalanceUrl();
+        this.requests = requests;
+        this.responseHandler = responseHandler;
 
         final Dispatcher dispatcher = new Dispatcher();
         dispatcher.setMaxRequests(512); // increase max concurrent requests limit (default is 64)
         dispatcher.setMaxRequestsPerHost(512); // increase max concurrent requests per host (default is 5)
 
         final OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                .dispatcher(dispatcher);
+                .dispatcher(dispatcher)
+                .protocols(settings.getProtocol() == HttpProtocol.H2 ?
+                        List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1));
+        if (TlsUtil.isCustomSslContext(settings)) {
+            builder.sslSocketFactory(TlsUtil.sslContext(settings).getSocketFactory(), TlsUtil.trustManager(settings));
+        }
+        if (settings.isTrustAllCertificates()) {
+            builder.hostnameVerifier((hostname, session) -> true);
+        }
+        if (settings.isPhaseTiming()) {
+            builder.eventListenerFactory(OkhttpPhaseListener.factory(responseHandler.listener));
+        }
         client = builder.build();
     }
 
     @Override
-    public void executeRequest() {
-        client.newCall(request).enqueue(callback);
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, responseHandler.listener);
+    }
+
+    @Override
+    public void executeRequest(long startTime, ResponseListener listener) {
+        client.newCall(requests.get()).enqueue(new ResponseCallback(startTime, listener, responseHandler));
+    }
+
+    /**
+     * Concurrent HEAD calls on the dispatcher threads, each of them holds a connection of the pool.
+     */
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        final Request request = new Request.Builder().url(balanceUrl).head().build();
+        final List<Future<?>> calls = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            calls.add(client.dispatcher().executorService().submit(() -> {
+                client.newCall(request).execute().close();
+                return null;
+            }));
+        }
+        PreconnectUtil.awaitAll(calls);
     }
 
     @Override
@@ -37,31 +77,61 @@ public final class OkhttpHttpClient implements WebClient {
         client.connectionPool().evictAll();
     }
 
-    public static class ResponseCallback implements Callback {
-        private final CountDownLatch latch;
-        private final Log logger;
+    public static class ResponseHandler {
+        private final ResponseListener listener;
 
-        public ResponseCallback(CountDownLatch latch, Log logger) {
-            this.latch = latch;
-            this.logger = logger;
+        public ResponseHandler(ResponseListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * @param listener listener of the request, see {@link WebClient#executeRequest(long, ResponseListener)}
+         */
+        public void onFailure(long startTime, ResponseListener listener, IOException e) {
+            listener.onFailure(startTime, e);
+        }
+
+        /**
+         * Streams the body through a pooled balance parser and closes it.
+         */
+        public void onResponse(long startTime, ResponseListener listener, Response response) {
+            final BalanceParser parser = BalanceParser.acquire();
+            try (ResponseBody body = response.body()) {
+                if (body != null) {
+                    parser.parse(body.source());
+                }
+                if (parser.isValid(response.code())) {
+                    listener.onResponse(startTime, response.code());
+                } else {
+                    listener.onFailure(startTime, BalanceParser.malformedResponse());
+                }
+            } catch (IOException e) {
+                listener.onFailure(startTime, e);
+            } finally {
+                parser.release();
+            }
+        }
+    }
+
+    private static final class ResponseCallback implements Callback {
+        private final long startTime;
+        private final ResponseListener listener;
+        private final ResponseHandler responseHandler;
+
+        private ResponseCallback(long startTime, ResponseListener listener, ResponseHandler responseHandler) {
+            this.startTime = startTime;
+            this.listener = listener;
+            this.responseHandler = responseHandler;
         }
 
         @Override
         public void onFailure(@NotNull Call call, @NotNull IOException e) {
-            latch.countDown();
-            logger.error().append(e).commit();
+            responseHandler.onFailure(startTime, listener, e);
         }
 
         @Override
-        public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
-            latch.countDown();
-            if (response.code() != 200) {
-                logger.error("Response is not successful: %s").with(response.code());
-            }
-            final ResponseBody body = response.body();
-            if (body != null) {
-                body.close();
-            }
+        public void onResponse(@NotNull Call call, @NotNull Response response) {
+            responseHandler.onResponse(startTime, listener, response);
         }
     }
 }
@@ -0,0 +1,98 @@
+package deltix.web.client.http;
+
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+/**
+ * Reports the phases of a call from the OkHttp {@link EventListener} events, a new listener per call.
+ * The call start is the enqueue (or the execute) of the call, OkHttp reports the start of the response headers
+ * after they are read. Events of a call come in order, from the caller thread and then from the thread of the call.
+ */
+final class OkhttpPhaseListener extends EventListener {
+    private final ResponseListener listener;
+    private long callStartTime;
+    private long dnsStartTime;
+    private long connectStartTime;
+    private long secureConnectStartTime;
+    private long writeStartTime;
+    private long writtenTime;
+    private long firstByteTime;
+
+    private OkhttpPhaseListener(ResponseListener listener) {
+        this.listener = listener;
+    }
+
+    static EventListener.Factory factory(ResponseListener listener) {
+        return call -> new OkhttpPhaseListener(listener);
+    }
+
+    @Override
+    public void callStart(@NotNull Call call) {
+        callStartTime = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NotNull Call call, @NotNull String domainName) {
+        dnsStartTime = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NotNull Call call, @NotNull String domainName, @NotNull List<InetAddress> addresses) {
+        listener.onPhase(RequestPhase.DNS, System.nanoTime() - dnsStartTime);
+    }
+
+    @Override
+    public void connectStart(@NotNull Call call, @NotNull InetSocketAddress address, @NotNull Proxy proxy) {
+        connectStartTime = System.nanoTime();
+        secureConnectStartTime = 0;
+    }
+
+    @Override
+    public void secureConnectStart(@NotNull Call call) {
+        secureConnectStartTime = System.nanoTime();
+        listener.onPhase(RequestPhase.CONNECT, secureConnectStartTime - connectStartTime);
+    }
+
+    @Override
+    public void secureConnectEnd(@NotNull Call call, Handshake handshake) {
+        listener.onPhase(RequestPhase.TLS, System.nanoTime() - secureConnectStartTime);
+    }
+
+    @Override
+    public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress address, @NotNull Proxy proxy, Protocol protocol) {
+        if (secureConnectStartTime == 0) {
+            listener.onPhase(RequestPhase.CONNECT, System.nanoTime() - connectStartTime);
+        }
+    }
+
+    @Override
+    public void requestHeadersStart(@NotNull Call call) {
+        writeStartTime = System.nanoTime();
+        listener.onPhase(RequestPhase.QUEUE, writeStartTime - callStartTime);
+    }
+
+    @Override
+    public void requestHeadersEnd(@NotNull Call call, @NotNull Request request) {
+        writtenTime = System.nanoTime();
+        listener.onPhase(RequestPhase.WRITE, writtenTime - writeStartTime);
+    }
+
+    @Override
+    public void responseHeadersStart(@NotNull Call call) {
+        firstByteTime = System.nanoTime();
+        listener.onPhase(RequestPhase.SERVER_WAIT, firstByteTime - writtenTime);
+        listener.onPhase(RequestPhase.FIRST_BYTE, firstByteTime - callStartTime);
+    }
+
+    @Override
+    public void responseBodyEnd(@NotNull Call call, long byteCount) {
+        listener.onPhase(RequestPhase.BODY, System.nanoTime() - firstByteTime);
+    }
+}
@@ -0,0 +1,61 @@
+package deltix.web.client.http;
+
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.ssl.SslHandler;
+
+import java.net.SocketAddress;
+
+/**
+ * First handler of a Netty client channel, in front of the {@link SslHandler} and the codec: reports the TCP connect
+ * and the TLS handshake of the channel and stamps every read of raw bytes. Handlers behind the codec take the time
+ * of the read which carried the first byte of a response from {@link #getReadTime()}, decoding runs within the read.
+ */
+final class PhaseTimingHandler extends ChannelDuplexHandler {
+    private final ResponseListener listener;
+    private long connectStartTime;
+    private long readTime;
+
+    PhaseTimingHandler(ResponseListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns {@link System#nanoTime()} of the current (or the last) read of the channel.
+     */
+    long getReadTime() {
+        return readTime;
+    }
+
+    @Override
+    public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress, SocketAddress localAddress,
+                        ChannelPromise promise) throws Exception {
+        connectStartTime = System.nanoTime();
+        super.connect(ctx, remoteAddress, localAddress, promise);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        final long connectedTime = System.nanoTime();
+        listener.onPhase(RequestPhase.CONNECT, connectedTime - connectStartTime);
+
+        final SslHandler sslHandler = ctx.pipeline().get(SslHandler.class);
+        if (sslHandler != null) {
+            sslHandler.handshakeFuture().addListener(future -> {
+                if (future.isSuccess()) {
+                    listener.onPhase(RequestPhase.TLS, System.nanoTime() - connectedTime);
+                }
+            });
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readTime = System.nanoTime();
+        super.channelRead(ctx, msg);
+    }
+}
@@ -0,0 +1,22 @@
+package deltix.web.client.http;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+final class PreconnectUtil {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private PreconnectUtil() {
+    }
+
+    /**
+     * Waits for the preconnect requests, the status codes are ignored, failures are rethrown.
+     */
+    static void awaitAll(List<? extends Future<?>> requests) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        for (Future<?> request : requests) {
+            request.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package deltix.web.client.http;
+
+import deltix.web.client.ClientSettings;
+import deltix.web.client.TlsProvider;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.conscrypt.Conscrypt;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+public final class TlsUtil {
+
+    private TlsUtil() {
+    }
+
+    /**
+     * Returns true if the JSSE clients need {@link #sslContext(ClientSettings)} instead of their default one.
+     */
+    public static boolean isCustomSslContext(ClientSettings settings) {
+        return settings.isTrustAllCertificates() || settings.getTlsProvider() != TlsProvider.JDK;
+    }
+
+    /**
+     * New SSL context of the TLS provider (Conscrypt for OpenSSL) with the trust manager of the settings.
+     */
+    public static SSLContext sslContext(ClientSettings settings) throws GeneralSecurityException {
+        final SSLContext sslContext;
+        if (settings.getTlsProvider() == TlsProvider.OPENSSL) {
+            if (!Conscrypt.isAvailable()) {
+                throw new UnsupportedOperationException("Conscrypt is not available on this platform");
+            }
+            sslContext = SSLContext.getInstance("TLS", Conscrypt.newProvider());
+        } else {
+            sslContext = SSLContext.getInstance("TLS");
+        }
+        sslContext.init(null, new TrustManager[]{trustManager(settings)}, null);
+        return sslContext;
+    }
+
+    /**
+     * Trusts all certificates if the settings say so, otherwise the default trust store of the JDK.
+     */
+    public static X509TrustManager trustManager(ClientSettings settings) throws GeneralSecurityException {
+        if (settings.isTrustAllCertificates()) {
+            return (X509TrustManager) InsecureTrustManagerFactory.INSTANCE.getTrustManagers()[0];
+        }
+        final TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init((KeyStore) null);
+        for (TrustManager trustManager : factory.getTrustManagers()) {
+            if (trustManager instanceof X509TrustManager) {
+                return (X509TrustManager) trustManager;
+            }
+        }
+        throw new GeneralSecurityException("No X509TrustManager in the default trust store");
+    }
+
+    /**
+     * Netty SSL provider of the settings: BoringSSL of netty-tcnative for OpenSSL.
+     *
+     * @param referenceCounted the engines and the context of {@code OPENSSL_REFCNT} are released explicitly
+     *                         instead of by finalizers, the owner of the pipeline releases them
+     */
+    public static SslProvider nettySslProvider(ClientSettings settings, boolean referenceCounted) {
+        if (settings.getTlsProvider() != TlsProvider.OPENSSL) {
+            return SslProvider.JDK;
+        }
+        if (!OpenSsl.isAvailable()) {
+            throw new UnsupportedOperationException("OpenSSL is not available: " + OpenSsl.unavailabilityCause());
+        }
+        return referenceCounted ? SslProvider.OPENSSL_REFCNT : SslProvider.OPENSSL;
+    }
+}
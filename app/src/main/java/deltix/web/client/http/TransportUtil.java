@@ -0,0 +1,158 @@
+package deltix.web.client.http;
+
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+import deltix.web.client.ClientSettings;
+import deltix.web.client.IoTransport;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SelectStrategy;
+import io.netty.channel.SelectStrategyFactory;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.IOException;
+import java.nio.channels.spi.SelectorProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Event loop groups of the Netty clients with the channel class of their transport.
+ * <p>
+ * A busy-poll event loop never blocks in the selector: NIO loops over {@code selectNow()}, epoll uses its native
+ * busy-wait, so a response is read without the wake-up of a blocked thread. IO threads can be pinned to CPUs
+ * by the thread factory with {@code taskset} (Linux), e.g. to isolated cores.
+ */
+public final class TransportUtil {
+    private static final Log LOG = LogFactory.getLog(TransportUtil.class);
+
+    private static final SelectStrategyFactory NIO_BUSY_POLL = () -> (selectSupplier, hasTasks) -> selectSupplier.get();
+    private static final SelectStrategyFactory EPOLL_BUSY_POLL =
+            () -> (selectSupplier, hasTasks) -> hasTasks ? selectSupplier.get() : SelectStrategy.BUSY_WAIT;
+
+    private TransportUtil() {
+    }
+
+    /**
+     * New event loop group of the transport, busy-poll, IO ratio and CPU pinning of the settings.
+     *
+     * @throws UnsupportedOperationException if the transport is not available on this platform
+     */
+    public static EventLoopGroup newEventLoopGroup(ClientSettings settings) {
+        final IoTransport transport = settings.getTransport();
+        final int threadCount = settings.getIoThreadCount();
+        ensureAvailable(transport);
+
+        switch (transport) {
+            case EPOLL: {
+                final ThreadFactory threadFactory = threadFactory(EpollEventLoopGroup.class, false, settings.getIoThreadCpus());
+                final EpollEventLoopGroup group = settings.isBusyPoll() ?
+                        new EpollEventLoopGroup(threadCount, threadFactory, EPOLL_BUSY_POLL) :
+                        new EpollEventLoopGroup(threadCount, threadFactory);
+                if (settings.getIoRatio() > 0) {
+                    group.setIoRatio(settings.getIoRatio());
+                }
+                return group;
+            }
+            case IO_URING:
+                if (settings.isBusyPoll()) {
+                    throw new UnsupportedOperationException("Busy-poll is not supported by io_uring");
+                }
+                // daemon threads, the incubator event loop may keep polling after its shutdown
+                return new IOUringEventLoopGroup(threadCount, threadFactory(IOUringEventLoopGroup.class, true, settings.getIoThreadCpus()));
+            default: {
+                final ThreadFactory threadFactory = threadFactory(NioEventLoopGroup.class, false, settings.getIoThreadCpus());
+                final NioEventLoopGroup group = settings.isBusyPoll() ?
+                        new NioEventLoopGroup(threadCount, threadFactory, SelectorProvider.provider(), NIO_BUSY_POLL) :
+                        new NioEventLoopGroup(threadCount, threadFactory);
+                if (settings.getIoRatio() > 0) {
+                    group.setIoRatio(settings.getIoRatio());
+                }
+                return group;
+            }
+        }
+    }
+
+    /**
+     * Socket channel class of the transport, which must match the event loop group.
+     */
+    public static Class<? extends SocketChannel> socketChannelClass(ClientSettings settings) {
+        switch (settings.getTransport()) {
+            case EPOLL:
+                return EpollSocketChannel.class;
+            case IO_URING:
+                return IOUringSocketChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+
+    private static void ensureAvailable(IoTransport transport) {
+        final Throwable cause;
+        if (transport == IoTransport.EPOLL) {
+            cause = Epoll.unavailabilityCause();
+        } else if (transport == IoTransport.IO_URING) {
+            cause = IOUring.unavailabilityCause();
+        } else {
+            cause = null;
+        }
+        if (cause != null) {
+            throw new UnsupportedOperationException(transport + " is not available: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Netty thread factory named after the group, e.g. "epollEventLoopGroup-2-1", which pins a new thread to the next
+     * CPU of the list before it runs the event loop.
+     */
+    private static ThreadFactory threadFactory(Class<?> groupClass, boolean daemon, int[] cpus) {
+        final ThreadFactory threadFactory = new DefaultThreadFactory(groupClass, daemon);
+        if (cpus.length == 0) {
+            return threadFactory;
+        }
+
+        final AtomicInteger nextCpu = new AtomicInteger();
+        return runnable -> {
+            final int cpu = cpus[nextCpu.getAndIncrement() % cpus.length];
+            return threadFactory.newThread(() -> {
+                pinCurrentThread(cpu);
+                runnable.run();
+            });
+        };
+    }
+
+    /**
+     * Sets the CPU affinity of the calling thread with {@code taskset}, the native thread id comes from
+     * {@code /proc/thread-self}. Logs a warning if that fails, e.g. on a platform other than Linux.
+     */
+    public static void pinCurrentThread(int cpu) {
+        try {
+            final Path threadPath = Files.readSymbolicLink(Paths.get("/proc/thread-self")); // <pid>/task/<tid>
+            final String threadId = threadPath.getFileName().toString();
+            final Process process = new ProcessBuilder("taskset", "-p", "-c", String.valueOf(cpu), threadId)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (process.waitFor() != 0) {
+                LOG.warn("Can't pin thread %s to CPU %s: taskset exit code %s")
+                        .with(Thread.currentThread().getName()).with(cpu).with(process.exitValue());
+            } else {
+                LOG.info("Thread %s (tid %s) is pinned to CPU %s").with(Thread.currentThread().getName()).with(threadId).with(cpu);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.warn("Can't pin thread %s to CPU %s: %s").with(Thread.currentThread().getName()).with(cpu).with(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package deltix.web.client.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded number of in-flight requests: a lock-free permit counter, acquired with a CAS loop.
+ */
+public final class InFlightLimiter {
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public InFlightLimiter(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight must be positive: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public boolean hasPermits() {
+        return inFlight.get() < maxInFlight;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+}
@@ -0,0 +1,33 @@
+package deltix.web.client.limit;
+
+/**
+ * What {@link LimitedWebClient} does with a request which exceeds the limits.
+ */
+public enum LimitPolicy {
+    /**
+     * Fails the request at once with {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    REJECT,
+    /**
+     * Keeps the request in a FIFO queue, it is sent when a permit is released or the bucket refills.
+     * Requests beyond the max queue size are rejected.
+     */
+    QUEUE,
+    /**
+     * Parks the calling thread until the request is within the limits.
+     */
+    BLOCK;
+
+    public static LimitPolicy parse(String value) {
+        switch (value.toLowerCase()) {
+            case "reject":
+                return REJECT;
+            case "queue":
+                return QUEUE;
+            case "block":
+                return BLOCK;
+            default:
+                throw new IllegalArgumentException("Unknown limit policy: " + value);
+        }
+    }
+}
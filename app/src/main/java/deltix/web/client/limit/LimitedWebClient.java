@@ -0,0 +1,378 @@
+package deltix.web.client.limit;
+
+import deltix.web.client.Endpoint;
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
+import deltix.web.client.WebClient;
+import deltix.web.client.WebClientFactory;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decorator which keeps the requests of a client within a max number of in-flight requests and a cost-based
+ * {@link TokenBucket}. The client reports its completions to the decorator, which releases the permits.
+ * A request within the limits costs two CAS operations, a request beyond them is handled by the {@link LimitPolicy}.
+ * <p>
+ * Queued requests keep their start time, so the time in the queue is a part of their latency. The queue is drained
+ * by the thread which releases a permit, or by a timer thread when the bucket is empty.
+ */
+public final class LimitedWebClient implements WebClient {
+    // shared, rejections must stay cheap
+    private static final RejectedExecutionException REJECTED = new RejectedExecutionException("Request limit exceeded");
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final ResponseListener listener;
+    private final InFlightLimiter inFlight;
+    private final TokenBucket bucket;
+    private final long cost;
+    private final LimitPolicy policy;
+    private final int maxQueued;
+    private final WebClient client;
+
+    private final Queue<QueuedRequest> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService timer;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+
+    public LimitedWebClient(Settings settings, ResponseListener listener, WebClientFactory factory) throws Exception {
+        this.listener = listener;
+        this.inFlight = settings.getMaxInFlight() > 0 ? new InFlightLimiter(settings.getMaxInFlight()) : null;
+        this.bucket = settings.getBucketCapacity() > 0 ?
+                new TokenBucket(settings.getBucketCapacity(), settings.getBucketRefillRate()) : null;
+        this.cost = settings.getRequestCost();
+        this.policy = settings.getPolicy();
+        this.maxQueued = settings.getMaxQueued();
+
+        if (policy == LimitPolicy.QUEUE && bucket != null) {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                final Thread thread = new Thread(runnable, "limiter-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            timer = executor;
+        } else {
+            timer = null;
+        }
+
+        this.client = factory.create(new PermitListener());
+    }
+
+    @Override
+    public void executeRequest(long startTime) {
+        if (queueSize.get() == 0 && tryAcquire()) {
+            client.executeRequest(startTime);
+            return;
+        }
+
+        switch (policy) {
+            case QUEUE:
+                if (queueSize.incrementAndGet() > maxQueued) {
+                    queueSize.decrementAndGet();
+                    reject(startTime);
+                } else {
+                    queued.increment();
+                    queue.offer(new QueuedRequest(startTime));
+                    drain();
+                }
+                break;
+            case BLOCK:
+                blocked.increment();
+                acquireBlocking();
+                client.executeRequest(startTime);
+                break;
+            default:
+                reject(startTime);
+        }
+    }
+
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        client.preconnect(connectionCount);
+    }
+
+    /**
+     * Closes the client, queued requests are rejected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        client.close();
+
+        QueuedRequest request;
+        while ((request = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            reject(request.startTime);
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the number of requests which waited in the queue.
+     */
+    public long getQueuedCount() {
+        return queued.sum();
+    }
+
+    /**
+     * Returns the number of requests which blocked the caller.
+     */
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight != null ? inFlight.getInFlightCount() : 0;
+    }
+
+    private boolean tryAcquire() {
+        if (inFlight != null && !inFlight.tryAcquire()) {
+            return false;
+        }
+        if (bucket != null && !bucket.tryAcquire(cost, System.nanoTime())) {
+            if (inFlight != null) {
+                inFlight.release();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parks until an in-flight permit is released, then reserves the tokens and parks until they are available.
+     */
+    private void acquireBlocking() {
+        if (inFlight != null) {
+            while (!inFlight.tryAcquire()) {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+        }
+        if (bucket != null) {
+            final long now = System.nanoTime();
+            final long deadline = now + bucket.reserve(cost, now);
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    private void reject(long startTime) {
+        rejected.increment();
+        listener.onFailure(startTime, REJECTED);
+    }
+
+    private void release() {
+        if (inFlight != null) {
+            inFlight.release();
+        }
+        if (queueSize.get() > 0) {
+            drain();
+        }
+    }
+
+    /**
+     * Sends queued requests while they are within the limits, one thread at a time. A thread which finds
+     * the queue busy leaves, so the draining thread checks again for permits released in the meantime.
+     */
+    private void drain() {
+        do {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+
+            long delay = 0;
+            try {
+                QueuedRequest request;
+                while ((request = queue.peek()) != null) {
+                    if (inFlight != null && !inFlight.tryAcquire()) {
+                        break;
+                    }
+                    if (bucket != null) {
+                        final long now = System.nanoTime();
+                        if (!bucket.tryAcquire(cost, now)) {
+                            if (inFlight != null) {
+                                inFlight.release();
+                            }
+                            delay = Math.max(1, bucket.getWaitTime(cost, now));
+                            break;
+                        }
+                    }
+                    queue.poll();
+                    queueSize.decrementAndGet();
+                    client.executeRequest(request.startTime);
+                }
+            } finally {
+                draining.set(false);
+            }
+
+            if (delay > 0) {
+                scheduleDrain(delay);
+                return;
+            }
+        } while (!queue.isEmpty() && (inFlight == null || inFlight.hasPermits()));
+    }
+
+    private void scheduleDrain(long delay) {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                timer.schedule(() -> {
+                    drainScheduled.set(false);
+                    drain();
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false); // closed
+            }
+        }
+    }
+
+    private static final class QueuedRequest {
+        private final long startTime;
+
+        private QueuedRequest(long startTime) {
+            this.startTime = startTime;
+        }
+    }
+
+    /**
+     * Listener of the client: releases the permit of the request before the completion is passed on.
+     */
+    private final class PermitListener implements ResponseListener {
+
+        @Override
+        public void onResponse(long startTime, int statusCode) {
+            release();
+            listener.onResponse(startTime, statusCode);
+        }
+
+        @Override
+        public void onFailure(long startTime, Throwable error) {
+            release();
+            listener.onFailure(startTime, error);
+        }
+
+        @Override
+        public void onPhase(RequestPhase phase, long duration) {
+            listener.onPhase(phase, duration);
+        }
+
+        @Override
+        public void onEndpoint(Endpoint endpoint, long startTime, boolean failed) {
+            listener.onEndpoint(endpoint, startTime, failed);
+        }
+    }
+
+    public static final class Settings {
+        private int maxInFlight;
+        private long bucketCapacity;
+        private double bucketRefillRate;
+        private long requestCost = 1;
+        private LimitPolicy policy = LimitPolicy.REJECT;
+        private int maxQueued = 10_000;
+
+        /**
+         * Max in-flight requests, 0 means unlimited.
+         */
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public Settings setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Tokens of the bucket, 0 disables the rate limit.
+         */
+        public long getBucketCapacity() {
+            return bucketCapacity;
+        }
+
+        public Settings setBucketCapacity(long bucketCapacity) {
+            this.bucketCapacity = bucketCapacity;
+            return this;
+        }
+
+        /**
+         * Tokens per second.
+         */
+        public double getBucketRefillRate() {
+            return bucketRefillRate;
+        }
+
+        public Settings setBucketRefillRate(double bucketRefillRate) {
+            this.bucketRefillRate = bucketRefillRate;
+            return this;
+        }
+
+        /**
+         * Tokens of a request, e.g. the cost of the endpoint in the exchange limits.
+         */
+        public long getRequestCost() {
+            return requestCost;
+        }
+
+        public Settings setRequestCost(long requestCost) {
+            this.requestCost = requestCost;
+            return this;
+        }
+
+        public LimitPolicy getPolicy() {
+            return policy;
+        }
+
+        public Settings setPolicy(LimitPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * Max requests in the queue of {@link LimitPolicy#QUEUE}, the rest is rejected.
+         */
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public Settings setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Settings{" +
+                    "maxInFlight=" + maxInFlight +
+                    ", bucketCapacity=" + bucketCapacity +
+                    ", bucketRefillRate=" + bucketRefillRate +
+                    ", requestCost=" + requestCost +
+                    ", policy=" + policy +
+                    ", maxQueued=" + maxQueued +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package deltix.web.client.limit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket with nanosecond precision for cost-based rate limits, e.g. the Kraken Futures
+ * derivatives API allows 500 cost units per 10 seconds and a request costs 1-10 units.
+ * <p>
+ * The state is a single {@link System#nanoTime()} value, the time when the bucket is full again
+ * (the theoretical arrival time of the generic cell rate algorithm): a request of cost {@code c} moves it
+ * {@code c} refill intervals forward and is allowed if it stays within the capacity of the current time.
+ * Acquiring is one CAS without a refill thread.
+ */
+public final class TokenBucket {
+    private final long capacity;
+    private final long refillInterval;
+    private final long capacityNanos;
+    private final AtomicLong fullTime;
+
+    /**
+     * @param capacity       max tokens, the burst size
+     * @param tokensPerSecond refill rate, the interval between tokens is rounded to nanoseconds
+     */
+    public TokenBucket(long capacity, double tokensPerSecond) {
+        if (capacity <= 0 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive: " + capacity + ", " + tokensPerSecond);
+        }
+        this.capacity = capacity;
+        this.refillInterval = Math.max(1, Math.round(1e9 / tokensPerSecond));
+        this.capacityNanos = capacity * refillInterval;
+        this.fullTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes the tokens if the bucket has them at the given time.
+     */
+    public boolean tryAcquire(long cost, long now) {
+        final long increment = cost * refillInterval;
+        long full;
+        long next;
+        do {
+            full = fullTime.get();
+            next = Math.max(full - now, 0) + now + increment;
+            if (next - now > capacityNanos) {
+                return false;
+            }
+        } while (!fullTime.compareAndSet(full, next));
+        return true;
+    }
+
+    /**
+     * Takes the tokens in advance, the bucket may go into debt.
+     *
+     * @return ns from the given time until the tokens are available, 0 if they are available now
+     */
+    public long reserve(long cost, long now) {
+        final long increment = cost * refillInterval;
+        long full;
+        long next;
+        do {
+            full = fullTime.get();
+            next = Math.max(full - now, 0) + now + increment;
+        } while (!fullTime.compareAndSet(full, next));
+        return Math.max(next - now - capacityNanos, 0);
+    }
+
+    /**
+     * Returns ns from the given time until the bucket has the tokens, 0 if it has them now.
+     */
+    public long getWaitTime(long cost, long now) {
+        final long next = Math.max(fullTime.get() - now, 0) + now + cost * refillInterval;
+        return Math.max(next - now - capacityNanos, 0);
+    }
+
+    /**
+     * Returns the tokens available at the given time.
+     */
+    public long getAvailableTokens(long now) {
+        return Math.max(capacityNanos - Math.max(fullTime.get() - now, 0), 0) / refillInterval;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+}
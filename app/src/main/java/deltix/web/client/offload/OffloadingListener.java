@@ -0,0 +1,321 @@
+package deltix.web.client.offload;
+
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+import deltix.web.client.Endpoint;
+import deltix.web.client.RequestPhase;
+import deltix.web.client.ResponseListener;
+import deltix.web.client.ResponseStats;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decorator which moves the handling of completions (latency recording, counting and logging of the listener)
+ * off the IO threads of the client: an IO thread copies the completion into a preallocated slot of a ring buffer
+ * and returns, a dedicated consumer thread passes the completions on in the order of publication.
+ * <p>
+ * A client completes requests on several IO threads, so a slot is claimed with a compare-and-set of the claim sequence
+ * and published by its own sequence (Disruptor multi-producer sequencing): every slot has a single writer at a time
+ * and the consumer thread is the only writer of the consumer sequence. Nothing is allocated per completion.
+ * An IO thread which finds the ring full yields until the consumer frees a slot, see {@link #getFullWaitCount()}.
+ * <p>
+ * Should be closed after the client, completions after {@link #close()} are passed on by the calling thread.
+ * The consumer thread exits once it has passed on every claimed slot and has sealed the claim sequence,
+ * so a completion which races with the close is either passed on by the consumer or by the calling thread.
+ */
+public final class OffloadingListener implements ResponseListener, Closeable {
+    public static final String THREAD_NAME = "response-offload";
+
+    private static final Log LOG = LogFactory.getLog(OffloadingListener.class);
+
+    private static final int RESPONSE = 0;
+    private static final int FAILURE = 1;
+    private static final int PHASE = 2;
+    private static final int ENDPOINT = 3;
+
+    // claim sequence sealed by the exiting consumer thread
+    private static final long SEALED = Long.MIN_VALUE;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    // a lost wake-up costs at most that
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ResponseListener listener;
+    private final WaitStrategy waitStrategy;
+    private final Event[] events;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final PaddedSequence claimSequence = new PaddedSequence();
+    private final PaddedSequence consumerSequence = new PaddedSequence();
+    private final Recorder handoff = new Recorder(ResponseStats.MAX_LATENCY, 3);
+    private final LongAdder fullWaits = new LongAdder();
+    private final Thread consumer;
+
+    private volatile boolean running = true;
+    private volatile boolean sleeping;
+
+    /**
+     * Starts the consumer thread.
+     *
+     * @param capacity slots of the ring, a power of two
+     */
+    public OffloadingListener(ResponseListener listener, WaitStrategy waitStrategy, int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+
+        this.listener = listener;
+        this.waitStrategy = waitStrategy;
+        this.events = new Event[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new Event();
+            published.set(i, -1);
+        }
+
+        consumer = new Thread(this::consume, THREAD_NAME);
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void onResponse(long startTime, int statusCode) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            listener.onResponse(startTime, statusCode);
+            return;
+        }
+
+        final Event event = events[(int) sequence & mask];
+        event.kind = RESPONSE;
+        event.startTime = startTime;
+        event.statusCode = statusCode;
+        publish(sequence, event);
+    }
+
+    @Override
+    public void onFailure(long startTime, Throwable error) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            listener.onFailure(startTime, error);
+            return;
+        }
+
+        final Event event = events[(int) sequence & mask];
+        event.kind = FAILURE;
+        event.startTime = startTime;
+        event.error = error;
+        publish(sequence, event);
+    }
+
+    @Override
+    public void onPhase(RequestPhase phase, long duration) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            listener.onPhase(phase, duration);
+            return;
+        }
+
+        final Event event = events[(int) sequence & mask];
+        event.kind = PHASE;
+        event.phase = phase;
+        event.duration = duration;
+        publish(sequence, event);
+    }
+
+    @Override
+    public void onEndpoint(Endpoint endpoint, long startTime, boolean failed) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            listener.onEndpoint(endpoint, startTime, failed);
+            return;
+        }
+
+        final Event event = events[(int) sequence & mask];
+        event.kind = ENDPOINT;
+        event.endpoint = endpoint;
+        event.startTime = startTime;
+        event.failed = failed;
+        publish(sequence, event);
+    }
+
+    /**
+     * Stops the consumer thread once the claimed completions are passed on.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the time from publication to handling in ns recorded since the previous call.
+     */
+    public Histogram getHandoffHistogram() {
+        return handoff.getIntervalHistogram();
+    }
+
+    /**
+     * Returns the number of completions which waited for a free slot.
+     */
+    public long getFullWaitCount() {
+        return fullWaits.sum();
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    /**
+     * Returns the sequence of a free slot or -1 if closed. A claimed slot is consumed before the consumer thread exits.
+     */
+    private long claim() {
+        if (!running) {
+            return -1;
+        }
+
+        long sequence;
+        do {
+            sequence = claimSequence.get();
+            if (sequence == SEALED) { // a close has raced with the running check
+                return -1;
+            }
+        } while (!claimSequence.compareAndSet(sequence, sequence + 1));
+
+        final long wrapPoint = sequence - events.length;
+        if (wrapPoint >= consumerSequence.get()) {
+            fullWaits.increment();
+            while (wrapPoint >= consumerSequence.get()) {
+                Thread.yield();
+            }
+        }
+        return sequence;
+    }
+
+    private void publish(long sequence, Event event) {
+        event.publishTime = System.nanoTime();
+        final int index = (int) sequence & mask;
+        if (waitStrategy == WaitStrategy.PARK) {
+            // a full fence, so the sleeping flag can't be read before the slot is published
+            published.set(index, sequence);
+            if (sleeping) {
+                LockSupport.unpark(consumer);
+            }
+        } else {
+            published.lazySet(index, sequence);
+        }
+    }
+
+    private void consume() {
+        long next = 0;
+        int idleCount = 0;
+        while (true) {
+            long sequence = next;
+            while (published.get((int) sequence & mask) == sequence) {
+                handle(events[(int) sequence & mask]);
+                sequence++;
+            }
+
+            if (sequence != next) {
+                next = sequence;
+                consumerSequence.lazySet(next);
+                idleCount = 0;
+            } else if (!running && claimSequence.compareAndSet(next, SEALED)) {
+                return; // every claimed slot is passed on, later claims fail
+            } else {
+                idle(idleCount, next);
+                idleCount = Math.min(idleCount + 1, SPIN_TRIES + YIELD_TRIES);
+            }
+        }
+    }
+
+    private void handle(Event event) {
+        handoff.recordValue(Math.max(0, Math.min(System.nanoTime() - event.publishTime, ResponseStats.MAX_LATENCY)));
+        try {
+            switch (event.kind) {
+                case RESPONSE:
+                    listener.onResponse(event.startTime, event.statusCode);
+                    break;
+                case FAILURE:
+                    final Throwable error = event.error;
+                    event.error = null;
+                    listener.onFailure(event.startTime, error);
+                    break;
+                case ENDPOINT:
+                    listener.onEndpoint(event.endpoint, event.startTime, event.failed);
+                    break;
+                default:
+                    listener.onPhase(event.phase, event.duration);
+            }
+        } catch (Throwable e) {
+            LOG.error().append("Listener failed: ").append(e).commit();
+        }
+    }
+
+    private void idle(int idleCount, long next) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELD:
+                if (idleCount < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+                break;
+            default:
+                if (idleCount < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+                    Thread.yield();
+                } else {
+                    sleeping = true;
+                    if (running && published.get((int) next & mask) != next) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    sleeping = false;
+                }
+        }
+    }
+
+    /**
+     * Preallocated slot of the ring, written by the claiming IO thread and read by the consumer thread after
+     * the publication of its sequence.
+     */
+    private static final class Event {
+        private int kind;
+        private long startTime;
+        private int statusCode;
+        private Throwable error;
+        private RequestPhase phase;
+        private long duration;
+        private Endpoint endpoint;
+        private boolean failed;
+        private long publishTime;
+    }
+
+    /**
+     * Sequence followed by a cache line of padding, so the claims of the IO threads and the progress of
+     * the consumer don't invalidate each other.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedSequence extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
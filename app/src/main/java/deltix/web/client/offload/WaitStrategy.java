@@ -0,0 +1,34 @@
+package deltix.web.client.offload;
+
+/**
+ * How the consumer thread of {@link OffloadingListener} waits for the next event.
+ */
+public enum WaitStrategy {
+    /**
+     * Spins with {@link Thread#onSpinWait()}, the lowest handoff latency at the cost of a busy core.
+     */
+    BUSY_SPIN,
+    /**
+     * Spins for a while, then yields the core to other runnable threads.
+     */
+    YIELD,
+    /**
+     * Spins and yields for a while, then parks until a producer unparks it. Frees the core when idle,
+     * a wake-up costs tens of microseconds.
+     */
+    PARK;
+
+    public static WaitStrategy parse(String value) {
+        switch (value.toLowerCase()) {
+            case "spin":
+            case "busy-spin":
+                return BUSY_SPIN;
+            case "yield":
+                return YIELD;
+            case "park":
+                return PARK;
+            default:
+                throw new IllegalArgumentException("Unknown wait strategy: " + value);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package deltix.web.client.server;
+
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process stand-in for the Kraken futures WebSocket feeds: a subscription starts a book feed of the connection
+ * at a fixed rate. Message {@code i} is due at {@code start + i / rate} and carries the due time in nanos
+ * ({@link System#nanoTime()}) as {@code send_time}, so the latency of the client includes the time a message
+ * waited behind the ones before it (no coordinated omission). Messages are padded to a fixed size and encoded
+ * into pooled buffers, a message larger than the fragment size is sent as a text frame with continuation
+ * frames of slices of the same buffer.
+ * <p>
+ * Threads have the {@link LocalKrakenfutServer#THREAD_NAME_PREFIX} to be excluded from the client stats.
+ */
+public final class LocalFeedServer implements Closeable {
+    private static final Log LOG = LogFactory.getLog(LocalFeedServer.class);
+
+    public static final String FEED_PATH = "/ws/v1";
+
+    private static final byte[] SEQ = "{\"feed\":\"book\",\"product_id\":\"PI_XBTUSD\",\"seq\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SEND_TIME = ",\"send_time\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BUY = ",\"side\":\"buy\",\"price\":30000.5,\"qty\":1500.0,\"timestamp\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SELL = ",\"side\":\"sell\",\"price\":30001.0,\"qty\":2500.0,\"timestamp\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PADDING = ",\"pad\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    private final Settings settings;
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
+    private final Channel serverChannel;
+
+    public LocalFeedServer(Settings settings) throws Exception {
+        this.settings = settings;
+
+        final SslContext sslContext;
+        if (settings.secure) {
+            final SelfSignedCertificate certificate = new SelfSignedCertificate("localhost");
+            sslContext = SslContextBuilder.forServer(certificate.certificate(), certificate.privateKey()).build();
+        } else {
+            sslContext = null;
+        }
+
+        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory(LocalKrakenfutServer.THREAD_NAME_PREFIX + "feed-boss"));
+        workerGroup = new NioEventLoopGroup(settings.ioThreadCount,
+                new DefaultThreadFactory(LocalKrakenfutServer.THREAD_NAME_PREFIX + "feed-io"));
+
+        final ServerBootstrap b = new ServerBootstrap();
+        b.group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ChannelPipeline p = ch.pipeline();
+                        if (sslContext != null) {
+                            p.addLast(sslContext.newHandler(ch.alloc()));
+                        }
+                        p.addLast(new HttpServerCodec());
+                        p.addLast(new HttpObjectAggregator(64 * 1024));
+                        p.addLast(new WebSocketServerProtocolHandler(FEED_PATH));
+                        p.addLast(new FeedHandler());
+                    }
+                });
+
+        serverChannel = b.bind(settings.host, settings.port).sync().channel();
+        LOG.info("Local feed server is listening on %s").with(getUrl());
+    }
+
+    public int getPort() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    public String getUrl() {
+        return (settings.secure ? "wss" : "ws") + "://" + settings.host + ":" + getPort() + FEED_PATH;
+    }
+
+    @Override
+    public void close() {
+        serverChannel.close().syncUninterruptibly();
+        bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Encodes a book message padded to the size, numbers are formatted without allocation.
+     */
+    static ByteBuf encode(ByteBuf buffer, long seq, long sendTime, long timestamp, int size) {
+        buffer.writeBytes(SEQ);
+        writeLong(buffer, seq);
+        buffer.writeBytes(SEND_TIME);
+        writeLong(buffer, sendTime);
+        buffer.writeBytes((seq & 1) == 0 ? BUY : SELL);
+        writeLong(buffer, timestamp);
+        buffer.writeBytes(PADDING);
+        for (int i = buffer.readableBytes() + END.length; i < size; i++) {
+            buffer.writeByte('x');
+        }
+        return buffer.writeBytes(END);
+    }
+
+    private static void writeLong(ByteBuf buffer, long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        final int start = buffer.writerIndex();
+        buffer.writerIndex(start + digits);
+        for (int i = start + digits - 1; i >= start; i--) {
+            buffer.setByte(i, (int) ('0' + value % 10));
+            value /= 10;
+        }
+    }
+
+    /**
+     * Publishes the feed of a connection after a subscription, on the event loop of the connection.
+     */
+    private final class FeedHandler extends SimpleChannelInboundHandler<TextWebSocketFrame> implements Runnable {
+        private final long interval = Math.max(1, TimeUnit.SECONDS.toNanos(1) / settings.rate);
+        private ChannelHandlerContext ctx;
+        private ScheduledFuture<?> next;
+        private long start;
+        private long seq;
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, TextWebSocketFrame frame) {
+            final String text = frame.text();
+            if (text.contains("\"unsubscribe\"")) {
+                stop();
+                ctx.writeAndFlush(new TextWebSocketFrame("{\"event\":\"unsubscribed\",\"feed\":\"book\"}"));
+            } else if (text.contains("\"subscribe\"") && this.ctx == null) {
+                ctx.writeAndFlush(new TextWebSocketFrame(
+                        "{\"event\":\"subscribed\",\"feed\":\"book\",\"product_ids\":[\"PI_XBTUSD\"]}"));
+                this.ctx = ctx;
+                start = System.nanoTime();
+                seq = 0;
+                run();
+            }
+        }
+
+        /**
+         * Sends the messages which are due with a single flush and schedules the next message.
+         */
+        @Override
+        public void run() {
+            if (ctx == null) {
+                return;
+            }
+
+            final long now = System.nanoTime();
+            long due = start + seq * interval;
+            boolean written = false;
+            while (due - now <= 0 && ctx.channel().isWritable()) {
+                publish(due);
+                written = true;
+                due = start + ++seq * interval;
+            }
+            if (written) {
+                ctx.flush();
+            }
+            // a slow consumer is polled until the channel is writable again
+            next = ctx.executor().schedule(this, Math.max(due - System.nanoTime(), 10_000), TimeUnit.NANOSECONDS);
+        }
+
+        private void publish(long sendTime) {
+            final int size = settings.messageSize;
+            final ByteBuf message = encode(ctx.alloc().directBuffer(size), seq, sendTime, System.currentTimeMillis(), size);
+            final int fragmentSize = settings.fragmentSize;
+            if (fragmentSize <= 0 || message.readableBytes() <= fragmentSize) {
+                ctx.write(new TextWebSocketFrame(message));
+                return;
+            }
+
+            final int length = message.readableBytes();
+            WebSocketFrame frame = new TextWebSocketFrame(false, 0, message.retainedSlice(0, fragmentSize));
+            for (int offset = fragmentSize; offset < length; offset += fragmentSize) {
+                ctx.write(frame);
+                final int fragmentLength = Math.min(fragmentSize, length - offset);
+                frame = new ContinuationWebSocketFrame(offset + fragmentLength == length, 0,
+                        message.retainedSlice(offset, fragmentLength));
+            }
+            ctx.write(frame);
+            message.release();
+        }
+
+        private void stop() {
+            if (next != null) {
+                next.cancel(false);
+                next = null;
+            }
+            ctx = null;
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            stop();
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LOG.debug().append(cause).commit(); // connection reset by the client
+            ctx.close();
+        }
+    }
+
+    public static final class Settings {
+        private String host = "localhost";
+        private int port;
+        private boolean secure = true;
+        private int rate = 1000;
+        private int messageSize = 512;
+        private int fragmentSize;
+        private int ioThreadCount = 1;
+
+        public Settings setHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * @param port to listen on, 0 to pick an ephemeral port
+         */
+        public Settings setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Settings setSecure(boolean secure) {
+            this.secure = secure;
+            return this;
+        }
+
+        /**
+         * Messages per second of a subscription.
+         */
+        public Settings setRate(int rate) {
+            if (rate <= 0) {
+                throw new IllegalArgumentException("Rate must be positive: " + rate);
+            }
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         * Size of a message in bytes, messages are not smaller than their fields.
+         */
+        public Settings setMessageSize(int messageSize) {
+            this.messageSize = messageSize;
+            return this;
+        }
+
+        /**
+         * Max payload of a frame, larger messages are fragmented, 0 disables fragmentation.
+         */
+        public Settings setFragmentSize(int fragmentSize) {
+            this.fragmentSize = fragmentSize;
+            return this;
+        }
+
+        public Settings setIoThreadCount(int ioThreadCount) {
+            this.ioThreadCount = ioThreadCount;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Settings{" +
+                    "host='" + host + '\'' +
+                    ", port=" + port +
+                    ", secure=" + secure +
+                    ", rate=" + rate +
+                    ", messageSize=" + messageSize +
+                    ", fragmentSize=" + fragmentSize +
+                    ", ioThreadCount=" + ioThreadCount +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package deltix.web.client.server;
+
+import com.epam.deltix.gflog.api.Log;
+import com.epam.deltix.gflog.api.LogFactory;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.*;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process stand-in for the Kraken futures accounts endpoint and the order endpoints of a mixed workload.
+ * Serves a pre-encoded accounts response of configurable size over HTTPS (self-signed certificate) or HTTP/1.1.
+ * HTTPS negotiates h2 or http/1.1 with ALPN. {@code POST sendorder} and {@code POST cancelorder} get a small
+ * pre-encoded success response, 400 Bad Request without a form body and 405 Method Not Allowed for other methods.
+ * <p>
+ * Faults can be injected into the responses of all endpoints with a seeded random: slow responses, connection resets
+ * (a reset of the stream with HTTP/2) and 429 Too Many Requests. The sequence of faults is reproducible
+ * with a single IO thread.
+ */
+public final class LocalKrakenfutServer implements Closeable {
+    private static final Log LOG = LogFactory.getLog(LocalKrakenfutServer.class);
+
+    public static final String ACCOUNTS_PATH = "/api/v3/accounts";
+    public static final String BALANCE_PATH = "/derivatives" + ACCOUNTS_PATH;
+    public static final String SEND_ORDER_PATH = "/api/v3/sendorder";
+    public static final String CANCEL_ORDER_PATH = "/api/v3/cancelorder";
+    private static final String SERVER_TIME = "\"serverTime\":\"2024-01-01T00:00:00.000Z\"";
+    /**
+     * Server threads are named with the prefix, so that they can be told apart from client threads.
+     */
+    public static final String THREAD_NAME_PREFIX = "local-server-";
+
+    private final Settings settings;
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
+    private final ByteBuf accountsBody;
+    private final ByteBuf sendOrderBody = constantBody("{\"result\":\"success\",\"sendStatus\":{" +
+            "\"order_id\":\"c18f0c17-9971-40e6-8e5b-10df05d422f0\",\"status\":\"placed\"," +
+            "\"receivedTime\":\"2024-01-01T00:00:00.000Z\"}," + SERVER_TIME + "}");
+    private final ByteBuf cancelOrderBody = constantBody("{\"result\":\"success\",\"cancelStatus\":{" +
+            "\"order_id\":\"c18f0c17-9971-40e6-8e5b-10df05d422f0\",\"status\":\"cancelled\"," +
+            "\"receivedTime\":\"2024-01-01T00:00:00.000Z\"}," + SERVER_TIME + "}");
+    private final ByteBuf errorBody = constantBody("{\"result\":\"error\",\"error\":\"invalidArgument\"," +
+            SERVER_TIME + "}");
+    private final Random faults;
+    private final Channel serverChannel;
+
+    public LocalKrakenfutServer(Settings settings) throws Exception {
+        this.settings = settings;
+        this.accountsBody = Unpooled.unreleasableBuffer(
+                Unpooled.directBuffer(settings.responseSize).writeBytes(createAccountsBody(settings.responseSize)));
+        this.faults = new Random(settings.faultSeed);
+
+        final SslContext sslContext;
+        if (settings.secure) {
+            final SelfSignedCertificate certificate = new SelfSignedCertificate("localhost");
+            final SslContextBuilder sslContextBuilder = SslContextBuilder.forServer(certificate.certificate(), certificate.privateKey());
+            if (settings.http2) {
+                sslContextBuilder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                        .applicationProtocolConfig(new ApplicationProtocolConfig(
+                                ApplicationProtocolConfig.Protocol.ALPN,
+                                ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                                ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                                ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1));
+            }
+            sslContext = sslContextBuilder.build();
+        } else {
+            sslContext = null;
+        }
+
+        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory(THREAD_NAME_PREFIX + "boss"));
+        workerGroup = new NioEventLoopGroup(settings.ioThreadCount, new DefaultThreadFactory(THREAD_NAME_PREFIX + "io"));
+
+        final ServerBootstrap b = new ServerBootstrap();
+        b.group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ChannelPipeline p = ch.pipeline();
+                        if (sslContext != null) {
+                            p.addLast(sslContext.newHandler(ch.alloc()));
+                            p.addLast(new ProtocolNegotiationHandler());
+                        } else {
+                            configureHttp1(p);
+                        }
+                    }
+                });
+
+        serverChannel = b.bind(settings.host, settings.port).sync().channel();
+        LOG.info("Local Krakenfut server is listening on %s").with(getBalanceUrl());
+    }
+
+    public int getPort() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    public String getBalanceUrl() {
+        return (settings.secure ? "https" : "http") + "://" + settings.host + ":" + getPort() + BALANCE_PATH;
+    }
+
+    @Override
+    public void close() {
+        serverChannel.close().syncUninterruptibly();
+        bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    private void configureHttp1(ChannelPipeline p) {
+        p.addLast(new HttpServerCodec());
+        p.addLast(new HttpObjectAggregator(64 * 1024));
+        p.addLast(new AccountsHandler(false));
+    }
+
+    private void configureHttp2(ChannelPipeline p) {
+        p.addLast(Http2FrameCodecBuilder.forServer().build());
+        p.addLast(new Http2MultiplexHandler(new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+                ch.pipeline().addLast(new HttpObjectAggregator(64 * 1024));
+                ch.pipeline().addLast(new AccountsHandler(true));
+            }
+        }));
+    }
+
+    private final class ProtocolNegotiationHandler extends ApplicationProtocolNegotiationHandler {
+
+        private ProtocolNegotiationHandler() {
+            super(ApplicationProtocolNames.HTTP_1_1);
+        }
+
+        @Override
+        protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+            if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                configureHttp2(ctx.pipeline());
+            } else {
+                configureHttp1(ctx.pipeline());
+            }
+        }
+    }
+
+    private static ByteBuf constantBody(String body) {
+        final byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        return Unpooled.unreleasableBuffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes));
+    }
+
+    static byte[] createAccountsBody(int size) {
+        final StringBuilder builder = new StringBuilder(size + 128);
+        builder.append("{\"result\":\"success\",\"accounts\":{\"cash\":{\"type\":\"cashAccount\",\"balances\":{")
+                .append("\"xbt\":0.1387,\"eth\":2.5,\"usd\":10000.0");
+
+        final String suffix = "}}},\"serverTime\":\"2024-01-01T00:00:00.000Z\"}";
+        for (int i = 0; builder.length() + suffix.length() < size; i++) {
+            builder.append(",\"c").append(i).append("\":").append(i).append(".25");
+        }
+        builder.append(suffix);
+        return builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private final class AccountsHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        private final boolean http2;
+        // HTTP/1.1 responses go out in the order of the requests, a slow response blocks the ones behind it
+        private final Queue<PendingResponse> pendingResponses = new ArrayDeque<>();
+
+        private AccountsHandler(boolean http2) {
+            this.http2 = http2;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            // an HTTP/2 stream ends with the response, the connection stays open
+            final boolean keepAlive = http2 || settings.keepAlive && HttpUtil.isKeepAlive(request);
+            // HEAD (preconnect of the clients) gets the headers of the accounts response without the body
+            final boolean head = HttpMethod.HEAD.equals(request.method());
+
+            final String path = new QueryStringDecoder(request.uri()).rawPath();
+            HttpResponseStatus status = HttpResponseStatus.OK;
+            ByteBuf body;
+            if (path.endsWith(ACCOUNTS_PATH)) {
+                body = accountsBody;
+            } else if (path.endsWith(SEND_ORDER_PATH) || path.endsWith(CANCEL_ORDER_PATH)) {
+                body = path.endsWith(SEND_ORDER_PATH) ? sendOrderBody : cancelOrderBody;
+                if (!HttpMethod.POST.equals(request.method())) {
+                    status = HttpResponseStatus.METHOD_NOT_ALLOWED;
+                    body = null;
+                } else if (!request.content().isReadable()) {
+                    status = HttpResponseStatus.BAD_REQUEST;
+                    body = errorBody;
+                }
+            } else {
+                status = HttpResponseStatus.NOT_FOUND;
+                body = null;
+            }
+
+            long thinkTimeMicros = settings.thinkTimeMicros;
+            if (status == HttpResponseStatus.OK && !head && settings.hasFaults()) {
+                final double fault = faults.nextDouble();
+                if (fault < settings.resetRate) {
+                    reset(ctx);
+                    return;
+                } else if (fault < settings.resetRate + settings.throttleRate) {
+                    status = HttpResponseStatus.TOO_MANY_REQUESTS;
+                    body = null;
+                } else if (fault < settings.resetRate + settings.throttleRate + settings.slowRate) {
+                    thinkTimeMicros = settings.slowTimeMicros;
+                }
+            }
+
+            final FullHttpResponse response = body != null && !head ?
+                    new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, body.retainedDuplicate()) :
+                    new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.EMPTY_BUFFER);
+
+            response.headers()
+                    .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                    .setInt(HttpHeaderNames.CONTENT_LENGTH, body != null ? body.readableBytes() : 0);
+            if (status == HttpResponseStatus.TOO_MANY_REQUESTS) {
+                response.headers().setInt(HttpHeaderNames.RETRY_AFTER, 1);
+            }
+            if (!keepAlive) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            }
+
+            final PendingResponse pending = new PendingResponse(response, keepAlive);
+            pendingResponses.offer(pending);
+            if (thinkTimeMicros > 0) {
+                ctx.executor().schedule(() -> respond(ctx, pending), thinkTimeMicros, TimeUnit.MICROSECONDS);
+            } else {
+                respond(ctx, pending);
+            }
+        }
+
+        private void respond(ChannelHandlerContext ctx, PendingResponse ready) {
+            ready.ready = true;
+            PendingResponse pending;
+            while ((pending = pendingResponses.peek()) != null && pending.ready) {
+                pendingResponses.poll();
+                final ChannelFuture future = ctx.writeAndFlush(pending.response);
+                if (!pending.keepAlive) {
+                    future.addListener(ChannelFutureListener.CLOSE);
+                }
+            }
+        }
+
+        /**
+         * Closes the connection with a TCP reset, a stream of HTTP/2 with RST_STREAM.
+         */
+        private void reset(ChannelHandlerContext ctx) {
+            if (!http2) {
+                ctx.channel().config().setOption(ChannelOption.SO_LINGER, 0);
+            }
+            ctx.close();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (cause instanceof IOException) {
+                LOG.debug().append(cause).commit(); // connection reset by the client
+            } else {
+                LOG.warn().append(cause).commit();
+            }
+            ctx.close();
+        }
+    }
+
+    private static final class PendingResponse {
+        private final FullHttpResponse response;
+        private final boolean keepAlive;
+        private boolean ready;
+
+        private PendingResponse(FullHttpResponse response, boolean keepAlive) {
+            this.response = response;
+            this.keepAlive = keepAlive;
+        }
+    }
+
+    public static final class Settings {
+        private String host = "localhost";
+        private int port;
+        private boolean secure = true;
+        private boolean http2 = true;
+        private int responseSize = 1024;
+        private long thinkTimeMicros;
+        private boolean keepAlive = true;
+        private int ioThreadCount = 1;
+        private double slowRate;
+        private long slowTimeMicros = 50_000;
+        private double resetRate;
+        private double throttleRate;
+        private long faultSeed = 42;
+
+        public Settings setHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * @param port to listen on, 0 to pick an ephemeral port
+         */
+        public Settings setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Settings setSecure(boolean secure) {
+            this.secure = secure;
+            return this;
+        }
+
+        /**
+         * Offers h2 besides http/1.1 with ALPN, requires TLS.
+         */
+        public Settings setHttp2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        public Settings setResponseSize(int responseSize) {
+            this.responseSize = responseSize;
+            return this;
+        }
+
+        public Settings setThinkTimeMicros(long thinkTimeMicros) {
+            this.thinkTimeMicros = thinkTimeMicros;
+            return this;
+        }
+
+        public Settings setKeepAlive(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        public Settings setIoThreadCount(int ioThreadCount) {
+            this.ioThreadCount = ioThreadCount;
+            return this;
+        }
+
+        /**
+         * Share of responses which are delayed by the slow time instead of the think time.
+         */
+        public Settings setSlowRate(double slowRate) {
+            this.slowRate = slowRate;
+            return this;
+        }
+
+        public Settings setSlowTimeMicros(long slowTimeMicros) {
+            this.slowTimeMicros = slowTimeMicros;
+            return this;
+        }
+
+        /**
+         * Share of requests which are answered with a connection reset.
+         */
+        public Settings setResetRate(double resetRate) {
+            this.resetRate = resetRate;
+            return this;
+        }
+
+        /**
+         * Share of requests which are answered with 429 Too Many Requests.
+         */
+        public Settings setThrottleRate(double throttleRate) {
+            this.throttleRate = throttleRate;
+            return this;
+        }
+
+        public Settings setFaultSeed(long faultSeed) {
+            this.faultSeed = faultSeed;
+            return this;
+        }
+
+        private boolean hasFaults() {
+            return slowRate > 0 || resetRate > 0 || throttleRate > 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Settings{" +
+                    "host='" + host + '\'' +
+                    ", port=" + port +
+                    ", secure=" + secure +
+                    ", http2=" + http2 +
+                    ", responseSize=" + responseSize +
+                    ", thinkTimeMicros=" + thinkTimeMicros +
+                    ", keepAlive=" + keepAlive +
+                    ", ioThreadCount=" + ioThreadCount +
+                    ", slowRate=" + slowRate +
+                    ", slowTimeMicros=" + slowTimeMicros +
+                    ", resetRate=" + resetRate +
+                    ", throttleRate=" + throttleRate +
+                    ", faultSeed=" + faultSeed +
+                    '}';
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Settings settings = new Settings()
+                .setPort(args.length > 0 ? Integer.parseInt(args[0]) : 8443)
+                .setResponseSize(args.length > 1 ? Integer.parseInt(args[1]) : 1024)
+                .setThinkTimeMicros(args.length > 2 ? Long.parseLong(args[2]) : 0)
+                .setKeepAlive(args.length > 3 ? Boolean.parseBoolean(args[3]) : true)
+                .setSecure(args.length > 4 ? Boolean.parseBoolean(args[4]) : true);
+
+        final LocalKrakenfutServer server = new LocalKrakenfutServer(settings);
+        server.serverChannel.closeFuture().sync();
+    }
+}
@@ -0,0 +1,151 @@
+package deltix.web.client.workload;
+
+import deltix.web.client.Endpoint;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encodes the form bodies of the order endpoints into a reusable array of the calling thread, the body is then
+ * signed from the same array, see {@link deltix.web.client.KrakenfutSigner#sign(byte[], int, int, byte[])}.
+ * <ul>
+ *     <li>{@code sendorder} - a limit order of size 1 with a new client order id, buy and sell alternate</li>
+ *     <li>{@code cancelorder} - the client order id of the latest order</li>
+ *     <li>{@code accounts} - an empty body</li>
+ * </ul>
+ * The static fields are encoded once, numbers are formatted into the array, so an encode does not allocate.
+ */
+public final class OrderEncoder {
+    private static final byte[] CLIENT_ORDER_ID = "&cliOrdId=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CANCEL_CLIENT_ORDER_ID = "cliOrdId=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ORDER_ID_PREFIX = "bench-".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_DIGITS = 20;
+
+    private final byte[] buyPrefix;
+    private final byte[] sellPrefix;
+    private final long limitPrice;
+    private final AtomicLong orderIds = new AtomicLong();
+    private final ThreadLocal<Body> bodies;
+
+    /**
+     * @param symbol     contract of the orders, e.g. {@code PI_XBTUSD}
+     * @param limitPrice limit price of the orders
+     */
+    public OrderEncoder(String symbol, long limitPrice) {
+        if (limitPrice <= 0) {
+            throw new IllegalArgumentException("Limit price must be positive: " + limitPrice);
+        }
+        this.buyPrefix = prefix(symbol, "buy");
+        this.sellPrefix = prefix(symbol, "sell");
+        this.limitPrice = limitPrice;
+
+        final int capacity = Math.max(buyPrefix.length, sellPrefix.length) + CLIENT_ORDER_ID.length +
+                ORDER_ID_PREFIX.length + 2 * MAX_DIGITS;
+        this.bodies = ThreadLocal.withInitial(() -> new Body(capacity));
+    }
+
+    private static byte[] prefix(String symbol, String side) {
+        return ("orderType=lmt&symbol=" + symbol + "&side=" + side + "&size=1&limitPrice=")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Encodes the body of the next request to the endpoint.
+     *
+     * @return the body of the calling thread, valid until the next call on the same thread
+     */
+    public Body encode(Endpoint endpoint) {
+        final Body body = bodies.get();
+        switch (endpoint) {
+            case SEND_ORDER:
+                final long orderId = orderIds.incrementAndGet();
+                body.length = 0;
+                body.append((orderId & 1) == 0 ? buyPrefix : sellPrefix);
+                body.append(limitPrice);
+                body.append(CLIENT_ORDER_ID);
+                body.append(ORDER_ID_PREFIX);
+                body.append(orderId);
+                break;
+            case CANCEL_ORDER:
+                body.length = 0;
+                body.append(CANCEL_CLIENT_ORDER_ID);
+                body.append(ORDER_ID_PREFIX);
+                body.append(orderIds.get());
+                break;
+            default:
+                body.length = 0;
+        }
+        body.formatContentLength();
+        return body;
+    }
+
+    /**
+     * Form body in {@code [0, getLength())} of the array.
+     */
+    public static final class Body {
+        private final byte[] bytes;
+        private final byte[] contentLength = new byte[MAX_DIGITS];
+        private int length;
+        private int contentLengthOffset;
+
+        private Body(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Digits of the length for a {@code Content-Length} header are
+         * {@code [getContentLengthOffset(), getContentLength().length)}.
+         */
+        public byte[] getContentLength() {
+            return contentLength;
+        }
+
+        public int getContentLengthOffset() {
+            return contentLengthOffset;
+        }
+
+        public int getContentLengthDigits() {
+            return contentLength.length - contentLengthOffset;
+        }
+
+        private void append(byte[] value) {
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        private void append(long value) {
+            int digits = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            for (int i = length + digits - 1; i >= length; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+
+        private void formatContentLength() {
+            int offset = contentLength.length;
+            int value = length;
+            do {
+                contentLength[--offset] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            contentLengthOffset = offset;
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+        }
+    }
+}
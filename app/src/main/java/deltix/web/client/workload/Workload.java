@@ -0,0 +1,126 @@
+package deltix.web.client.workload;
+
+import deltix.web.client.Endpoint;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request mix of a client: a cycle of endpoints which the requests go through in order. The cycle is either
+ * an ordered script or interleaved from per-endpoint weights with smooth weighted round-robin, so that
+ * {@code sendorder:3,accounts:1} sends {@code sendorder, accounts, sendorder, sendorder} and not three orders
+ * in a row followed by a poll. Thread-safe, the position in the cycle is shared by all submitters.
+ */
+public final class Workload {
+    private final Endpoint[] cycle;
+    private final String definition;
+    private final AtomicLong position = new AtomicLong();
+    private String orderSymbol = "PI_XBTUSD";
+    private long orderPrice = 30_000;
+
+    private Workload(Endpoint[] cycle, String definition) {
+        if (cycle.length == 0) {
+            throw new IllegalArgumentException("Empty workload: " + definition);
+        }
+        this.cycle = cycle;
+        this.definition = definition;
+    }
+
+    /**
+     * Parses weights, e.g. {@code accounts:1,sendorder:6,cancelorder:3}, a weight defaults to 1.
+     */
+    public static Workload weighted(String weights) {
+        final Map<Endpoint, Integer> parsed = new EnumMap<>(Endpoint.class);
+        for (String entry : weights.split(",")) {
+            final String[] parts = entry.trim().split(":");
+            final int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight: " + entry);
+            }
+            parsed.merge(Endpoint.parse(parts[0].trim()), weight, Integer::sum);
+        }
+        return new Workload(interleave(parsed), weights);
+    }
+
+    /**
+     * Parses an ordered script, e.g. {@code sendorder*2,accounts,cancelorder*2}, which is repeated.
+     */
+    public static Workload script(String script) {
+        final List<Endpoint> cycle = new ArrayList<>();
+        for (String entry : script.split(",")) {
+            final String[] parts = entry.trim().split("\\*");
+            final int count = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            final Endpoint endpoint = Endpoint.parse(parts[0].trim());
+            for (int i = 0; i < count; i++) {
+                cycle.add(endpoint);
+            }
+        }
+        return new Workload(cycle.toArray(new Endpoint[0]), "script " + script);
+    }
+
+    /**
+     * Returns the endpoint of the next request.
+     */
+    public Endpoint next() {
+        return cycle[(int) (position.getAndIncrement() % cycle.length)];
+    }
+
+    /**
+     * Contract and limit price of the orders.
+     */
+    public Workload setOrder(String symbol, long limitPrice) {
+        this.orderSymbol = symbol;
+        this.orderPrice = limitPrice;
+        return this;
+    }
+
+    /**
+     * Returns a new encoder of the order bodies, every client has its own order ids.
+     */
+    public OrderEncoder newOrderEncoder() {
+        return new OrderEncoder(orderSymbol, orderPrice);
+    }
+
+    /**
+     * Returns one pass of the cycle.
+     */
+    public Endpoint[] getCycle() {
+        return cycle.clone();
+    }
+
+    /**
+     * Smooth weighted round-robin: every step adds the weights to the current values and picks the endpoint
+     * with the highest one, which pays the total weight back.
+     */
+    private static Endpoint[] interleave(Map<Endpoint, Integer> weights) {
+        int total = 0;
+        for (int weight : weights.values()) {
+            total += weight;
+        }
+
+        final Endpoint[] cycle = new Endpoint[total];
+        final int[] current = new int[Endpoint.values().length];
+        for (int i = 0; i < total; i++) {
+            Endpoint selected = null;
+            for (Map.Entry<Endpoint, Integer> weight : weights.entrySet()) {
+                final int index = weight.getKey().ordinal();
+                current[index] += weight.getValue();
+                if (selected == null || current[index] > current[selected.ordinal()]) {
+                    selected = weight.getKey();
+                }
+            }
+            current[selected.ordinal()] -= total;
+            cycle[i] = selected;
+        }
+        return cycle;
+    }
+
+    @Override
+    public String toString() {
+        return "Workload{" + definition + ", cycle of " + cycle.length +
+                ", order " + orderSymbol + " at " + orderPrice + '}';
+    }
+}
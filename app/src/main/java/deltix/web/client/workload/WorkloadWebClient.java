@@ -0,0 +1,94 @@
+package deltix.web.client.workload;
+
+import deltix.web.client.Endpoint;
+import deltix.web.client.ResponseListener;
+import deltix.web.client.WebClient;
+import deltix.web.client.WebClientFactory;
+
+import java.io.IOException;
+
+/**
+ * Decorator which drives a client with the request mix of a {@link Workload}: every request takes the next endpoint
+ * of the workload, which the request suppliers of the client read with {@link #currentEndpoint()} while
+ * {@link WebClient#executeRequest(long)} runs, so the client must build its request on the calling thread.
+ * The request is sent with the listener of its endpoint ({@link WebClient#executeRequest(long, ResponseListener)}),
+ * which reports the endpoint with {@link ResponseListener#onEndpoint} right before the completion.
+ * <p>
+ * Must be the innermost decorator: a limiter may send queued requests from other threads and a hedge would take
+ * another endpoint of the workload.
+ */
+public final class WorkloadWebClient implements WebClient {
+    private static final ThreadLocal<Endpoint> CURRENT = new ThreadLocal<>();
+
+    private final Workload workload;
+    private final EndpointListener[] listeners;
+    private final WebClient client;
+
+    public WorkloadWebClient(Workload workload, ResponseListener listener, WebClientFactory factory) throws Exception {
+        this.workload = workload;
+        this.listeners = new EndpointListener[Endpoint.values().length];
+        for (Endpoint endpoint : Endpoint.values()) {
+            listeners[endpoint.ordinal()] = new EndpointListener(endpoint, listener);
+        }
+        this.client = factory.create(listener);
+    }
+
+    /**
+     * Returns the endpoint of the request which is being sent by the calling thread,
+     * requests outside of a workload (e.g. of a preconnect) are balance requests.
+     */
+    public static Endpoint currentEndpoint() {
+        final Endpoint endpoint = CURRENT.get();
+        return endpoint != null ? endpoint : Endpoint.ACCOUNTS;
+    }
+
+    @Override
+    public void executeRequest(long startTime) {
+        final Endpoint endpoint = workload.next();
+        CURRENT.set(endpoint);
+        try {
+            client.executeRequest(startTime, listeners[endpoint.ordinal()]);
+        } finally {
+            CURRENT.set(null);
+        }
+    }
+
+    @Override
+    public void preconnect(int connectionCount) throws Exception {
+        client.preconnect(connectionCount);
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    /**
+     * Listener of the requests of an endpoint: reports the endpoint before the completion is passed on.
+     */
+    private static final class EndpointListener implements ResponseListener {
+        private final Endpoint endpoint;
+        private final ResponseListener listener;
+
+        private EndpointListener(Endpoint endpoint, ResponseListener listener) {
+            this.endpoint = endpoint;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onResponse(long startTime, int statusCode) {
+            listener.onEndpoint(endpoint, startTime, false);
+            listener.onResponse(startTime, statusCode);
+        }
+
+        @Override
+        public void onFailure(long startTime, Throwable error) {
+            listener.onEndpoint(endpoint, startTime, true);
+            listener.onFailure(startTime, error);
+        }
+    }
+}
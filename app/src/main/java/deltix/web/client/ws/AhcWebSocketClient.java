@@ -0,0 +1,114 @@
+package deltix.web.client.ws;
+
+import deltix.web.client.ClientSettings;
+import deltix.web.client.IoTransport;
+import deltix.web.client.http.TlsUtil;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.asynchttpclient.Dsl;
+import org.asynchttpclient.ws.WebSocket;
+import org.asynchttpclient.ws.WebSocketListener;
+import org.asynchttpclient.ws.WebSocketUpgradeHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncHttpClient WebSocket with fragment aggregation disabled: every frame is passed to the listener,
+ * which scans it, but AHC decodes a text frame into a {@link String} (a binary frame into an array) first.
+ */
+public final class AhcWebSocketClient implements WebSocketClient {
+    private final AsyncHttpClient client;
+    private final WebSocket webSocket;
+
+    public AhcWebSocketClient(ClientSettings settings, String url, FeedListener listener) throws Exception {
+        if (settings.getTransport() == IoTransport.IO_URING) {
+            throw new UnsupportedOperationException("AHC has no io_uring transport");
+        }
+
+        // AHC creates the engines, so the finalizer-based OpenSSL provider
+        final SslContextBuilder sslContextBuilder = SslContextBuilder.forClient()
+                .sslProvider(TlsUtil.nettySslProvider(settings, false));
+        if (settings.isTrustAllCertificates()) {
+            sslContextBuilder.trustManager(InsecureTrustManagerFactory.INSTANCE);
+        }
+
+        final DefaultAsyncHttpClientConfig.Builder config = Dsl.config()
+                .setThreadPoolName("KRAKEN")
+                .setTcpNoDelay(true)
+                .setSslContext(sslContextBuilder.build())
+                .setDisableHttpsEndpointIdentificationAlgorithm(settings.isTrustAllCertificates())
+                .setUseNativeTransport(settings.isUseNativeTransport())
+                .setAggregateWebSocketFrameFragments(false)
+                .setWebSocketMaxFrameSize(1 << 20);
+        if (settings.getIoThreadCount() > 0) {
+            config.setIoThreadsCount(settings.getIoThreadCount());
+        }
+        client = Dsl.asyncHttpClient(config);
+
+        try {
+            webSocket = client.prepareGet(url)
+                    .execute(new WebSocketUpgradeHandler.Builder()
+                            .addWebSocketListener(new FeedWebSocketListener(listener))
+                            .build())
+                    .get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            client.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void send(String text) {
+        webSocket.sendTextFrame(text);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (webSocket.isOpen()) {
+            webSocket.sendCloseFrame().awaitUninterruptibly(1, TimeUnit.SECONDS);
+        }
+        client.close();
+    }
+
+    private static final class FeedWebSocketListener implements WebSocketListener {
+        private final FeedListener listener;
+        private final FeedMessageDecoder decoder = new FeedMessageDecoder();
+
+        private FeedWebSocketListener(FeedListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+        }
+
+        @Override
+        public void onClose(WebSocket webSocket, int code, String reason) {
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            listener.onError(error);
+        }
+
+        @Override
+        public void onTextFrame(String payload, boolean finalFragment, int rsv) {
+            decoder.update(payload);
+            if (finalFragment) {
+                decoder.complete(listener);
+            }
+        }
+
+        @Override
+        public void onBinaryFrame(byte[] payload, boolean finalFragment, int rsv) {
+            decoder.update(ByteBuffer.wrap(payload));
+            if (finalFragment) {
+                decoder.complete(listener);
+            }
+        }
+    }
+}
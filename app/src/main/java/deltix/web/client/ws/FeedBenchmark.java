@@ -0,0 +1,123 @@
+package deltix.web.client.ws;
+
+import com.epam.deltix.gflog.api.Log;
+import deltix.web.client.AllocationStats;
+import deltix.web.client.ClientSettings;
+import deltix.web.client.WebClientType;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feed latency of a WebSocket client: subscribes to the book feed of the (local) feed server, discards the warm-up
+ * and measures the delivery latency of the messages (from the due time of the publisher to the complete message),
+ * the throughput and the allocation per message and per frame during the run.
+ */
+public final class FeedBenchmark {
+    private final ClientSettings settings;
+    private final String url;
+    private final Log logger;
+
+    public FeedBenchmark(ClientSettings settings, String url, Log logger) {
+        this.settings = settings;
+        this.url = url;
+        this.logger = logger;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the client type has no WebSocket client
+     */
+    public Result run(WebClientType clientType, long warmup, long duration, TimeUnit unit,
+                      AllocationStats allocationStats) throws Exception {
+        final FeedStats stats = new FeedStats(logger);
+        try (WebSocketClient client = FeedUtil.createClient(clientType, settings, url, stats)) {
+            client.send(FeedUtil.subscribeMessage("book", "PI_XBTUSD"));
+            unit.sleep(warmup);
+
+            stats.getIntervalHistogram();
+            final long startMessages = stats.getMessageCount();
+            final long startFrames = stats.getFrameCount();
+            final long startCharacters = stats.getCharacterCount();
+            final long startErrors = stats.getErrorCount();
+            allocationStats.start();
+            final long start = System.nanoTime();
+
+            unit.sleep(duration);
+
+            final Histogram latency = stats.getIntervalHistogram();
+            final long elapsed = System.nanoTime() - start;
+            final long messages = stats.getMessageCount() - startMessages;
+            final long frames = stats.getFrameCount() - startFrames;
+            final long characters = stats.getCharacterCount() - startCharacters;
+            final long errors = stats.getErrorCount() - startErrors;
+            final AllocationStats.Report allocation = allocationStats.stop(messages);
+            return new Result(messages, frames, characters, errors, messages * 1e9 / elapsed, latency, allocation);
+        }
+    }
+
+    public static final class Result {
+        private final long messageCount;
+        private final long frameCount;
+        private final long characterCount;
+        private final long errorCount;
+        private final double throughput;
+        private final Histogram latency;
+        private final AllocationStats.Report allocation;
+
+        private Result(long messageCount, long frameCount, long characterCount, long errorCount, double throughput,
+                       Histogram latency, AllocationStats.Report allocation) {
+            this.messageCount = messageCount;
+            this.frameCount = frameCount;
+            this.characterCount = characterCount;
+            this.errorCount = errorCount;
+            this.throughput = throughput;
+            this.latency = latency;
+            this.allocation = allocation;
+        }
+
+        public long getMessageCount() {
+            return messageCount;
+        }
+
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * Messages per second.
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Allocation and CPU time per message.
+         */
+        public AllocationStats.Report getAllocation() {
+            return allocation;
+        }
+
+        /**
+         * Bytes allocated by the caller and the client threads per frame.
+         */
+        public double getBytesPerFrame() {
+            return frameCount > 0 ? allocation.getBytesPerRequest() * messageCount / frameCount : Double.NaN;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("messages %d, frames %d, avg message %.0f chars, errors %d, throughput %.1f msg/s, " +
+                            "allocated %.1f B/message, %.1f B/frame",
+                    messageCount, frameCount, messageCount > 0 ? (double) characterCount / messageCount : 0.0,
+                    errorCount, throughput, allocation.getBytesPerRequest(), getBytesPerFrame());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package deltix.web.client.ws;
+
+/**
+ * Receives complete feed messages from {@link WebSocketClient} implementations.
+ * Methods are invoked on the IO thread of the client, one message at a time.
+ */
+public interface FeedListener {
+
+    /**
+     * @param sendTime {@link System#nanoTime()} the publisher scheduled the message at (same process)
+     * @param length   length of the message in characters (bytes of an ASCII message)
+     * @param frames   number of frames (or partial messages) the message arrived in
+     */
+    void onMessage(long sendTime, int length, int frames);
+
+    void onError(Throwable error);
+}
@@ -0,0 +1,107 @@
+package deltix.web.client.ws;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ByteProcessor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming decoder of the {@code "send_time":<nanos>} field of a feed message. Fragments are scanned in place
+ * as they arrive, a key or a number split across fragments is carried over in the state of the decoder,
+ * so a fragmented message is never aggregated into a single buffer.
+ * <p>
+ * Not thread-safe: a connection has its own decoder, which is used by the IO thread of the connection.
+ */
+public final class FeedMessageDecoder implements ByteProcessor {
+    private static final byte[] KEY = "\"send_time\":".getBytes(StandardCharsets.US_ASCII);
+
+    private int matched;
+    private boolean parsing;
+    private boolean found;
+    private long sendTime;
+    private int digits;
+    private int length;
+    private int frames;
+
+    /**
+     * Scans a frame of the message, the readable bytes of the buffer are not consumed.
+     */
+    public void update(ByteBuf frame) {
+        frames++;
+        frame.forEachByte(this);
+    }
+
+    /**
+     * Scans a frame of the message between the position and the limit, which are not changed.
+     */
+    public void update(ByteBuffer frame) {
+        frames++;
+        for (int i = frame.position(); i < frame.limit(); i++) {
+            accept(frame.get(i));
+        }
+    }
+
+    /**
+     * Scans a decoded text frame (or a partial message) of the message.
+     */
+    public void update(CharSequence frame) {
+        frames++;
+        for (int i = 0; i < frame.length(); i++) {
+            accept(frame.charAt(i));
+        }
+    }
+
+    @Override
+    public boolean process(byte value) {
+        accept(value);
+        return true;
+    }
+
+    /**
+     * Ends the message and passes it to the listener, messages without a send time (e.g. a subscription ack)
+     * are skipped. The decoder is ready for the next message.
+     */
+    public void complete(FeedListener listener) {
+        final boolean valid = found || parsing && digits > 0;
+        final long time = sendTime;
+        final int messageLength = length;
+        final int messageFrames = frames;
+
+        matched = 0;
+        parsing = false;
+        found = false;
+        sendTime = 0;
+        digits = 0;
+        length = 0;
+        frames = 0;
+
+        if (valid) {
+            listener.onMessage(time, messageLength, messageFrames);
+        }
+    }
+
+    private void accept(int value) {
+        length++;
+        if (found) {
+            return;
+        }
+
+        if (parsing) {
+            if (value >= '0' && value <= '9') {
+                sendTime = sendTime * 10 + (value - '0');
+                digits++;
+            } else {
+                parsing = false;
+                found = digits > 0;
+                matched = 0;
+            }
+        } else if (value == KEY[matched]) {
+            if (++matched == KEY.length) {
+                parsing = true;
+            }
+        } else {
+            matched = value == KEY[0] ? 1 : 0;
+        }
+    }
+}
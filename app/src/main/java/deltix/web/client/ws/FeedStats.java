@@ -0,0 +1,65 @@
+package deltix.web.client.ws;
+
+import com.epam.deltix.gflog.api.Log;
+import deltix.web.client.ResponseStats;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the delivery latency of feed messages (from the scheduled send time to the complete message)
+ * and counts messages, frames, characters and errors.
+ */
+public final class FeedStats implements FeedListener {
+    private final Log logger;
+    private final Recorder recorder = new Recorder(ResponseStats.MAX_LATENCY, 3);
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder characters = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public FeedStats(Log logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void onMessage(long sendTime, int length, int frames) {
+        recorder.recordValue(Math.max(0, Math.min(System.nanoTime() - sendTime, ResponseStats.MAX_LATENCY)));
+        messages.increment();
+        this.frames.add(frames);
+        characters.add(length);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        errors.increment();
+        logger.error().append(error).commit();
+    }
+
+    /**
+     * Returns latencies recorded since the previous call and starts a new interval.
+     */
+    public Histogram getIntervalHistogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    /**
+     * Returns the number of messages since the creation.
+     */
+    public long getMessageCount() {
+        return messages.sum();
+    }
+
+    public long getFrameCount() {
+        return frames.sum();
+    }
+
+    public long getCharacterCount() {
+        return characters.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+}
@@ -0,0 +1,39 @@
+package deltix.web.client.ws;
+
+import deltix.web.client.ClientSettings;
+import deltix.web.client.WebClientType;
+
+/**
+ * Factory of the {@link WebSocketClient} implementations and the messages of the Kraken futures feeds.
+ */
+public final class FeedUtil {
+
+    private FeedUtil() {
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the client type has no WebSocket client
+     */
+    public static WebSocketClient createClient(WebClientType clientType, ClientSettings settings,
+                                               String url, FeedListener listener) throws Exception {
+        switch (clientType) {
+            case NETTY:
+                return new NettyWebSocketClient(settings, url, listener);
+            case OKHTTP:
+                return new OkhttpWebSocketClient(settings, url, listener);
+            case JAVA:
+                return new JavaWebSocketClient(settings, url, listener);
+            case AHC:
+                return new AhcWebSocketClient(settings, url, listener);
+            default:
+                throw new UnsupportedOperationException("No WebSocket client for " + clientType);
+        }
+    }
+
+    /**
+     * Subscription to a public feed, e.g. {@code book} of {@code PI_XBTUSD}.
+     */
+    public static String subscribeMessage(String feed, String productId) {
+        return "{\"event\":\"subscribe\",\"feed\":\"" + feed + "\",\"product_ids\":[\"" + productId + "\"]}";
+    }
+}
@@ -0,0 +1,80 @@
+package deltix.web.client.ws;
+
+import deltix.web.client.ClientSettings;
+import deltix.web.client.http.TlsUtil;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link java.net.http.WebSocket} of the JDK: partial messages are passed to the listener as they are decoded,
+ * so a fragmented message is scanned fragment by fragment. Text is decoded into a {@link CharSequence} first.
+ */
+public final class JavaWebSocketClient implements WebSocketClient {
+    private final WebSocket webSocket;
+
+    public JavaWebSocketClient(ClientSettings settings, String url, FeedListener listener) throws Exception {
+        final HttpClient.Builder builder = HttpClient.newBuilder();
+        if (settings.isTrustAllCertificates()) {
+            // read once when the HttpClient implementation is initialized
+            System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
+        }
+        if (TlsUtil.isCustomSslContext(settings)) {
+            builder.sslContext(TlsUtil.sslContext(settings));
+        }
+
+        webSocket = builder.build().newWebSocketBuilder()
+                .buildAsync(URI.create(url), new FeedWebSocketListener(listener))
+                .get(10, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void send(String text) {
+        webSocket.sendText(text, true);
+    }
+
+    @Override
+    public void close() {
+        webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "")
+                .orTimeout(1, TimeUnit.SECONDS)
+                .whenComplete((ws, error) -> webSocket.abort());
+    }
+
+    private static final class FeedWebSocketListener implements WebSocket.Listener {
+        private final FeedListener listener;
+        private final FeedMessageDecoder decoder = new FeedMessageDecoder();
+
+        private FeedWebSocketListener(FeedListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            decoder.update(data);
+            if (last) {
+                decoder.complete(listener);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            decoder.update(data);
+            if (last) {
+                decoder.complete(listener);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            listener.onError(error);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package deltix.web.client.ws;
+
+import deltix.web.client.ClientSettings;
+import deltix.web.client.http.TlsUtil;
+import deltix.web.client.http.TransportUtil;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.websocketx.*;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Netty WebSocket client: the handshake of {@link WebSocketClientHandshaker}, then the frames of
+ * {@link WebSocketClientProtocolHandler} are scanned by {@link FeedMessageDecoder} in the pooled buffers of the
+ * frame decoder. There is no {@code WebSocketFrameAggregator}, continuation frames are scanned one by one.
+ */
+public final class NettyWebSocketClient implements WebSocketClient {
+    /**
+     * Max payload of a frame, the default of Netty (64 KiB) is too small for a snapshot of a book.
+     */
+    private static final int MAX_FRAME_PAYLOAD = 1 << 20;
+
+    private final EventLoopGroup group;
+    private final SslContext sslContext;
+    private final Channel channel;
+
+    public NettyWebSocketClient(ClientSettings settings, String url, FeedListener listener) throws Exception {
+        final URI uri = URI.create(url);
+        final boolean secure = "wss".equals(uri.getScheme());
+        final String host = uri.getHost();
+        final int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+
+        // the engines are released by SslHandler, the context by close()
+        sslContext = SslContextBuilder.forClient()
+                .sslProvider(TlsUtil.nettySslProvider(settings, true))
+                .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+        try {
+            group = TransportUtil.newEventLoopGroup(settings);
+        } catch (RuntimeException e) { // transport is not available
+            ReferenceCountUtil.release(sslContext);
+            throw e;
+        }
+
+        final WebSocketClientHandshaker handshaker = WebSocketClientHandshakerFactory.newHandshaker(
+                uri, WebSocketVersion.V13, null, false, EmptyHttpHeaders.INSTANCE, MAX_FRAME_PAYLOAD);
+        final Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(group)
+                .channel(TransportUtil.socketChannelClass(settings))
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ChannelPipeline p = ch.pipeline();
+                        if (secure) {
+                            p.addLast(sslContext.newHandler(ch.alloc(), host, port));
+                        }
+                        p.addLast(new HttpClientCodec());
+                        p.addLast(new HttpObjectAggregator(8192)); // the handshake response
+                        p.addLast(new WebSocketClientProtocolHandler(handshaker));
+                        p.addLast(new FeedHandler(listener));
+                    }
+                });
+
+        try {
+            channel = bootstrap.connect(host, port).sync().channel();
+            channel.pipeline().get(FeedHandler.class).handshakeFuture.sync();
+        } catch (Exception e) {
+            shutdown();
+            throw e;
+        }
+    }
+
+    @Override
+    public void send(String text) {
+        channel.writeAndFlush(new TextWebSocketFrame(text));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isActive()) {
+            channel.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.NORMAL_CLOSURE))
+                    .addListener(ChannelFutureListener.CLOSE);
+            channel.closeFuture().awaitUninterruptibly(1, TimeUnit.SECONDS);
+        }
+        channel.close();
+        shutdown();
+    }
+
+    private void shutdown() {
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        ReferenceCountUtil.release(sslContext);
+    }
+
+    private static final class FeedHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
+        private final FeedListener listener;
+        private final FeedMessageDecoder decoder = new FeedMessageDecoder();
+        private ChannelPromise handshakeFuture;
+
+        private FeedHandler(FeedListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            handshakeFuture = ctx.newPromise();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object event) throws Exception {
+            if (event == WebSocketClientProtocolHandler.ClientHandshakeStateEvent.HANDSHAKE_COMPLETE) {
+                handshakeFuture.trySuccess();
+            } else if (event == WebSocketClientProtocolHandler.ClientHandshakeStateEvent.HANDSHAKE_TIMEOUT) {
+                handshakeFuture.tryFailure(new WebSocketClientHandshakeException("Handshake timed out"));
+            }
+            super.userEventTriggered(ctx, event);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) {
+            // text, binary or continuation, ping and close are handled by the protocol handler
+            decoder.update(frame.content());
+            if (frame.isFinalFragment()) {
+                decoder.complete(listener);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (!handshakeFuture.tryFailure(cause)) {
+                listener.onError(cause);
+            }
+            ctx.close();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            handshakeFuture.tryFailure(new WebSocketClientHandshakeException("Connection closed"));
+            super.channelInactive(ctx);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package deltix.web.client.ws;
+
+import deltix.web.client.ClientSettings;
+import deltix.web.client.http.TlsUtil;
+import okhttp3.*;
+import okio.ByteString;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OkHttp {@link WebSocket}: OkHttp always reassembles a fragmented message and decodes it into a {@link String}
+ * (or a {@link ByteString}) before the listener, so a message allocates at least its length.
+ */
+public final class OkhttpWebSocketClient implements WebSocketClient {
+    private final OkHttpClient client;
+    private final WebSocket webSocket;
+
+    public OkhttpWebSocketClient(ClientSettings settings, String url, FeedListener listener) throws Exception {
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        if (TlsUtil.isCustomSslContext(settings)) {
+            builder.sslSocketFactory(TlsUtil.sslContext(settings).getSocketFactory(), TlsUtil.trustManager(settings));
+        }
+        if (settings.isTrustAllCertificates()) {
+            builder.hostnameVerifier((hostname, session) -> true);
+        }
+        client = builder.build();
+
+        final CompletableFuture<Void> open = new CompletableFuture<>();
+        webSocket = client.newWebSocket(new Request.Builder().url(url).build(), new FeedWebSocketListener(listener, open));
+        try {
+            open.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void send(String text) {
+        webSocket.send(text);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!webSocket.close(1000, null)) {
+            webSocket.cancel();
+        }
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    private static final class FeedWebSocketListener extends WebSocketListener {
+        private final FeedListener listener;
+        private final CompletableFuture<Void> open;
+        private final FeedMessageDecoder decoder = new FeedMessageDecoder();
+
+        private FeedWebSocketListener(FeedListener listener, CompletableFuture<Void> open) {
+            this.listener = listener;
+            this.open = open;
+        }
+
+        @Override
+        public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
+            open.complete(null);
+        }
+
+        @Override
+        public void onMessage(@NotNull WebSocket webSocket, @NotNull String text) {
+            decoder.update(text);
+            decoder.complete(listener);
+        }
+
+        @Override
+        public void onMessage(@NotNull WebSocket webSocket, @NotNull ByteString bytes) {
+            decoder.update(bytes.asByteBuffer());
+            decoder.complete(listener);
+        }
+
+        @Override
+        public void onFailure(@NotNull WebSocket webSocket, @NotNull Throwable t, Response response) {
+            if (!open.completeExceptionally(t)) {
+                listener.onError(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package deltix.web.client.ws;
+
+import java.io.Closeable;
+
+/**
+ * WebSocket connection to a feed, the counterpart of {@link deltix.web.client.WebClient} for streaming data.
+ * Implementations open the connection and wait for the handshake in the constructor, messages of the feed
+ * are passed to a {@link FeedListener} on the IO thread of the client.
+ */
+public interface WebSocketClient extends Closeable {
+
+    /**
+     * Sends a text message asynchronously, e.g. a subscription of {@link FeedUtil#subscribeMessage}.
+     */
+    void send(String text);
+}
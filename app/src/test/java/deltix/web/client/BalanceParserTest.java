@@ -0,0 +1,86 @@
+package deltix.web.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceParserTest {
+    private static final byte[] RESPONSE = ("{\"result\":\"success\",\"accounts\":{" +
+            "\"cash\":{\"type\":\"cashAccount\",\"balances\":{\"xbt\":0.1387,\"eth\":2.5,\"usd\":-1.25e4}}," +
+            "\"fi_xbtusd\":{\"type\":\"marginAccount\",\"currency\":\"xbt\",\"balances\":{\"fi_xbtusd\":0,\"xbt\":12}," +
+            "\"auxiliary\":{\"af\":1.5,\"pnl\":[1, 2.5, {\"x\": null}], \"usd\": true}}}," +
+            "\"serverTime\":\"2024-01-01T00:00:00.000Z\"}").getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void parsesBalancesInChunks() {
+        final BalanceParser parser = new BalanceParser();
+        for (int chunkSize = 1; chunkSize <= RESPONSE.length; chunkSize++) {
+            parser.reset();
+            for (int offset = 0; offset < RESPONSE.length; offset += chunkSize) {
+                parser.parse(RESPONSE, offset, Math.min(chunkSize, RESPONSE.length - offset));
+            }
+
+            assertTrue(parser.isComplete());
+            final Balances balances = parser.getBalances();
+            assertEquals(5, balances.size());
+            assertEquals(0.1387, balances.getBalance("cash", "xbt"));
+            assertEquals(2.5, balances.getBalance("cash", "eth"));
+            assertEquals(-12500.0, balances.getBalance("cash", "usd"));
+            assertEquals(0.0, balances.getBalance("fi_xbtusd", "fi_xbtusd"));
+            assertEquals(12.0, balances.getBalance("fi_xbtusd", "xbt"));
+            assertTrue(Double.isNaN(balances.getBalance("fi_xbtusd", "af")));
+        }
+    }
+
+    @Test
+    void leadingZerosKeepPrecision() {
+        final BalanceParser parser = new BalanceParser();
+        final byte[] response = ("{\"accounts\":{\"cash\":{\"balances\":{" +
+                "\"xbt\":0.000000000000123456789012345678,\"eth\":-00.5}}}}").getBytes(StandardCharsets.US_ASCII);
+        parser.parse(response, 0, response.length);
+
+        assertTrue(parser.isComplete());
+        assertEquals(1.23456789012345678e-13, parser.getBalances().getBalance("cash", "xbt"), 1e-28);
+        assertEquals(-0.5, parser.getBalances().getBalance("cash", "eth"));
+    }
+
+    @Test
+    void rejectsExponentOverflow() {
+        final BalanceParser parser = new BalanceParser();
+        final byte[] response = "{\"a\":1e4294967297}".getBytes(StandardCharsets.US_ASCII);
+        parser.parse(response, 0, response.length);
+        assertFalse(parser.isComplete());
+    }
+
+    @Test
+    void rejectsBodyStartingWithDigit() {
+        final BalanceParser parser = new BalanceParser();
+        final byte[] response = "429 Too Many Requests".getBytes(StandardCharsets.US_ASCII);
+        parser.parse(response, 0, response.length);
+        assertFalse(parser.isComplete());
+    }
+
+    @Test
+    void rejectsMisspelledLiteral() {
+        final BalanceParser parser = new BalanceParser();
+        final byte[] response = "{\"a\":trux}".getBytes(StandardCharsets.US_ASCII);
+        parser.parse(response, 0, response.length);
+        assertFalse(parser.isComplete());
+    }
+
+    @Test
+    void rejectsMalformedResponse() {
+        final BalanceParser parser = new BalanceParser();
+        parser.parse(RESPONSE, 0, RESPONSE.length - 1);
+        assertFalse(parser.isComplete());
+        assertFalse(parser.isValid(200));
+        assertTrue(parser.isValid(404));
+
+        parser.reset();
+        final byte[] malformed = "{\"accounts\":{]}".getBytes(StandardCharsets.US_ASCII);
+        parser.parse(malformed, 0, malformed.length);
+        assertFalse(parser.isComplete());
+    }
+}
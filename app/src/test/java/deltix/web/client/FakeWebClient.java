@@ -0,0 +1,87 @@
+package deltix.web.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client of the decorator tests: records the sent requests, which the test completes by start time.
+ * Requests are sent by the test and by the threads of the decorators, so the state is guarded by the client,
+ * listeners are called outside the lock.
+ */
+public final class FakeWebClient implements WebClient {
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ResponseListener listener;
+    private final List<Long> sent = new ArrayList<>();
+    private final List<Long> pending = new ArrayList<>();
+    private final List<ResponseListener> listeners = new ArrayList<>();
+
+    public FakeWebClient(ResponseListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void executeRequest(long startTime) {
+        executeRequest(startTime, listener);
+    }
+
+    @Override
+    public synchronized void executeRequest(long startTime, ResponseListener listener) {
+        sent.add(startTime);
+        pending.add(startTime);
+        listeners.add(listener);
+    }
+
+    /**
+     * Start times of the sent requests in the order of sending.
+     */
+    public synchronized List<Long> getSent() {
+        return new ArrayList<>(sent);
+    }
+
+    public synchronized int getSentCount() {
+        return sent.size();
+    }
+
+    /**
+     * Waits up to 5 seconds till the count of requests is sent.
+     *
+     * @return the count of sent requests
+     */
+    public int awaitSent(int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (getSentCount() < count && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+        return getSentCount();
+    }
+
+    /**
+     * Completes the first pending request with the start time.
+     */
+    public void complete(long startTime, int statusCode) {
+        take(startTime).onResponse(startTime, statusCode);
+    }
+
+    /**
+     * Fails the first pending request with the start time.
+     */
+    public void fail(long startTime) {
+        take(startTime).onFailure(startTime, new IOException("Connection reset"));
+    }
+
+    private synchronized ResponseListener take(long startTime) {
+        final int index = pending.indexOf(startTime);
+        if (index < 0) {
+            throw new IllegalStateException("No pending request: " + startTime);
+        }
+        pending.set(index, null);
+        return listeners.get(index);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,55 @@
+package deltix.web.client;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KrakenfutSignerTest {
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[64]).replace('A', 'x');
+
+    @Test
+    void signatureMatchesMac() throws Exception {
+        final KrakenfutSigner signer = new KrakenfutSigner(SECRET);
+
+        String previousNonce = null;
+        for (int i = 0; i < 3; i++) {
+            final KrakenfutSigner.Signature signature = signer.sign(KrakenfutUtil.BALANCE_PRESIGN);
+            final String nonce = signature.nonceToString();
+            assertNotEquals(previousNonce, nonce);
+            assertEquals(expectedAuthent(nonce), signature.authentToString());
+            previousNonce = nonce;
+        }
+    }
+
+    @Test
+    void postDataIsSigned() throws Exception {
+        final KrakenfutSigner signer = new KrakenfutSigner(SECRET);
+        final byte[] postData = "xxorderType=lmt&symbol=PI_XBTUSD&size=1yy".getBytes(StandardCharsets.US_ASCII);
+
+        final KrakenfutSigner.Signature signature = signer.sign(postData, 2, postData.length - 4, Endpoint.SEND_ORDER.getPresign());
+        final byte[] expectedPostData = "orderType=lmt&symbol=PI_XBTUSD&size=1".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(expectedAuthent(expectedPostData, signature.nonceToString(), Endpoint.SEND_ORDER.getPresign()),
+                signature.authentToString());
+    }
+
+    private static String expectedAuthent(String nonce) throws Exception {
+        return expectedAuthent(new byte[0], nonce, KrakenfutUtil.BALANCE_PRESIGN);
+    }
+
+    private static String expectedAuthent(byte[] postData, String nonce, byte[] path) throws Exception {
+        final MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update(postData);
+        sha256.update(nonce.getBytes(StandardCharsets.US_ASCII));
+        sha256.update(path);
+
+        final Mac mac = Mac.getInstance("HmacSHA512");
+        mac.init(new SecretKeySpec(Base64.getDecoder().decode(SECRET), "HmacSHA512"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(sha256.digest()));
+    }
+}
@@ -0,0 +1,56 @@
+package deltix.web.client;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Listener of the decorator tests: records the completions in the order they come. Completions come from the IO,
+ * timer and consumer threads of the decorators, so the lists are guarded by the listener and read as copies.
+ */
+public final class RecordingListener implements ResponseListener {
+    private final List<Long> responses = new ArrayList<>();
+    private final List<Throwable> failures = new ArrayList<>();
+    private final List<RequestPhase> phases = new ArrayList<>();
+    private final Set<String> threads = new HashSet<>();
+
+    @Override
+    public synchronized void onResponse(long startTime, int statusCode) {
+        responses.add(startTime);
+        threads.add(Thread.currentThread().getName());
+    }
+
+    @Override
+    public synchronized void onFailure(long startTime, Throwable error) {
+        failures.add(error);
+        threads.add(Thread.currentThread().getName());
+    }
+
+    @Override
+    public synchronized void onPhase(RequestPhase phase, long duration) {
+        phases.add(phase);
+    }
+
+    /**
+     * Start times of the responses.
+     */
+    public synchronized List<Long> getResponses() {
+        return new ArrayList<>(responses);
+    }
+
+    public synchronized List<Throwable> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    public synchronized List<RequestPhase> getPhases() {
+        return new ArrayList<>(phases);
+    }
+
+    /**
+     * Names of the threads which completed requests.
+     */
+    public synchronized Set<String> getThreads() {
+        return new HashSet<>(threads);
+    }
+}
@@ -0,0 +1,32 @@
+package deltix.web.client;
+
+import com.epam.deltix.gflog.api.LogFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseStatsTest {
+
+    @Test
+    void leavesLateCompletionsOutOfStep() throws Exception {
+        final ResponseStats stats = new ResponseStats(LogFactory.getLog(ResponseStatsTest.class));
+        final long previousStep = System.nanoTime();
+        stats.startStep(previousStep);
+        stats.onResponse(previousStep, 200);
+
+        final long step = System.nanoTime() + 1;
+        stats.startStep(step);
+        stats.onResponse(previousStep, 200); // late response of the previous step
+        stats.onFailure(previousStep, new IOException("Connection reset"));
+        assertFalse(stats.awaitStepCompletions(1, 0, TimeUnit.SECONDS));
+        assertEquals(0, stats.getFailureCount());
+
+        stats.onResponse(step, 200);
+        assertTrue(stats.awaitStepCompletions(1, 0, TimeUnit.SECONDS));
+        assertEquals(1, stats.getIntervalHistogram().getTotalCount());
+        assertEquals(2, stats.getCompletedCount());
+    }
+}
@@ -0,0 +1,86 @@
+package deltix.web.client;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultsComparatorTest {
+
+    @Test
+    void flagsShiftedLatency() {
+        final ResultsComparator comparator = new ResultsComparator(5, 99);
+        final Map<String, Histogram> baseline = Map.of("NETTY", latency(10_000, 1.0));
+        final Map<String, Histogram> slower = Map.of("NETTY", latency(10_000, 1.2));
+
+        final StringBuilder report = new StringBuilder();
+        assertEquals(4, comparator.compare(baseline, slower, report));
+        assertTrue(report.toString().contains("REGRESSION"), report.toString());
+
+        final StringBuilder reverse = new StringBuilder();
+        assertEquals(0, comparator.compare(slower, baseline, reverse));
+        assertTrue(reverse.toString().contains("improvement"), reverse.toString());
+    }
+
+    @Test
+    void noVerdictWithinThresholdOrForSmallSamples() {
+        final ResultsComparator comparator = new ResultsComparator(5, 99);
+
+        // the intervals don't overlap, the change is below the threshold
+        final StringBuilder report = new StringBuilder();
+        assertEquals(0, comparator.compare(Map.of("NETTY", latency(100_000, 1.0)), Map.of("NETTY", latency(100_000, 1.02)), report));
+        assertFalse(report.toString().contains("REGRESSION"), report.toString());
+
+        // the change is above the threshold, the intervals of 10 samples overlap
+        final StringBuilder small = new StringBuilder();
+        assertEquals(0, comparator.compare(Map.of("NETTY", latency(10, 1.0)), Map.of("NETTY", latency(10, 1.2)), small));
+        assertFalse(small.toString().contains("REGRESSION"), small.toString());
+        assertFalse(small.toString().contains("improvement"), small.toString());
+    }
+
+    @Test
+    void boundsRankOfPercentile() {
+        final Histogram histogram = latency(10_000, 1.0);
+        assertEquals(5128.8, ResultsComparator.boundRank(histogram, 50, 2.576), 1e-9);
+        assertEquals(4871.2, ResultsComparator.boundRank(histogram, 50, -2.576), 1e-9);
+        // beyond the samples
+        assertTrue(ResultsComparator.boundRank(latency(10, 1.0), 99, 2.576) > 10);
+    }
+
+    @Test
+    void readsWrittenLatencyLog(@TempDir File parent) throws Exception {
+        final Histogram netty = latency(1000, 1.0);
+        final Histogram okhttp = latency(500, 1.5);
+
+        final File directory;
+        try (ResultsWriter writer = new ResultsWriter(parent, Map.of("rate", "100"))) {
+            writer.record("NETTY HTTP_1_1", "open-loop", 1000, 0, 100, netty, null);
+            writer.record("OKHTTP", "open-loop", 500, 2, 50, okhttp, null);
+            directory = writer.getDirectory();
+        }
+
+        final Map<String, Histogram> histograms = ResultsComparator.readLatencyLog(directory);
+        assertEquals(2, histograms.size());
+        assertEquals(netty, histograms.get("NETTY_HTTP_1_1"));
+        assertEquals(okhttp, histograms.get("OKHTTP"));
+        assertTrue(new File(directory, "summary.json").isFile());
+        assertTrue(new File(directory, "summary.csv").isFile());
+
+        assertEquals(0, new ResultsComparator(5, 99).compare(histograms, histograms, new StringBuilder()));
+    }
+
+    /**
+     * Latency spread evenly over 1..2 ms, times the scale.
+     */
+    private static Histogram latency(int count, double scale) {
+        final Histogram histogram = new Histogram(ResponseStats.MAX_LATENCY, 3);
+        for (int i = 0; i < count; i++) {
+            histogram.recordValue((long) ((1_000_000 + 1_000_000L * i / count) * scale));
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,43 @@
+package deltix.web.client;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoakMonitorTest {
+    private static final List<String> TCP_TABLE = List.of(
+            "  sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode",
+            "   0: 0100007F:1F90 00000000:0000 0A 00000000:00000000 00:00000000 00000000     0        0 100 1 0000000000000000 100 0 0 10 0",
+            "   1: 0100007F:A2B4 0100007F:1F90 01 00000000:00000000 00:00000000 00000000     0        0 101 1 0000000000000000 20 4 30 10 -1",
+            "   2: 0100007F:A2B6 0100007F:1F90 01 00000000:00000000 00:00000000 00000000     0        0 102 1 0000000000000000 20 4 30 10 -1",
+            "   3: 0100007F:A2B8 0100007F:1F90 06 00000000:00000000 03:00000F9A 00000000     0        0 0 3 0000000000000000",
+            "   4: 0100007F:1F90 0100007F:A2B4 01 00000000:00000000 00:00000000 00000000     0        0 104 1 0000000000000000 20 4 30 10 -1",
+            "   5: 0100007F:A2BA 0100007F:1F90 01 00000000:00000000 00:00000000 00000000     0        0 105 1 0000000000000000 20 4 30 10 -1");
+
+    @Test
+    void countsEstablishedConnectionsOfProcessToPort() {
+        // 105 is a socket of another process, 104 the server side of 101
+        assertEquals(2, SoakMonitor.countConnections(TCP_TABLE, 8080, Set.of("100", "101", "102", "104")));
+        assertEquals(0, SoakMonitor.countConnections(TCP_TABLE, 443, Set.of("100", "101", "102", "104")));
+    }
+
+    @Test
+    void samplesIntervals() {
+        try (SoakMonitor monitor = new SoakMonitor(8080)) {
+            final Histogram latency = new Histogram(ResponseStats.MAX_LATENCY, 3);
+            latency.recordValue(1_000_000);
+            System.gc();
+
+            final SoakMonitor.Sample sample = monitor.sample(latency);
+            assertEquals(1, sample.getLatency().getTotalCount());
+            assertTrue(sample.getHeapUsed() > 0);
+            assertTrue(sample.getNettyDirectMemory() >= 0);
+            assertTrue(sample.getGcShareOfMax() <= 1.0);
+            assertFalse(monitor.getDrift().isEmpty());
+        }
+    }
+}
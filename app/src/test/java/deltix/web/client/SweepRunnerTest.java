@@ -0,0 +1,57 @@
+package deltix.web.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SweepRunnerTest {
+
+    @Test
+    void expandsMatrix() {
+        final Map<String, List<String>> axes = new LinkedHashMap<>();
+        final Map<String, String> values = new LinkedHashMap<>();
+        SweepRunner.parseMatrix(List.of(
+                "# comment",
+                "clients = NETTY, OKHTTP",
+                "ioThreads = 1,2,4",
+                "--pipeline-depth = 1, 8",
+                "args = --local-server --duration 5"), axes, values);
+
+        assertEquals(List.of("NETTY", "OKHTTP"), axes.get("clients"));
+        assertEquals("--local-server --duration 5", values.get("args"));
+
+        final List<Map<String, String>> combinations = SweepRunner.combinations(axes);
+        assertEquals(12, combinations.size());
+        assertEquals(Map.of("clients", "NETTY", "ioThreads", "1", "--pipeline-depth", "1"), combinations.get(0));
+        assertEquals(Map.of("clients", "OKHTTP", "ioThreads", "4", "--pipeline-depth", "8"), combinations.get(11));
+
+        assertThrows(IllegalArgumentException.class, () -> SweepRunner.parseMatrix(List.of("threads = 1"), axes, values));
+    }
+
+    @Test
+    void marksParetoFrontier() {
+        final List<SweepRunner.Point> points = new ArrayList<>();
+        points.add(point(1000, 500)); // dominated by 2000/400
+        points.add(point(2000, 400));
+        points.add(point(3000, 900));
+        points.add(point(3000, 1200)); // same throughput, worse p99
+        points.add(point(500, 100));
+
+        SweepRunner.markFrontier(points);
+
+        assertFalse(points.get(0).isFrontier());
+        assertTrue(points.get(1).isFrontier());
+        assertTrue(points.get(2).isFrontier());
+        assertFalse(points.get(3).isFrontier());
+        assertTrue(points.get(4).isFrontier());
+    }
+
+    private static SweepRunner.Point point(double throughput, long p99) {
+        return new SweepRunner.Point(Map.of(), "ok", "NETTY_HTTP_1_1", 0, throughput, p99 / 2, p99);
+    }
+}
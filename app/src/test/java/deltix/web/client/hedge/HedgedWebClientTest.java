@@ -0,0 +1,97 @@
+package deltix.web.client.hedge;
+
+import deltix.web.client.FakeWebClient;
+import deltix.web.client.RecordingListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedWebClientTest {
+    private static final long DELAY = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    void passesOnFirstCompletionOfHedgedRequest() throws Exception {
+        final RecordingListener completions = new RecordingListener();
+        final List<FakeWebClient> clients = new ArrayList<>();
+        try (HedgedWebClient hedged = new HedgedWebClient(new HedgedWebClient.Settings().setMinDelay(DELAY).setMaxDelay(DELAY),
+                completions, listener -> add(clients, new FakeWebClient(listener)))) {
+            hedged.executeRequest(1);
+            hedged.executeRequest(2);
+            clients.get(0).complete(1, 200);
+            awaitSent(clients.get(1), 1);
+            assertEquals(List.of(2L), clients.get(1).getSent());
+            assertEquals(1, hedged.getHedgedCount());
+
+            clients.get(1).complete(2, 200);
+            clients.get(0).complete(2, 200); // loser
+            assertEquals(List.of(1L, 2L), completions.getResponses());
+            assertEquals(1, hedged.getWonCount());
+        }
+    }
+
+    @Test
+    void waitsForHedgeAfterFailure() throws Exception {
+        final RecordingListener completions = new RecordingListener();
+        final List<FakeWebClient> clients = new ArrayList<>();
+        try (HedgedWebClient hedged = new HedgedWebClient(new HedgedWebClient.Settings().setMinDelay(DELAY).setMaxDelay(DELAY),
+                completions, listener -> add(clients, new FakeWebClient(listener)))) {
+            hedged.executeRequest(1);
+            awaitSent(clients.get(1), 1);
+
+            clients.get(0).complete(1, 429);
+            assertTrue(completions.getResponses().isEmpty());
+            clients.get(1).fail(1);
+            assertEquals(1, completions.getFailures().size());
+        }
+    }
+
+    @Test
+    void hedgesRequestsWithSameStartTime() throws Exception {
+        final RecordingListener completions = new RecordingListener();
+        final List<FakeWebClient> clients = new ArrayList<>();
+        try (HedgedWebClient hedged = new HedgedWebClient(new HedgedWebClient.Settings().setMinDelay(DELAY).setMaxDelay(DELAY),
+                completions, listener -> add(clients, new FakeWebClient(listener)))) {
+            hedged.executeRequest(1);
+            hedged.executeRequest(1);
+            awaitSent(clients.get(1), 2);
+            assertEquals(2, hedged.getHedgedCount());
+
+            clients.get(1).complete(1, 200); // hedge of the first request
+            clients.get(0).complete(1, 200); // loser
+            clients.get(0).complete(1, 200); // second request
+            clients.get(1).complete(1, 200); // loser
+            assertEquals(List.of(1L, 1L), completions.getResponses());
+            assertEquals(1, hedged.getWonCount());
+        }
+    }
+
+    @Test
+    void skipsHedgesBeyondBudget() throws Exception {
+        final RecordingListener completions = new RecordingListener();
+        final List<FakeWebClient> clients = new ArrayList<>();
+        try (HedgedWebClient hedged = new HedgedWebClient(new HedgedWebClient.Settings().setMinDelay(DELAY).setMaxDelay(DELAY)
+                .setBudgetRatio(0).setBudgetBurst(1), completions, listener -> add(clients, new FakeWebClient(listener)))) {
+            hedged.executeRequest(1);
+            hedged.executeRequest(2);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (hedged.getBudgetExhaustedCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(1, hedged.getHedgedCount());
+            assertEquals(1, hedged.getBudgetExhaustedCount());
+        }
+    }
+
+    private static FakeWebClient add(List<FakeWebClient> clients, FakeWebClient client) {
+        clients.add(client);
+        return client;
+    }
+
+    private static void awaitSent(FakeWebClient client, int count) throws InterruptedException {
+        assertEquals(count, client.awaitSent(count));
+    }
+}
@@ -0,0 +1,56 @@
+package deltix.web.client.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpRequestTemplateTest {
+
+    @Test
+    void encodesDecodableRequests() {
+        final HttpRequestTemplate template = HttpRequestTemplate.builder(HttpMethod.GET, "/derivatives/api/v3/accounts")
+                .header("Host", "localhost:8443")
+                .header("APIKey", "key")
+                .slot("Nonce", 19)
+                .slot("Authent", 8)
+                .build();
+        final EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(), new HttpObjectAggregator(1024));
+
+        for (String nonce : new String[]{"1700000000000000", "1700000000000000001"}) {
+            final ByteBuf request = template.newDynamicPart(PooledByteBufAllocator.DEFAULT);
+            final byte[] value = nonce.getBytes(StandardCharsets.US_ASCII);
+            template.setSlot(request, 0, value, 0, value.length);
+            template.setSlot(request, 1, "c2lnbmF0".getBytes(StandardCharsets.US_ASCII), 0, 8);
+
+            assertTrue(channel.writeInbound(template.newStaticPart(), request));
+            final FullHttpRequest decoded = channel.readInbound();
+            try {
+                assertEquals(HttpMethod.GET, decoded.method());
+                assertEquals("/derivatives/api/v3/accounts", decoded.uri());
+                assertEquals("localhost:8443", decoded.headers().get("Host"));
+                assertEquals("key", decoded.headers().get("APIKey"));
+                assertEquals(nonce, decoded.headers().get("Nonce"));
+                assertEquals("c2lnbmF0", decoded.headers().get("Authent"));
+            } finally {
+                decoded.release();
+            }
+        }
+
+        final ByteBuf request = template.newDynamicPart(PooledByteBufAllocator.DEFAULT);
+        final byte[] tooLong = new byte[9];
+        assertThrows(IllegalArgumentException.class, () -> template.setSlot(request, 1, tooLong, 0, tooLong.length));
+        request.release();
+
+        assertFalse(channel.finish());
+        template.release();
+    }
+}
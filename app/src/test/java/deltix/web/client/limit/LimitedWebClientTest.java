@@ -0,0 +1,93 @@
+package deltix.web.client.limit;
+
+import deltix.web.client.FakeWebClient;
+import deltix.web.client.RecordingListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitedWebClientTest {
+
+    @Test
+    void refillsBucketByCost() {
+        final TokenBucket bucket = new TokenBucket(10, 100); // a token per 10 ms
+        final long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire(2, now));
+        }
+        assertFalse(bucket.tryAcquire(2, now));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), bucket.getWaitTime(2, now));
+
+        final long later = now + TimeUnit.MILLISECONDS.toNanos(15);
+        assertEquals(1, bucket.getAvailableTokens(later));
+        assertFalse(bucket.tryAcquire(2, later));
+        assertTrue(bucket.tryAcquire(1, later));
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(15), bucket.reserve(2, later));
+        assertEquals(10, bucket.getAvailableTokens(later + TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    void rejectsBeyondMaxInFlight() throws Exception {
+        final RecordingListener completions = new RecordingListener();
+        final FakeWebClient[] client = new FakeWebClient[1];
+        try (LimitedWebClient limited = new LimitedWebClient(new LimitedWebClient.Settings().setMaxInFlight(2),
+                completions, listener -> client[0] = new FakeWebClient(listener))) {
+            limited.executeRequest(1);
+            limited.executeRequest(2);
+            limited.executeRequest(3);
+            assertEquals(List.of(1L, 2L), client[0].getSent());
+            assertEquals(1, limited.getRejectedCount());
+            assertInstanceOf(RejectedExecutionException.class, completions.getFailures().get(0));
+
+            client[0].complete(1, 200);
+            limited.executeRequest(4);
+            assertEquals(List.of(1L, 2L, 4L), client[0].getSent());
+            assertEquals(2, limited.getInFlightCount());
+        }
+    }
+
+    @Test
+    void queuesBeyondMaxInFlight() throws Exception {
+        final RecordingListener completions = new RecordingListener();
+        final FakeWebClient[] client = new FakeWebClient[1];
+        try (LimitedWebClient limited = new LimitedWebClient(new LimitedWebClient.Settings()
+                .setMaxInFlight(1).setPolicy(LimitPolicy.QUEUE).setMaxQueued(2),
+                completions, listener -> client[0] = new FakeWebClient(listener))) {
+            for (long i = 1; i <= 4; i++) {
+                limited.executeRequest(i);
+            }
+            assertEquals(List.of(1L), client[0].getSent());
+            assertEquals(2, limited.getQueueSize());
+            assertEquals(1, limited.getRejectedCount());
+
+            client[0].complete(1, 200);
+            assertEquals(List.of(1L, 2L), client[0].getSent());
+            client[0].complete(2, 200);
+            assertEquals(List.of(1L, 2L, 3L), client[0].getSent());
+            assertEquals(0, limited.getQueueSize());
+            assertEquals(2, limited.getQueuedCount());
+            assertEquals(List.of(1L, 2L), completions.getResponses());
+        }
+    }
+
+    @Test
+    void queuesUntilBucketRefills() throws Exception {
+        final RecordingListener completions = new RecordingListener();
+        final FakeWebClient[] client = new FakeWebClient[1];
+        try (LimitedWebClient limited = new LimitedWebClient(new LimitedWebClient.Settings()
+                .setBucketCapacity(1).setBucketRefillRate(100).setPolicy(LimitPolicy.QUEUE),
+                completions, listener -> client[0] = new FakeWebClient(listener))) {
+            limited.executeRequest(1);
+            limited.executeRequest(2);
+            assertEquals(1, client[0].getSentCount());
+
+            assertEquals(2, client[0].awaitSent(2));
+        }
+    }
+}
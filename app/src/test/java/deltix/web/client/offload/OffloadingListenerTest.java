@@ -0,0 +1,99 @@
+package deltix.web.client.offload;
+
+import deltix.web.client.RecordingListener;
+import deltix.web.client.RequestPhase;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffloadingListenerTest {
+
+    @Test
+    void passesCompletionsOfConcurrentProducersInOrder() throws Exception {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            final RecordingListener completions = new RecordingListener();
+            final int producerCount = 4;
+            final int eventCount = 10_000;
+
+            try (OffloadingListener offload = new OffloadingListener(completions, waitStrategy, 8)) {
+                final Thread[] producers = new Thread[producerCount];
+                for (int p = 0; p < producerCount; p++) {
+                    final int producer = p;
+                    producers[p] = new Thread(() -> {
+                        for (int i = 0; i < eventCount; i++) {
+                            offload.onResponse((long) producer * eventCount + i, 200);
+                        }
+                    });
+                    producers[p].start();
+                }
+                for (Thread producer : producers) {
+                    producer.join();
+                }
+            }
+
+            final List<Long> responses = completions.getResponses();
+            assertEquals(producerCount * eventCount, responses.size(), waitStrategy.name());
+            final long[] last = new long[producerCount];
+            for (int p = 0; p < producerCount; p++) {
+                last[p] = (long) p * eventCount - 1;
+            }
+            for (long startTime : responses) {
+                final int producer = (int) (startTime / eventCount);
+                assertEquals(last[producer] + 1, startTime, waitStrategy.name());
+                last[producer] = startTime;
+            }
+            assertEquals(Set.of(OffloadingListener.THREAD_NAME), completions.getThreads());
+        }
+    }
+
+    @Test
+    void passesFailuresAndPhases() {
+        final RecordingListener completions = new RecordingListener();
+        final IllegalStateException error = new IllegalStateException("test");
+
+        final OffloadingListener offload = new OffloadingListener(completions, WaitStrategy.PARK, 4);
+        offload.onFailure(1, error);
+        offload.onPhase(RequestPhase.CONNECT, 100);
+        offload.close();
+        assertEquals(List.of(error), completions.getFailures());
+        assertEquals(List.of(RequestPhase.CONNECT), completions.getPhases());
+        assertEquals(2, offload.getHandoffHistogram().getTotalCount());
+
+        offload.onResponse(2, 200); // closed, passed on by the caller
+        assertEquals(List.of(2L), completions.getResponses());
+    }
+
+    @Test
+    void passesCompletionsWhichRaceWithClose() throws Exception {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            final RecordingListener completions = new RecordingListener();
+            final int producerCount = 4;
+            final int eventCount = 10_000;
+
+            final OffloadingListener offload = new OffloadingListener(completions, waitStrategy, 2);
+            final Thread[] producers = new Thread[producerCount];
+            for (int p = 0; p < producerCount; p++) {
+                producers[p] = new Thread(() -> {
+                    for (int i = 0; i < eventCount; i++) {
+                        offload.onResponse(i, 200);
+                    }
+                });
+                producers[p].start();
+            }
+            offload.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertEquals(producerCount * eventCount, completions.getResponses().size(), waitStrategy.name());
+        }
+    }
+
+    @Test
+    void rejectsCapacityOtherThanPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new OffloadingListener(new RecordingListener(), WaitStrategy.YIELD, 6));
+    }
+}
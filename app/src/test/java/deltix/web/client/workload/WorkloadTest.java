@@ -0,0 +1,51 @@
+package deltix.web.client.workload;
+
+import deltix.web.client.Endpoint;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static deltix.web.client.Endpoint.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadTest {
+
+    @Test
+    void weightsAreInterleaved() {
+        final Workload workload = Workload.weighted("sendorder:3,accounts:1");
+
+        assertArrayEquals(new Endpoint[]{SEND_ORDER, ACCOUNTS, SEND_ORDER, SEND_ORDER}, workload.getCycle());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(workload.getCycle()[i % 4], workload.next());
+        }
+    }
+
+    @Test
+    void scriptIsRepeated() {
+        final Workload workload = Workload.script("sendorder*2, balance, cancelorder");
+
+        assertArrayEquals(new Endpoint[]{SEND_ORDER, SEND_ORDER, ACCOUNTS, CANCEL_ORDER}, workload.getCycle());
+        assertThrows(IllegalArgumentException.class, () -> Workload.script("deleteorder"));
+        assertThrows(IllegalArgumentException.class, () -> Workload.weighted("accounts:0"));
+    }
+
+    @Test
+    void ordersAreEncoded() {
+        final OrderEncoder encoder = new OrderEncoder("PI_XBTUSD", 30_000);
+
+        final OrderEncoder.Body order = encoder.encode(SEND_ORDER);
+        final String expected = "orderType=lmt&symbol=PI_XBTUSD&side=sell&size=1&limitPrice=30000&cliOrdId=bench-1";
+        assertEquals(expected, order.toString());
+        assertEquals(String.valueOf(expected.length()), contentLength(order));
+
+        assertEquals("cliOrdId=bench-1", encoder.encode(CANCEL_ORDER).toString());
+        assertTrue(encoder.encode(SEND_ORDER).toString().contains("&side=buy&"));
+        assertEquals("", encoder.encode(ACCOUNTS).toString());
+        assertEquals("0", contentLength(encoder.encode(ACCOUNTS)));
+    }
+
+    private static String contentLength(OrderEncoder.Body body) {
+        return new String(body.getContentLength(), body.getContentLengthOffset(), body.getContentLengthDigits(),
+                StandardCharsets.US_ASCII);
+    }
+}
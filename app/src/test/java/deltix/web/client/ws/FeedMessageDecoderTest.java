@@ -0,0 +1,67 @@
+package deltix.web.client.ws;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedMessageDecoderTest {
+    private static final String MESSAGE = "{\"feed\":\"book\",\"seq\":7,\"send_time\":123456789012,\"side\":\"buy\"}";
+
+    private final List<long[]> messages = new ArrayList<>();
+    private final FeedListener listener = new FeedListener() {
+        @Override
+        public void onMessage(long sendTime, int length, int frames) {
+            messages.add(new long[]{sendTime, length, frames});
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            fail(error);
+        }
+    };
+
+    @Test
+    void fragmentsAreScannedInPlace() {
+        final FeedMessageDecoder decoder = new FeedMessageDecoder();
+        // every split of the message, including splits of the key and of the number
+        for (int split = 1; split < MESSAGE.length(); split++) {
+            final ByteBuf message = Unpooled.copiedBuffer(MESSAGE, StandardCharsets.US_ASCII);
+            decoder.update(message.slice(0, split));
+            decoder.update(message.slice(split, MESSAGE.length() - split));
+            decoder.complete(listener);
+            assertEquals(0, message.readerIndex());
+        }
+
+        assertEquals(MESSAGE.length() - 1, messages.size());
+        for (long[] message : messages) {
+            assertArrayEquals(new long[]{123456789012L, MESSAGE.length(), 2}, message);
+        }
+    }
+
+    @Test
+    void textAndBinaryMessages() {
+        final FeedMessageDecoder decoder = new FeedMessageDecoder();
+        decoder.update("{\"event\":\"subscribed\",\"feed\":\"book\"}");
+        decoder.complete(listener);
+        assertTrue(messages.isEmpty());
+
+        decoder.update(MESSAGE.substring(0, 40));
+        decoder.update(MESSAGE.substring(40));
+        decoder.complete(listener);
+        decoder.update(ByteBuffer.wrap("{\"send_time\":42}".getBytes(StandardCharsets.US_ASCII)));
+        decoder.complete(listener);
+        decoder.update("{\"send_time\":\"x\",\"seq\":1}");
+        decoder.complete(listener);
+
+        assertEquals(2, messages.size());
+        assertEquals(123456789012L, messages.get(0)[0]);
+        assertEquals(42, messages.get(1)[0]);
+    }
+}
@@ -0,0 +1,44 @@
+package deltix.web.client.jmh;
+
+import deltix.web.client.ResponseListener;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets the benchmark thread wait for completion of the requests it has sent without allocating per request.
+ */
+final class CompletionListener implements ResponseListener {
+    private final Semaphore completions = new Semaphore(0);
+    private final LongAdder failures = new LongAdder();
+    private volatile Throwable lastError;
+
+    @Override
+    public void onResponse(long startTime, int statusCode) {
+        if (statusCode != 200) {
+            failures.increment();
+        }
+        completions.release();
+    }
+
+    @Override
+    public void onFailure(long startTime, Throwable error) {
+        lastError = error;
+        failures.increment();
+        completions.release();
+    }
+
+    void await(int count) throws InterruptedException {
+        if (!completions.tryAcquire(count, 1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Responses are not received: " + (count - completions.availablePermits()));
+        }
+    }
+
+    void checkNoFailures() {
+        final long count = failures.sum();
+        if (count > 0) {
+            throw new IllegalStateException(count + " requests failed", lastError);
+        }
+    }
+}
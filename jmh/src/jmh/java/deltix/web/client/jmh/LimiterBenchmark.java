@@ -0,0 +1,82 @@
+package deltix.web.client.jmh;
+
+import deltix.web.client.ResponseListener;
+import deltix.web.client.WebClient;
+import deltix.web.client.limit.LimitPolicy;
+import deltix.web.client.limit.LimitedWebClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link LimitedWebClient} within the limits: in-flight permit and token bucket acquired and released
+ * around a client which completes requests at once, compared to the bare client.
+ * Run with {@code ./gradlew :jmh:jmh -PjmhIncludes=LimiterBenchmark -PjmhProfilers=gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LimiterBenchmark {
+    private WebClient direct;
+    private LimitedWebClient limited;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final ResponseListener listener = new ResponseListener() {
+            @Override
+            public void onResponse(long startTime, int statusCode) {
+            }
+
+            @Override
+            public void onFailure(long startTime, Throwable error) {
+            }
+        };
+        direct = new ImmediateClient(listener);
+        limited = new LimitedWebClient(new LimitedWebClient.Settings()
+                .setMaxInFlight(1024)
+                .setBucketCapacity(Long.MAX_VALUE / 1_000_000_000L)
+                .setBucketRefillRate(1e9)
+                .setPolicy(LimitPolicy.REJECT), listener, ImmediateClient::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        limited.close();
+    }
+
+    @Benchmark
+    public void direct() {
+        direct.executeRequest(0);
+    }
+
+    @Benchmark
+    public void limited() {
+        limited.executeRequest(0);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void limitedContended() {
+        limited.executeRequest(0);
+    }
+
+    private static final class ImmediateClient implements WebClient {
+        private final ResponseListener listener;
+
+        private ImmediateClient(ResponseListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void executeRequest(long startTime) {
+            listener.onResponse(startTime, 200);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
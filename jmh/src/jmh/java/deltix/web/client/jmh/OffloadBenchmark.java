@@ -0,0 +1,75 @@
+package deltix.web.client.jmh;
+
+import com.epam.deltix.gflog.api.LogFactory;
+import deltix.web.client.ResponseStats;
+import deltix.web.client.offload.OffloadingListener;
+import deltix.web.client.offload.WaitStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time a completion occupies the IO thread: {@link ResponseStats} called directly compared to a publication
+ * into the ring of {@link OffloadingListener}, whose consumer thread calls it. Every completion follows some CPU work,
+ * like the decoding of the response on the IO thread, so the consumer thread keeps up with the producers,
+ * the difference to {@code work} is the occupancy per completion.
+ * Run with {@code ./gradlew :jmh:jmh -PjmhIncludes=OffloadBenchmark -PjmhProfilers=gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffloadBenchmark {
+    private static final long WORK_TOKENS = 200;
+
+    @Param({"BUSY_SPIN", "PARK"})
+    public WaitStrategy waitStrategy;
+
+    private ResponseStats stats;
+    private OffloadingListener offload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stats = new ResponseStats(LogFactory.getLog(OffloadBenchmark.class));
+        offload = new OffloadingListener(stats, waitStrategy, 4096);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        offload.close();
+    }
+
+    @Benchmark
+    public void work() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+    }
+
+    @Benchmark
+    public void direct() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+        stats.onResponse(System.nanoTime(), 200);
+    }
+
+    @Benchmark
+    public void offloaded() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+        offload.onResponse(System.nanoTime(), 200);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void directContended() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+        stats.onResponse(System.nanoTime(), 200);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void offloadedContended() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+        offload.onResponse(System.nanoTime(), 200);
+    }
+}
@@ -0,0 +1,94 @@
+package deltix.web.client.jmh;
+
+import deltix.web.client.KrakenfutSigner;
+import deltix.web.client.KrakenfutUtil;
+import deltix.web.client.http.HttpRequestTemplate;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.AsciiString;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signed balance request of the Netty client: {@link DefaultFullHttpRequest} encoded by {@link HttpRequestEncoder}
+ * versus the pre-encoded {@link HttpRequestTemplate}. Both variants release the encoded buffers.
+ * Run with {@code ./gradlew :jmh:jmh -PjmhIncludes=RequestEncodingBenchmark -PjmhProfilers=gc}:
+ * {@code gc.alloc.rate.norm} of {@code template} is expected to be ~0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestEncodingBenchmark {
+    private static final AsciiString NONCE = AsciiString.cached("Nonce");
+    private static final AsciiString AUTHENT = AsciiString.cached("Authent");
+
+    private KrakenfutSigner signer;
+    private HttpHeaders headers;
+    private EmbeddedChannel encoder;
+    private HttpRequestTemplate template;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        signer = new KrakenfutSigner("c2VjcmV0");
+        headers = new DefaultHttpHeaders()
+                .set("APIKey", "key")
+                .set(HttpHeaderNames.HOST, "demo-futures.kraken.com")
+                .set(HttpHeaderNames.USER_AGENT, "AHC/2.1")
+                .set(HttpHeaderNames.ACCEPT, "*/*");
+        encoder = new EmbeddedChannel(new HttpRequestEncoder());
+        template = HttpRequestTemplate.builder(HttpMethod.GET, "/derivatives/api/v3/accounts")
+                .header(HttpHeaderNames.HOST, "demo-futures.kraken.com")
+                .header("APIKey", "key")
+                .header(HttpHeaderNames.USER_AGENT, "AHC/2.1")
+                .header(HttpHeaderNames.ACCEPT, "*/*")
+                .slot(NONCE, 19)
+                .slot(AUTHENT, KrakenfutSigner.AUTHENT_LENGTH)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encoder.finishAndReleaseAll();
+        template.release();
+    }
+
+    @Benchmark
+    public int encoder() {
+        final KrakenfutSigner.Signature signature = signer.sign(KrakenfutUtil.BALANCE_PRESIGN);
+        final DefaultFullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                "/derivatives/api/v3/accounts", Unpooled.EMPTY_BUFFER, headers.copy(), EmptyHttpHeaders.INSTANCE);
+        request.headers()
+                .set(NONCE, new AsciiString(signature.getNonce(), signature.getNonceOffset(), signature.getNonceLength(), true))
+                .set(AUTHENT, new AsciiString(signature.getAuthent(), true));
+        encoder.writeOutbound(request);
+
+        int length = 0;
+        ByteBuf encoded;
+        while ((encoded = encoder.readOutbound()) != null) {
+            length += encoded.readableBytes();
+            encoded.release();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int template() {
+        final KrakenfutSigner.Signature signature = signer.sign(KrakenfutUtil.BALANCE_PRESIGN);
+        final ByteBuf staticPart = template.newStaticPart();
+        final ByteBuf dynamicPart = template.newDynamicPart(PooledByteBufAllocator.DEFAULT);
+        template.setSlot(dynamicPart, 0, signature.getNonce(), signature.getNonceOffset(), signature.getNonceLength());
+        template.setSlot(dynamicPart, 1, signature.getAuthent(), 0, KrakenfutSigner.AUTHENT_LENGTH);
+
+        final int length = staticPart.readableBytes() + dynamicPart.readableBytes();
+        staticPart.release();
+        dynamicPart.release();
+        return length;
+    }
+}
@@ -0,0 +1,32 @@
+package deltix.web.client.jmh;
+
+import deltix.web.client.KrakenfutSigner;
+import deltix.web.client.KrakenfutUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request signature of {@link KrakenfutSigner}.
+ * Run with {@code ./gradlew :jmh:jmh -PjmhIncludes=SignerBenchmark -PjmhProfilers=gc}:
+ * {@code gc.alloc.rate.norm} is expected to be ~0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignerBenchmark {
+    private KrakenfutSigner signer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        signer = new KrakenfutSigner("c2VjcmV0");
+    }
+
+    @Benchmark
+    public KrakenfutSigner.Signature sign() {
+        return signer.sign(KrakenfutUtil.BALANCE_PRESIGN);
+    }
+}
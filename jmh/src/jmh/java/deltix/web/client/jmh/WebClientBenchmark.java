@@ -0,0 +1,93 @@
+package deltix.web.client.jmh;
+
+import deltix.web.client.ClientSettings;
+import deltix.web.client.HttpProtocol;
+import deltix.web.client.KrakenfutUtil;
+import deltix.web.client.WebClient;
+import deltix.web.client.WebClientType;
+import deltix.web.client.server.LocalKrakenfutServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of {@code concurrency} concurrent balance requests against the local server.
+ * One operation completes when all responses of the batch are received, so the per-request figures are
+ * the reported ones divided (average and sample time) or multiplied (throughput) by {@code concurrency}.
+ * <p>
+ * Run with {@code ./gradlew :jmh:jmh -PjmhProfilers=gc} to get allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class WebClientBenchmark {
+    private static final String API_KEY = "key";
+    private static final String API_SECRET = "c2VjcmV0";
+
+    @Param({"NETTY", "OKHTTP", "AHC", "APACHE", "JAVA"})
+    public WebClientType clientType;
+
+    @Param({"HTTP_1_1"})
+    public HttpProtocol protocol;
+
+    @Param({"1"})
+    public int ioThreadCount;
+
+    @Param({"false"})
+    public boolean nativeTransport;
+
+    @Param({"1", "16"})
+    public int concurrency;
+
+    @Param({"1"})
+    public int connectionCount;
+
+    @Param({"0"})
+    public int pipelineDepth;
+
+    @Param({"1024"})
+    public int responseSize;
+
+    private LocalKrakenfutServer server;
+    private WebClient client;
+    private CompletionListener listener;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new LocalKrakenfutServer(new LocalKrakenfutServer.Settings()
+                .setResponseSize(responseSize));
+
+        final ClientSettings settings = new ClientSettings()
+                .setBalanceUrl(server.getBalanceUrl())
+                .setTrustAllCertificates(true)
+                .setProtocol(protocol)
+                .setIoThreadCount(ioThreadCount)
+                .setUseNativeTransport(nativeTransport)
+                .setConnectionCount(connectionCount)
+                .setPipelineDepth(pipelineDepth);
+
+        listener = new CompletionListener();
+        client = KrakenfutUtil.createClient(clientType, settings, API_KEY, API_SECRET, listener);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try {
+            listener.checkNoFailures();
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public void balanceRequests() throws InterruptedException {
+        for (int i = 0; i < concurrency; i++) {
+            client.executeRequest();
+        }
+        listener.await(concurrency);
+    }
+}